@@ -0,0 +1,258 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.UndoRedoHandler.CommandAddedEvent;
+import org.openstreetmap.josm.data.UndoRedoHandler.CommandQueueCleanedEvent;
+import org.openstreetmap.josm.data.UndoRedoHandler.CommandQueueListener;
+import org.openstreetmap.josm.data.UndoRedoHandler.CommandQueuePreciseListener;
+import org.openstreetmap.josm.data.UndoRedoHandler.CommandRedoneEvent;
+import org.openstreetmap.josm.data.UndoRedoHandler.CommandUndoneEvent;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.plugins.mapwithai.commands.MapWithAIAddCommand;
+import org.openstreetmap.josm.tools.Destroyable;
+
+/**
+ * Count the objects added from the MapWithAI layer that are in the undo stack.
+ * The count is kept up to date with the events of the command queue, so getting
+ * it does not look at every command in the undo stack, and an edit only looks at
+ * the primitives of the command that was added, undone, or redone.
+ *
+ * @author Taylor Smock
+ */
+public final class AddedObjectsCounter implements CommandQueuePreciseListener, CommandQueueListener, Destroyable {
+    /**
+     * The primitives that a command added
+     *
+     * @param index      The position of the command in the undo stack, counted
+     *                   from the first command ever added
+     * @param primitives The primitives in the OSM dataset
+     */
+    private record Contribution(long index, List<OsmPrimitive> primitives) {
+    }
+
+    /**
+     * An added primitive
+     */
+    private static final class Tracked {
+        /** The number of commands that added the primitive */
+        int references;
+        /** {@code true} if the primitive is currently counted */
+        boolean valid;
+    }
+
+    private static final Object LOCK = new Object();
+    private static AddedObjectsCounter instance;
+
+    private final Map<MapWithAIAddCommand, Contribution> contributions = new LinkedHashMap<>();
+    private final Map<OsmPrimitive, Tracked> tracked = new HashMap<>();
+    private long count;
+    /** The number of commands in the undo stack, including ones that have been dropped */
+    private long position;
+    /** The number of commands that have been dropped from the bottom of the undo stack */
+    private long dropped;
+
+    private AddedObjectsCounter() {
+        // Use getInstance
+    }
+
+    /**
+     * Get the counter, creating it if necessary
+     *
+     * @return The counter
+     */
+    public static AddedObjectsCounter getInstance() {
+        synchronized (LOCK) {
+            if (instance != null) {
+                return instance;
+            }
+        }
+        final var counter = new AddedObjectsCounter();
+        // The undo stack is only modified on the EDT, so nothing can be missed between registering and counting
+        GuiHelper.runInEDTAndWait(() -> {
+            synchronized (LOCK) {
+                if (instance == null) {
+                    final var handler = UndoRedoHandler.getInstance();
+                    handler.addCommandQueuePreciseListener(counter);
+                    handler.addCommandQueueListener(counter);
+                    counter.reset(handler.getUndoCommands());
+                    instance = counter;
+                }
+            }
+        });
+        synchronized (LOCK) {
+            return instance;
+        }
+    }
+
+    /**
+     * Destroy the counter, if it exists
+     */
+    public static void destroyInstance() {
+        final AddedObjectsCounter counter;
+        synchronized (LOCK) {
+            counter = instance;
+            instance = null;
+        }
+        if (counter != null) {
+            counter.destroy();
+        }
+    }
+
+    /**
+     * Get the number of whole objects added from the MapWithAI layer
+     *
+     * @return The number of added objects that are in the undo stack
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the number of whole objects that a command added from the MapWithAI
+     * layer
+     *
+     * @param command The command
+     * @return The number of objects the command added, or {@code 0} if the command
+     *         is not in the undo stack
+     */
+    public synchronized long getCount(MapWithAIAddCommand command) {
+        final var contribution = contributions.get(command);
+        if (contribution == null) {
+            return 0;
+        }
+        return contribution.primitives().stream().map(tracked::get)
+                .filter(entry -> entry != null && entry.valid).count();
+    }
+
+    @Override
+    public synchronized void commandAdded(CommandAddedEvent e) {
+        added(e.getCommand());
+    }
+
+    @Override
+    public synchronized void commandUndone(CommandUndoneEvent e) {
+        position--;
+        final var command = e.getCommand();
+        if (command instanceof MapWithAIAddCommand addCommand) {
+            final var contribution = contributions.remove(addCommand);
+            if (contribution != null) {
+                contribution.primitives().forEach(this::untrack);
+            }
+        }
+        update(command);
+    }
+
+    @Override
+    public synchronized void commandRedone(CommandRedoneEvent e) {
+        added(e.getCommand());
+    }
+
+    @Override
+    public synchronized void cleaned(CommandQueueCleanedEvent e) {
+        // Cleaning is rare (e.g. after an upload), so count everything again
+        reset(UndoRedoHandler.getInstance().getUndoCommands());
+    }
+
+    @Override
+    public synchronized void commandChanged(int queueSize, int redoSize) {
+        // The undo stack drops the oldest commands without an event when it gets too large
+        final long missing = position - dropped - queueSize;
+        if (missing > 0) {
+            dropped += missing;
+            final var iterator = contributions.values().iterator();
+            while (iterator.hasNext()) {
+                final var contribution = iterator.next();
+                if (contribution.index() >= dropped) {
+                    break;
+                }
+                contribution.primitives().forEach(this::untrack);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void added(Command command) {
+        final long index = position++;
+        if (command instanceof MapWithAIAddCommand addCommand) {
+            final var primitives = addCommand.getAddedPrimitives();
+            contributions.put(addCommand, new Contribution(index, primitives));
+            primitives.forEach(this::track);
+        }
+        update(command);
+    }
+
+    private void reset(Collection<Command> undoCommands) {
+        contributions.clear();
+        tracked.clear();
+        count = 0;
+        position = 0;
+        dropped = 0;
+        undoCommands.forEach(this::added);
+    }
+
+    private void track(OsmPrimitive primitive) {
+        final var entry = tracked.computeIfAbsent(primitive, p -> new Tracked());
+        entry.references++;
+        if (entry.references == 1) {
+            entry.valid = isValid(primitive);
+        }
+        if (entry.valid) {
+            count++;
+        }
+    }
+
+    private void untrack(OsmPrimitive primitive) {
+        final var entry = tracked.get(primitive);
+        if (entry != null) {
+            if (entry.valid) {
+                count--;
+            }
+            if (--entry.references == 0) {
+                tracked.remove(primitive);
+            }
+        }
+    }
+
+    /**
+     * Check the added primitives that a command changed (e.g. deleted)
+     *
+     * @param command The command that was added, undone, or redone
+     */
+    private void update(Command command) {
+        if (tracked.isEmpty()) {
+            return;
+        }
+        for (var primitive : command.getParticipatingPrimitives()) {
+            final var entry = tracked.get(primitive);
+            if (entry != null) {
+                final boolean valid = isValid(primitive);
+                if (valid != entry.valid) {
+                    count += valid ? entry.references : -entry.references;
+                    entry.valid = valid;
+                }
+            }
+        }
+    }
+
+    private static boolean isValid(OsmPrimitive primitive) {
+        return primitive.getDataSet() != null && MapWithAIAddCommand.validPrimitive(primitive);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        UndoRedoHandler.getInstance().removeCommandQueuePreciseListener(this);
+        UndoRedoHandler.getInstance().removeCommandQueueListener(this);
+        contributions.clear();
+        tracked.clear();
+        count = 0;
+    }
+}
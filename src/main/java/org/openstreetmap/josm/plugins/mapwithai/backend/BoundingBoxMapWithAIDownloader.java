@@ -64,7 +64,9 @@ import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIConflati
 import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIInfo;
 import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAILayerInfo;
 import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIType;
+import org.openstreetmap.josm.plugins.mapwithai.tools.CoordinateInterner;
 import org.openstreetmap.josm.plugins.mapwithai.tools.MapPaintUtils;
+import org.openstreetmap.josm.plugins.mapwithai.tools.TagInterner;
 import org.openstreetmap.josm.plugins.pmtiles.data.imagery.PMTilesImageryInfo;
 import org.openstreetmap.josm.plugins.pmtiles.gui.layers.PMTilesImageSource;
 import org.openstreetmap.josm.plugins.pmtiles.lib.DirectoryCache;
@@ -262,17 +264,23 @@ public class BoundingBoxMapWithAIDownloader extends BoundingBoxDownloader {
         final var contentType = this.activeConnection.getResponse().getContentType();
         if (this.info.getSourceType() == MapWithAIType.PMTILES
                 || this.info.getSourceType() == MapWithAIType.MAPBOX_VECTOR_TILE) {
-            ds = readMvt(source, progressMonitor);
+            ds = internTags(readMvt(source, progressMonitor));
         } else if (Arrays.asList("text/json", "application/json", "application/geo+json").contains(contentType)
                 // Fall back to Esri Feature Server check. They don't always indicate a json
                 // return type. :(
                 || (this.info.getSourceType() == MapWithAIType.ESRI_FEATURE_SERVER && !this.info.isConflated())) {
-            ds = readJson(source, progressMonitor);
+            ds = internTags(readJson(source, progressMonitor));
         } else {
-            // Fall back to XML parsing
+            // Fall back to XML parsing. The OSM reader already shares tag strings.
             ds = OsmReader.parseDataSet(source, progressMonitor, OsmReader.Options.CONVERT_UNKNOWN_TO_TAGS,
                     OsmReader.Options.SAVE_ORIGINAL_ID);
         }
+        final var parsed = ds;
+        final double precision = MapWithAIPreferenceHelper.getCoordinatePrecision();
+        if (precision > 0) {
+            CleanupMetrics.measure(CleanupMetrics.DOWNLOAD, "deduplicateCoordinates", parsed,
+                    () -> new CoordinateInterner(precision).deduplicate(parsed));
+        }
         if (url != null && info.getUrl() != null && !info.getUrl().trim().isEmpty()) {
             if (info.getSource() != null) {
                 GetDataRunnable.addSourceTag(ds, info.getSource());
@@ -284,6 +292,18 @@ public class BoundingBoxMapWithAIDownloader extends BoundingBoxDownloader {
         return ds;
     }
 
+    /**
+     * Share the tag strings of data from a reader that creates new strings for
+     * every primitive
+     *
+     * @param ds The parsed data
+     * @return The parsed data, for easy chaining
+     */
+    private static DataSet internTags(DataSet ds) {
+        CleanupMetrics.measure(CleanupMetrics.DOWNLOAD, "internTags", ds, () -> TagInterner.intern(ds));
+        return ds;
+    }
+
     private DataSet readMvt(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
         final DataSet ds;
         final TileSource tileSource;
@@ -369,12 +389,16 @@ public class BoundingBoxMapWithAIDownloader extends BoundingBoxDownloader {
         }
         final var ds = new DataSet();
         final var primitiveMap = new HashMap<PrimitiveId, OsmPrimitive>(tile.getData().getAllPrimitives().size());
+        final double precision = MapWithAIPreferenceHelper.getCoordinatePrecision();
+        final var interner = precision > 0 ? new CoordinateInterner(precision) : null;
         for (Class<? extends VectorPrimitive> clazz : Arrays.asList(VectorNode.class, VectorWay.class,
                 VectorRelation.class)) {
             for (VectorPrimitive p : Utils.filteredCollection(tile.getData().getAllPrimitives(), clazz)) {
                 final OsmPrimitive osmPrimitive;
                 if (p instanceof VectorNode node) {
-                    osmPrimitive = new Node(node.getCoor());
+                    // Vertices shared by several features are only created once
+                    osmPrimitive = interner != null && !node.hasKeys() ? interner.intern(node)
+                            : new Node(node.getCoor());
                     osmPrimitive.putAll(node.getKeys());
                 } else if (p instanceof VectorWay way) {
                     final var tWay = new Way();
@@ -393,7 +417,9 @@ public class BoundingBoxMapWithAIDownloader extends BoundingBoxDownloader {
                 } else {
                     throw new IllegalDataException("Unknown vector data type: " + p);
                 }
-                ds.addPrimitive(osmPrimitive);
+                if (osmPrimitive.getDataSet() == null) {
+                    ds.addPrimitive(osmPrimitive);
+                }
                 primitiveMap.put(p, osmPrimitive);
             }
         }
@@ -424,6 +450,7 @@ public class BoundingBoxMapWithAIDownloader extends BoundingBoxDownloader {
                     final var other = this.getAdditionalEsriData(progressMonitor,
                             this.getRequestForBbox(this.lon1, this.lat1, this.lon2, this.lat2), size);
                     ds.mergeFrom(other, progressMonitor.createSubTaskMonitor(0, false));
+                    CleanupMetrics.transfer(other, ds);
                 }
             }
         }
@@ -468,6 +495,7 @@ public class BoundingBoxMapWithAIDownloader extends BoundingBoxDownloader {
                             this.start + size).parseOsm(progressMonitor.createSubTaskMonitor(0, false));
                     progressMonitor.worked((int) next.allPrimitives().stream().filter(IPrimitive::isTagged).count());
                     returnDs.mergeFrom(next);
+                    CleanupMetrics.transfer(next, returnDs);
                 }
             } catch (OsmTransferException e) {
                 throw new JosmRuntimeException(e);
@@ -0,0 +1,323 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Timings and counters for download phases and cleanup stages. Each
+ * measurement is emitted as a {@link CleanupStageEvent} (for Java Flight
+ * Recorder), logged at debug level, and kept in the {@link History} of the
+ * dataset it was measured on. Downloads are measured on temporary datasets, so
+ * their measurements are moved along with the data with
+ * {@link #transfer(DataSet, DataSet)} when they are merged into another
+ * dataset, until they reach a dataset with a registered history (e.g. the
+ * dataset of a layer).
+ * <p>
+ * Counting the changed primitives needs two passes over the dataset, so the
+ * primitive counters are only recorded when the JFR event is enabled or
+ * {@link MapWithAIPreferenceHelper#isDetailedMetrics()} is set. Otherwise, only
+ * the timings and allocations are recorded.
+ *
+ * @author Taylor Smock
+ */
+public final class CleanupMetrics {
+    /**
+     * A single measurement
+     *
+     * @param phase             The phase ({@link #DOWNLOAD} or {@link #CLEANUP})
+     * @param stage             The stage in the phase
+     * @param nanos             The time the stage took, in nanoseconds
+     * @param primitivesIn      The number of non-deleted primitives before the
+     *                          stage, or {@code -1} if not recorded
+     * @param primitivesOut     The number of non-deleted primitives after the
+     *                          stage, or {@code -1} if not recorded
+     * @param primitivesChanged The number of primitives that were added,
+     *                          removed, or modified by the stage, or {@code -1}
+     *                          if not recorded
+     * @param allocated         The bytes allocated by the thread running the
+     *                          stage, or {@code -1} if unavailable
+     */
+    public record Measurement(String phase, String stage, long nanos, int primitivesIn, int primitivesOut,
+            int primitivesChanged, long allocated) {
+    }
+
+    /**
+     * The state of a dataset. The fingerprint of a primitive changes when its
+     * tags, deleted state, location, nodes, or members change.
+     *
+     * @param fingerprints The fingerprints of all primitives in the dataset
+     * @param nonDeleted   The number of non-deleted primitives
+     */
+    private record Snapshot(Map<OsmPrimitive, Integer> fingerprints, int nonDeleted) {
+        Snapshot(DataSet dataSet) {
+            this(new IdentityHashMap<>(dataSet.allPrimitives().size()), (int) dataSet.allPrimitives().stream()
+                    .filter(primitive -> !primitive.isDeleted()).count());
+            for (var primitive : dataSet.allPrimitives()) {
+                fingerprints.put(primitive, fingerprint(primitive));
+            }
+        }
+    }
+
+    /**
+     * A bounded history of measurements, for a single layer
+     */
+    public static final class History {
+        /** The maximum number of measurements kept for the report */
+        static final int MAX_MEASUREMENTS = 500;
+
+        private final Deque<Measurement> measurements = new ArrayDeque<>();
+        /** {@code true} if the history was registered with {@link CleanupMetrics#addHistory} */
+        private boolean registered;
+
+        private synchronized void add(Measurement measurement) {
+            measurements.addLast(measurement);
+            while (measurements.size() > MAX_MEASUREMENTS) {
+                measurements.removeFirst();
+            }
+        }
+
+        private void addAll(History other) {
+            for (var measurement : other.getMeasurements()) {
+                add(measurement);
+            }
+        }
+
+        /**
+         * Get the kept measurements
+         *
+         * @return The measurements, oldest first
+         */
+        public synchronized List<Measurement> getMeasurements() {
+            return List.copyOf(measurements);
+        }
+
+        /**
+         * Remove the kept measurements
+         */
+        public synchronized void clear() {
+            measurements.clear();
+        }
+
+        /**
+         * Get a plain text report of the kept measurements, suitable for bug
+         * reports
+         *
+         * @return The report, with one line per measurement (oldest first)
+         */
+        public String getReport() {
+            final var report = new StringBuilder("phase\tstage\ttime (ms)\tprimitives in\tprimitives out"
+                    + "\tprimitives changed\tallocated (bytes)");
+            for (var measurement : getMeasurements()) {
+                report.append('\n').append(measurement.phase()).append('\t').append(measurement.stage())
+                        .append('\t').append(String.format(Locale.ROOT, "%.3f", measurement.nanos() / 1_000_000d))
+                        .append('\t').append(measurement.primitivesIn()).append('\t')
+                        .append(measurement.primitivesOut()).append('\t').append(measurement.primitivesChanged())
+                        .append('\t').append(measurement.allocated());
+            }
+            return report.toString();
+        }
+    }
+
+    /** The phase for downloading and parsing data */
+    public static final String DOWNLOAD = "download";
+    /** The phase for cleaning up downloaded data */
+    public static final String CLEANUP = "cleanup";
+
+    /** The histories of datasets. Unregistered histories are pending until they are transferred. */
+    private static final Map<DataSet, History> HISTORIES = new WeakHashMap<>();
+
+    private CleanupMetrics() {
+        // Hide the constructor
+    }
+
+    /**
+     * Measure a stage that modifies a dataset
+     *
+     * @param phase    The phase of the stage
+     * @param stage    The name of the stage
+     * @param dataSet  The dataset the stage modifies
+     * @param runnable The stage
+     */
+    public static void measure(String phase, String stage, DataSet dataSet, Runnable runnable) {
+        final var event = new CleanupStageEvent();
+        final var before = isDetailed(event) ? new Snapshot(dataSet) : null;
+        final long allocatedStart = allocatedBytes();
+        event.begin();
+        final long start = System.nanoTime();
+        runnable.run();
+        final long nanos = System.nanoTime() - start;
+        event.end();
+        final long allocatedEnd = allocatedBytes();
+        if (before == null) {
+            record(dataSet, event, new Measurement(phase, stage, nanos, -1, -1, -1,
+                    allocatedStart < 0 || allocatedEnd < 0 ? -1 : allocatedEnd - allocatedStart));
+            return;
+        }
+        final var after = new Snapshot(dataSet);
+        var changed = 0;
+        for (var entry : after.fingerprints().entrySet()) {
+            if (!Objects.equals(before.fingerprints().remove(entry.getKey()), entry.getValue())) {
+                changed++;
+            }
+        }
+        // Anything left was removed from the dataset
+        changed += before.fingerprints().size();
+        record(dataSet, event, new Measurement(phase, stage, nanos, before.nonDeleted(), after.nonDeleted(), changed,
+                allocatedStart < 0 || allocatedEnd < 0 ? -1 : allocatedEnd - allocatedStart));
+    }
+
+    /**
+     * Measure a stage that creates a dataset
+     *
+     * @param phase    The phase of the stage
+     * @param stage    The name of the stage
+     * @param supplier The stage
+     * @return The dataset from the stage
+     */
+    public static DataSet measure(String phase, String stage, Supplier<DataSet> supplier) {
+        final var event = new CleanupStageEvent();
+        final long allocatedStart = allocatedBytes();
+        event.begin();
+        final long start = System.nanoTime();
+        final var dataSet = supplier.get();
+        final long nanos = System.nanoTime() - start;
+        event.end();
+        final long allocatedEnd = allocatedBytes();
+        final int primitives;
+        if (!isDetailed(event)) {
+            primitives = -1;
+        } else {
+            primitives = dataSet == null ? 0 : (int) dataSet.allNonDeletedPrimitives().stream().count();
+        }
+        record(dataSet, event, new Measurement(phase, stage, nanos, primitives < 0 ? -1 : 0, primitives, primitives,
+                allocatedStart < 0 || allocatedEnd < 0 ? -1 : allocatedEnd - allocatedStart));
+        return dataSet;
+    }
+
+    /**
+     * Keep the measurements of a dataset in a history until it is removed. Any
+     * measurements already transferred to the dataset are added to the history.
+     *
+     * @param dataSet The dataset to keep the measurements of
+     * @param history The history to add measurements to
+     */
+    public static void addHistory(DataSet dataSet, History history) {
+        Objects.requireNonNull(dataSet);
+        Objects.requireNonNull(history);
+        synchronized (HISTORIES) {
+            history.registered = true;
+            final var pending = HISTORIES.put(dataSet, history);
+            if (pending != null && pending != history) {
+                history.addAll(pending);
+            }
+        }
+    }
+
+    /**
+     * Stop keeping the measurements of a dataset
+     *
+     * @param dataSet The dataset to stop keeping measurements for
+     */
+    public static void removeHistory(DataSet dataSet) {
+        synchronized (HISTORIES) {
+            HISTORIES.remove(dataSet);
+        }
+    }
+
+    /**
+     * Move the measurements of a dataset to another dataset, after the data has
+     * been merged
+     *
+     * @param from The dataset the data came from
+     * @param to   The dataset the data was merged into
+     */
+    public static void transfer(DataSet from, DataSet to) {
+        if (from == null || to == null || from == to) {
+            return;
+        }
+        synchronized (HISTORIES) {
+            final var history = HISTORIES.get(from);
+            if (history != null) {
+                if (!history.registered) {
+                    HISTORIES.remove(from);
+                }
+                HISTORIES.computeIfAbsent(to, ignored -> new History()).addAll(history);
+            }
+        }
+    }
+
+    /**
+     * Check if the primitive counters should be recorded
+     *
+     * @param event The event for the stage
+     * @return {@code true} if the (expensive) primitive counters should be recorded
+     */
+    private static boolean isDetailed(CleanupStageEvent event) {
+        return event.isEnabled() || MapWithAIPreferenceHelper.isDetailedMetrics();
+    }
+
+    private static void record(DataSet dataSet, CleanupStageEvent event, Measurement measurement) {
+        if (event.shouldCommit()) {
+            event.phase = measurement.phase();
+            event.stage = measurement.stage();
+            event.primitivesIn = measurement.primitivesIn();
+            event.primitivesOut = measurement.primitivesOut();
+            event.primitivesChanged = measurement.primitivesChanged();
+            event.allocated = measurement.allocated();
+            event.commit();
+        }
+        Logging.debug("{0}: {1}", CleanupMetrics.class.getSimpleName(), measurement);
+        if (dataSet != null) {
+            synchronized (HISTORIES) {
+                HISTORIES.computeIfAbsent(dataSet, ignored -> new History()).add(measurement);
+            }
+        }
+    }
+
+    private static int fingerprint(OsmPrimitive primitive) {
+        final var hash = new int[] { Boolean.hashCode(primitive.isDeleted()) };
+        primitive.visitKeys((p, key, value) -> hash[0] += key.hashCode() ^ Objects.hashCode(value));
+        if (primitive instanceof Node node) {
+            hash[0] = 31 * (31 * hash[0] + Double.hashCode(node.lat())) + Double.hashCode(node.lon());
+        } else if (primitive instanceof Way way) {
+            for (var i = 0; i < way.getNodesCount(); i++) {
+                hash[0] = 31 * hash[0] + System.identityHashCode(way.getNode(i));
+            }
+        } else if (primitive instanceof Relation relation) {
+            for (var member : relation.getMembers()) {
+                hash[0] = 31 * (31 * hash[0] + System.identityHashCode(member.getMember()))
+                        + member.getRole().hashCode();
+            }
+        }
+        return hash[0];
+    }
+
+    /**
+     * Get the bytes allocated by the current thread
+     *
+     * @return The allocated bytes, or {@code -1} if the JVM does not support it
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean
+                && threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return threadMXBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,40 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event for a download or cleanup stage. See {@link CleanupMetrics}.
+ *
+ * @author Taylor Smock
+ */
+@Name("org.openstreetmap.josm.plugins.mapwithai.CleanupStage")
+@Label("MapWithAI Stage")
+@Category("MapWithAI")
+@Description("A MapWithAI download or cleanup stage")
+final class CleanupStageEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Primitives In")
+    int primitivesIn;
+
+    @Label("Primitives Out")
+    int primitivesOut;
+
+    @Label("Primitives Changed")
+    int primitivesChanged;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the thread running the stage, or -1 if unavailable")
+    @DataAmount
+    long allocated;
+}
@@ -0,0 +1,126 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.plugins.mapwithai.commands.MergeDuplicateWays;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAICategory;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.PreConflatedDataUtils;
+import org.openstreetmap.josm.plugins.mapwithai.spi.cleanup.CleanupContext;
+import org.openstreetmap.josm.plugins.mapwithai.spi.cleanup.ICleanupStage;
+
+/**
+ * The cleanup stages that MapWithAI runs on downloaded data. Each stage
+ * depends upon the previous stage, so that the order does not change when
+ * other stages are registered.
+ *
+ * @author Taylor Smock
+ */
+enum DefaultCleanupStage implements ICleanupStage {
+    /** See {@link GetDataRunnable#replaceTags(org.openstreetmap.josm.data.osm.DataSet)} */
+    REPLACE_TAGS("replaceTags", null, Constants.ALL, Constants.ALL, Collections.emptySet(),
+            context -> GetDataRunnable.replaceTags(context.dataSet())),
+    /** See {@link GetDataRunnable#removeCommonTags} */
+    REMOVE_COMMON_TAGS("removeCommonTags", "replaceTags", Constants.ALL, Constants.ALL, Collections.emptySet(),
+            context -> GetDataRunnable.removeCommonTags(context.dataSet())),
+    /** See {@link GetDataRunnable#removeEmptyTags} */
+    REMOVE_EMPTY_TAGS("removeEmptyTags", "removeCommonTags", Constants.ALL, Constants.ALL, Collections.emptySet(),
+            context -> GetDataRunnable.removeEmptyTags(context.dataSet(), context.bounds())),
+    /** See {@link GetDataRunnable#mergeNodes} */
+    MERGE_NODES("mergeNodes", "removeEmptyTags", EnumSet.of(OsmPrimitiveType.NODE), Constants.ALL,
+            Collections.emptySet(), context -> GetDataRunnable.mergeNodes(context.dataSet())),
+    /** See {@link GetDataRunnable#cleanupDataSet} */
+    CLEANUP_DATASET("cleanupDataSet", "mergeNodes", Constants.ALL, Constants.ALL, Collections.emptySet(),
+            context -> GetDataRunnable.cleanupDataSet(context.dataSet())),
+    /** See {@link GetDataRunnable#mergeWays} */
+    MERGE_WAYS("mergeWays", "cleanupDataSet", EnumSet.of(OsmPrimitiveType.WAY), Constants.NODES_AND_WAYS,
+            Collections.emptySet(), context -> GetDataRunnable.mergeWays(context.dataSet())),
+    /** See {@link PreConflatedDataUtils#removeConflatedData} */
+    REMOVE_CONFLATED_DATA("removeConflatedData", "mergeWays", Constants.ALL, Constants.ALL, Collections.emptySet(),
+            context -> PreConflatedDataUtils.removeConflatedData(context.dataSet(), context.info())),
+    /** See {@link GetDataRunnable#removeAlreadyAddedData} */
+    REMOVE_ALREADY_ADDED_DATA("removeAlreadyAddedData", "removeConflatedData", EnumSet.of(OsmPrimitiveType.WAY),
+            Constants.NODES_AND_WAYS, Collections.emptySet(),
+            context -> GetDataRunnable.removeAlreadyAddedData(context.dataSet())),
+    /** See {@link MergeDuplicateWays#filterWays}. Only highways are merged. */
+    MERGE_DUPLICATE_WAYS("mergeDuplicateWays", "removeAlreadyAddedData", EnumSet.of(OsmPrimitiveType.WAY),
+            Constants.NODES_AND_WAYS,
+            EnumSet.complementOf(
+                    EnumSet.of(MapWithAICategory.BUILDING, MapWithAICategory.ADDRESS, MapWithAICategory.POWER)),
+            context -> {
+                final var ways = context.dataSet().searchWays(context.getCleanupBounds().toBBox()).stream()
+                        .filter(w -> w.hasKey("highway")).toList();
+                if (!ways.isEmpty()) {
+                    MergeDuplicateWays.filterWays(ways, new ArrayList<>());
+                }
+            }),
+    /** See {@link GetDataRunnable#cleanupArtifacts(org.openstreetmap.josm.data.osm.Way)} */
+    CLEANUP_ARTIFACTS("cleanupArtifacts", "mergeDuplicateWays", EnumSet.of(OsmPrimitiveType.WAY),
+            EnumSet.of(OsmPrimitiveType.WAY), EnumSet.complementOf(EnumSet.of(MapWithAICategory.ADDRESS)),
+            context -> {
+                final var bounds = context.getCleanupBounds();
+                GetDataRunnable.cleanupArtifacts(context.dataSet(),
+                        bounds.isCollapsed() || bounds.isOutOfTheWorld() ? context.dataSet().getWays()
+                                : context.dataSet().searchWays(bounds.toBBox()));
+            });
+
+    /** Enum constants cannot refer to static fields of the enum */
+    private static final class Constants {
+        static final Set<OsmPrimitiveType> ALL = Collections
+                .unmodifiableSet(EnumSet.of(OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION));
+        static final Set<OsmPrimitiveType> NODES_AND_WAYS = Collections
+                .unmodifiableSet(EnumSet.of(OsmPrimitiveType.NODE, OsmPrimitiveType.WAY));
+    }
+
+    private final String name;
+    private final Set<String> dependencies;
+    private final Set<OsmPrimitiveType> inputs;
+    private final Set<OsmPrimitiveType> outputs;
+    private final Set<MapWithAICategory> categories;
+    private final Consumer<CleanupContext> stage;
+
+    DefaultCleanupStage(String name, String dependency, Set<OsmPrimitiveType> inputs,
+            Set<OsmPrimitiveType> outputs, Set<MapWithAICategory> categories, Consumer<CleanupContext> stage) {
+        this.name = name;
+        this.dependencies = dependency == null ? Collections.emptySet() : Collections.singleton(dependency);
+        this.inputs = Collections.unmodifiableSet(inputs);
+        this.outputs = Collections.unmodifiableSet(outputs);
+        this.categories = Collections.unmodifiableSet(categories);
+        this.stage = stage;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public Set<OsmPrimitiveType> getInputs() {
+        return this.inputs;
+    }
+
+    @Override
+    public Set<OsmPrimitiveType> getOutputs() {
+        return this.outputs;
+    }
+
+    @Override
+    public Set<String> getDependencies() {
+        return this.dependencies;
+    }
+
+    @Override
+    public Set<MapWithAICategory> getCategories() {
+        return this.categories;
+    }
+
+    @Override
+    public void run(CleanupContext context) {
+        this.stage.accept(context);
+    }
+}
@@ -155,8 +155,10 @@ public class DownloadMapWithAITask extends DownloadOsmTask {
             }
             for (var task : this.downloader) {
                 try {
-                    DownloadMapWithAITask.this.downloadedData.mergeFrom(task.get(),
+                    final var downloaded = task.get();
+                    DownloadMapWithAITask.this.downloadedData.mergeFrom(downloaded,
                             monitor.createSubTaskMonitor(1, false));
+                    CleanupMetrics.transfer(downloaded, DownloadMapWithAITask.this.downloadedData);
                 } catch (CancellationException e) {
                     Logging.trace(e);
                     return;
@@ -191,6 +193,7 @@ public class DownloadMapWithAITask extends DownloadOsmTask {
                 synchronized (DownloadMapWithAITask.DownloadTask.class) {
                     MapWithAILayer layer = MapWithAIDataUtils.getLayer(true);
                     layer.getDataSet().mergeFrom(downloadedData);
+                    CleanupMetrics.transfer(downloadedData, layer.getDataSet());
                     relevantUrls.forEach(layer::addDownloadedInfo);
                 }
                 GetDataRunnable.cleanup(MapWithAIDataUtils.getLayer(true).getDataSet(), null, null);
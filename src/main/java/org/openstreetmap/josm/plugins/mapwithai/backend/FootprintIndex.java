@@ -0,0 +1,206 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.IQuadBucketType;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.QuadBuckets;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * A spatial index of the area footprints in a dataset. Incoming data is merged
+ * through the index, and incoming areas that substantially overlap an area
+ * from a source with a higher priority (see {@link SourcePriorityPolicy}) are
+ * dropped before they are merged. Overlapping areas from sources with the same
+ * priority (e.g. two sources that are not in the policy) are both kept.
+ * <p>
+ * Areas that are already in the dataset are never removed, since they may be
+ * in use. To keep the best source when several sources are downloaded at
+ * once, merge the sources in priority order.
+ *
+ * @author Taylor Smock
+ */
+public final class FootprintIndex {
+    /**
+     * The footprint of an area
+     *
+     * @param way   The area
+     * @param bbox  The bbox of the area when it was indexed
+     * @param shape The shape of the area, in east/north coordinates
+     * @param area  The size of the area, in east/north units
+     */
+    private record Footprint(WeakReference<Way> way, BBox bbox, Path2D shape, double area) implements IQuadBucketType {
+        @Override
+        public BBox getBBox() {
+            return bbox;
+        }
+    }
+
+    private final DataSet ds;
+    private final QuadBuckets<Footprint> footprints = new QuadBuckets<>();
+
+    /**
+     * Create a new index
+     *
+     * @param dataSet The dataset that data will be merged into
+     */
+    public FootprintIndex(DataSet dataSet) {
+        this.ds = dataSet;
+        dataSet.getWays().forEach(this::add);
+    }
+
+    /**
+     * Merge a dataset into the indexed dataset, dropping duplicate areas from
+     * lower priority sources
+     *
+     * @param incoming The dataset to merge (it is emptied)
+     * @param policy   The source priority policy
+     * @return The number of areas that were dropped
+     */
+    public synchronized int merge(DataSet incoming, SourcePriorityPolicy policy) {
+        final int dropped = suppressDuplicates(incoming, policy);
+        final var ways = List.copyOf(incoming.getWays());
+        ds.mergeFrom(incoming);
+        CleanupMetrics.transfer(incoming, ds);
+        ways.forEach(this::add);
+        return dropped;
+    }
+
+    /**
+     * Remove areas from a dataset that duplicate indexed areas
+     *
+     * @param incoming The dataset to remove duplicates from
+     * @param policy   The source priority policy
+     * @return The number of areas that were removed
+     */
+    synchronized int suppressDuplicates(DataSet incoming, SourcePriorityPolicy policy) {
+        final double minimumOverlap = MapWithAIPreferenceHelper.getDuplicateFootprintOverlap();
+        if (minimumOverlap > 1 || footprints.isEmpty()) {
+            return 0;
+        }
+        final var duplicates = new ArrayList<Way>();
+        for (var way : incoming.getWays()) {
+            final var footprint = footprint(way);
+            if (footprint != null && way.referrers(Relation.class).findAny().isEmpty()
+                    && isDuplicate(ds, footprint, policy, minimumOverlap)) {
+                duplicates.add(way);
+            }
+        }
+        for (var way : duplicates) {
+            final var nodes = way.getNodes();
+            incoming.removePrimitive(way);
+            nodes.stream().distinct().filter(node -> node.getDataSet() == incoming && !node.isTagged()
+                    && node.getReferrers().isEmpty()).forEach(incoming::removePrimitive);
+        }
+        return duplicates.size();
+    }
+
+    private boolean isDuplicate(DataSet dataSet, Footprint footprint, SourcePriorityPolicy policy,
+            double minimumOverlap) {
+        final var way = footprint.way().get();
+        final var source = SourcePriorityPolicy.getSource(way);
+        final int rank = policy.getRank(source);
+        for (var existing : footprints.search(footprint.bbox())) {
+            final var existingWay = existing.way().get();
+            if (existingWay == null || existingWay.isDeleted() || existingWay.getDataSet() != dataSet) {
+                // The area was removed or added to another layer
+                footprints.remove(existing);
+                continue;
+            }
+            final var existingSource = SourcePriorityPolicy.getSource(existingWay);
+            if (!Objects.equals(source, existingSource) && policy.getRank(existingSource) < rank
+                    && overlap(existing, footprint) >= minimumOverlap) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(Way way) {
+        final var footprint = footprint(way);
+        if (footprint != null) {
+            footprints.add(footprint);
+        }
+    }
+
+    private static Footprint footprint(Way way) {
+        if (way.isDeleted() || way.isIncomplete() || !way.isClosed() || way.getNodesCount() < 4) {
+            return null;
+        }
+        final var shape = new Path2D.Double(Path2D.WIND_NON_ZERO, way.getNodesCount());
+        for (var i = 0; i < way.getNodesCount(); i++) {
+            final var eastNorth = way.getNode(i).getEastNorth();
+            if (eastNorth == null) {
+                return null;
+            } else if (i == 0) {
+                shape.moveTo(eastNorth.east(), eastNorth.north());
+            } else {
+                shape.lineTo(eastNorth.east(), eastNorth.north());
+            }
+        }
+        shape.closePath();
+        final double area = area(shape);
+        return area > 0 ? new Footprint(new WeakReference<>(way), new BBox(way), shape, area) : null;
+    }
+
+    /**
+     * Get the overlap of two footprints
+     *
+     * @return The intersection over union of the footprints
+     */
+    private static double overlap(Footprint footprint1, Footprint footprint2) {
+        final var intersection = new Area(footprint1.shape());
+        intersection.intersect(new Area(footprint2.shape()));
+        final double intersectionArea = area(intersection);
+        return intersectionArea / (footprint1.area() + footprint2.area() - intersectionArea);
+    }
+
+    /**
+     * Get the size of a shape made of straight lines
+     *
+     * @param shape The shape
+     * @return The size of the shape
+     */
+    static double area(Shape shape) {
+        final var coordinates = new double[6];
+        var sum = 0d;
+        double startX = 0;
+        double startY = 0;
+        double lastX = 0;
+        double lastY = 0;
+        for (var iterator = shape.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            switch (iterator.currentSegment(coordinates)) {
+            case PathIterator.SEG_MOVETO -> {
+                startX = coordinates[0];
+                startY = coordinates[1];
+                lastX = startX;
+                lastY = startY;
+            }
+            case PathIterator.SEG_LINETO -> {
+                sum += lastX * coordinates[1] - coordinates[0] * lastY;
+                lastX = coordinates[0];
+                lastY = coordinates[1];
+            }
+            case PathIterator.SEG_CLOSE -> {
+                sum += lastX * startY - startX * lastY;
+                lastX = startX;
+                lastY = startY;
+            }
+            default -> {
+                // Footprints only have straight lines
+            }
+            }
+        }
+        return Math.abs(sum) / 2;
+    }
+}
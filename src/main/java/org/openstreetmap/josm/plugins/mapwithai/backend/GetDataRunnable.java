@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -18,6 +19,7 @@ import java.util.TreeMap;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveTask;
 import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -27,7 +29,6 @@ import org.openstreetmap.josm.command.DeleteCommand;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.ILatLon;
 import org.openstreetmap.josm.data.coor.LatLon;
-import org.openstreetmap.josm.data.osm.AbstractPrimitive;
 import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Hash;
@@ -41,7 +42,6 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Storage;
 import org.openstreetmap.josm.data.osm.Tag;
-import org.openstreetmap.josm.data.osm.TagMap;
 import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
@@ -54,7 +54,10 @@ import org.openstreetmap.josm.plugins.mapwithai.MapWithAIPlugin;
 import org.openstreetmap.josm.plugins.mapwithai.commands.MergeDuplicateWays;
 import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIInfo;
 import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAILayerInfo;
-import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.PreConflatedDataUtils;
+import org.openstreetmap.josm.plugins.mapwithai.spi.cleanup.CleanupContext;
+import org.openstreetmap.josm.plugins.mapwithai.spi.cleanup.CleanupPipeline;
+import org.openstreetmap.josm.plugins.mapwithai.tools.TagInterner;
+import org.openstreetmap.josm.plugins.mapwithai.tools.WaySegmentIndex;
 import org.openstreetmap.josm.tools.Geometry;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Pair;
@@ -145,9 +148,15 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
 
     @Serial
     private static final long serialVersionUID = 258423685658089715L;
+
+    static {
+        Stream.of(DefaultCleanupStage.values()).forEach(CleanupPipeline.getInstance()::register);
+    }
     private final transient List<Bounds> runnableBounds;
     private final transient DataSet dataSet;
     private final transient ProgressMonitor monitor;
+    /** The index of the areas in the dataset, shared by the tasks for all bounds */
+    private transient FootprintIndex footprints;
     private static final float DEGREE_BUFFER = 0.001f;
     private static final int MAX_LATITUDE = 90;
     private static final int MAX_LONGITUDE = 180;
@@ -161,8 +170,6 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
     /** An equals sign (=) used for tag splitting */
     private static final String EQUALS = "=";
 
-    private static final double ARTIFACT_ANGLE = 0.1745; // 10 degrees in radians
-
     /**
      * The source tag to be used to populate source values. Not seen on objects
      * post-upload.
@@ -217,13 +224,18 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
         monitor.beginTask(tr("Downloading {0} data ({1} total downloads)", MapWithAIPlugin.NAME, bounds.size()),
                 bounds.size() - 1);
         if (!monitor.isCanceled()) {
+            if (footprints == null) {
+                footprints = new FootprintIndex(dataSet);
+            }
             if (bounds.size() == MAX_NUMBER_OF_BBOXES_TO_PROCESS) {
                 final var temporaryDataSet = getDataReal(bounds.get(0), monitor);
-                this.dataSet.update(() -> dataSet.mergeFrom(temporaryDataSet));
+                this.dataSet.update(() -> footprints.merge(temporaryDataSet, SourcePriorityPolicy.getDefault()));
             } else {
-                final Collection<GetDataRunnable> tasks = bounds.stream()
-                        .map(bound -> new GetDataRunnable(bound, dataSet, monitor.createSubTaskMonitor(0, true)))
-                        .toList();
+                final Collection<GetDataRunnable> tasks = bounds.stream().map(bound -> {
+                    final var task = new GetDataRunnable(bound, dataSet, monitor.createSubTaskMonitor(0, true));
+                    task.footprints = footprints;
+                    return task;
+                }).toList();
                 tasks.forEach(GetDataRunnable::fork);
                 tasks.forEach(runnable -> {
                     runnable.join();
@@ -252,30 +264,8 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
     }
 
     private static void realCleanup(DataSet dataSet, Bounds bounds, MapWithAIInfo info) {
-        final Bounds boundsToUse;
-        if (bounds == null && !dataSet.getDataSourceBounds().isEmpty()) {
-            boundsToUse = new Bounds(dataSet.getDataSourceBounds().get(0));
-            dataSet.getDataSourceBounds().forEach(boundsToUse::extend);
-        } else if (bounds == null) {
-            boundsToUse = new Bounds(0, 0, 0, 0);
-        } else {
-            boundsToUse = new Bounds(bounds);
-        }
-        replaceTags(dataSet);
-        removeCommonTags(dataSet);
-        removeEmptyTags(dataSet, bounds);
-        mergeNodes(dataSet);
-        cleanupDataSet(dataSet);
-        mergeWays(dataSet);
-        PreConflatedDataUtils.removeConflatedData(dataSet, info);
-        removeAlreadyAddedData(dataSet);
-        final var ways = dataSet.searchWays(boundsToUse.toBBox()).stream().filter(w -> w.hasKey("highway")).toList();
-        if (!ways.isEmpty()) {
-            new MergeDuplicateWays(dataSet, ways).executeCommand();
-        }
-        (boundsToUse.isCollapsed() || boundsToUse.isOutOfTheWorld() ? dataSet.getWays()
-                : dataSet.searchWays(boundsToUse.toBBox())).stream().filter(way -> !way.isDeleted())
-                        .forEach(GetDataRunnable::cleanupArtifacts);
+        CleanupPipeline.getInstance().run(new CleanupContext(dataSet, bounds, info), (stage,
+                runnable) -> CleanupMetrics.measure(CleanupMetrics.CLEANUP, stage.getName(), dataSet, runnable));
     }
 
     /**
@@ -320,44 +310,32 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
      */
     public static void removeAlreadyAddedData(DataSet dataSet) {
         final var osmData = MainApplication.getLayerManager().getLayersOfType(OsmDataLayer.class).stream()
-                .map(OsmDataLayer::getDataSet).filter(ds -> !ds.equals(dataSet)).toList();
-        for (var way : dataSet.getWays()) {
-            if (!way.isDeleted() && way.getOsmId() <= 0) {
-                for (var ds : osmData) {
-                    if (checkIfPrimitiveDuplicatesPrimitiveInDataSet(way, ds)) {
-                        final var nodes = way.getNodes();
-                        Optional.ofNullable(DeleteCommand.delete(Collections.singleton(way), true, true))
-                                .ifPresent(Command::executeCommand);
-                        for (var node : nodes) {
-                            if (!node.isDeleted()
-                                    && node.referrers(OsmPrimitive.class).allMatch(OsmPrimitive::isDeleted)) {
-                                node.setDeleted(true);
-                            }
-                        }
-                        break;
-                    }
+                .map(OsmDataLayer::getDataSet).filter(ds -> !ds.equals(dataSet)).distinct()
+                .map(WayFingerprintIndex::getIndex).map(WayFingerprintIndex::snapshot).toList();
+        if (osmData.isEmpty()) {
+            return;
+        }
+        // Whether a way is a duplicate does not depend upon other ways being deleted, so the
+        // check can be done for all ways before any are deleted. The snapshots can be searched
+        // from the partitions without locking.
+        final var ways = dataSet.getWays().stream().filter(way -> !way.isDeleted() && way.getOsmId() <= 0).toList();
+        final var duplicates = PartitionedCleanup.detect(ways, way -> osmData.stream().anyMatch(index -> index
+                .getCandidates(way, DEGREE_BUFFER).stream().anyMatch(dupe -> checkIfProbableDuplicate(dupe, way))));
+        for (var way : duplicates) {
+            final var nodes = way.getNodes();
+            Optional.ofNullable(DeleteCommand.delete(Collections.singleton(way), true, true))
+                    .ifPresent(Command::executeCommand);
+            for (var node : nodes) {
+                if (!node.isDeleted() && node.referrers(OsmPrimitive.class).allMatch(OsmPrimitive::isDeleted)) {
+                    node.setDeleted(true);
                 }
             }
         }
     }
 
-    private static boolean checkIfPrimitiveDuplicatesPrimitiveInDataSet(OsmPrimitive primitive, DataSet ds) {
-        final var possibleDuplicates = searchDataSet(ds, primitive);
-        for (var dupe : possibleDuplicates) {
-            if (checkIfProbableDuplicate(dupe, primitive)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private static boolean checkIfProbableDuplicate(OsmPrimitive one, OsmPrimitive two) {
         var equivalent = false;
-        final TagMap oneMap = one.getKeys();
-        final TagMap twoMap = two.getKeys();
-        oneMap.remove(MAPWITHAI_SOURCE_TAG_KEY);
-        twoMap.remove(MAPWITHAI_SOURCE_TAG_KEY);
-        if (one.getClass().equals(two.getClass()) && oneMap.equals(twoMap)) {
+        if (one.getClass().equals(two.getClass()) && hasSameTagsIgnoringSource(one, two)) {
             if (one instanceof Node coor1) {
                 final ILatLon coor2 = ((Node) two);
                 if (one.hasSameInterestingTags(two) && coor1.isLatLonKnown() && coor2.isLatLonKnown()
@@ -365,8 +343,9 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
                     equivalent = true;
                 }
             } else if (one instanceof Way wayOne) {
+                final var twoNodes = ((Way) two).getNodes();
                 equivalent = wayOne.getNodes().stream().filter(Objects::nonNull)
-                        .allMatch(node1 -> ((Way) two).getNodes().stream().anyMatch(node1::equalsEpsilon));
+                        .allMatch(node1 -> twoNodes.stream().anyMatch(node1::equalsEpsilon));
             } else if (one instanceof Relation oneRelation) {
                 equivalent = oneRelation.getMembers().stream()
                         .allMatch(member1 -> ((Relation) two).getMembers().stream()
@@ -377,19 +356,27 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
         return equivalent;
     }
 
-    private static <T extends AbstractPrimitive> List<OsmPrimitive> searchDataSet(DataSet ds, T primitive) {
-        if (primitive instanceof OsmPrimitive osmPrimitive) {
-            final var tBBox = new BBox();
-            tBBox.addPrimitive(osmPrimitive, DEGREE_BUFFER);
-            if (primitive instanceof Node) {
-                return Collections.unmodifiableList(ds.searchNodes(tBBox));
-            } else if (primitive instanceof Way) {
-                return Collections.unmodifiableList(ds.searchWays(tBBox));
-            } else if (primitive instanceof Relation) {
-                return Collections.unmodifiableList(ds.searchRelations(tBBox));
-            }
+    /**
+     * Check if two primitives have the same tags, ignoring
+     * {@link #MAPWITHAI_SOURCE_TAG_KEY}. This does not copy the tag maps.
+     *
+     * @param one The first primitive
+     * @param two The second primitive
+     * @return {@code true} if the tags are the same
+     */
+    private static boolean hasSameTagsIgnoringSource(OsmPrimitive one, OsmPrimitive two) {
+        final int oneKeys = one.getNumKeys() - (one.hasKey(MAPWITHAI_SOURCE_TAG_KEY) ? 1 : 0);
+        final int twoKeys = two.getNumKeys() - (two.hasKey(MAPWITHAI_SOURCE_TAG_KEY) ? 1 : 0);
+        if (oneKeys != twoKeys) {
+            return false;
         }
-        return Collections.emptyList();
+        final var same = new boolean[] { true };
+        one.visitKeys((p, key, value) -> {
+            if (same[0] && !MAPWITHAI_SOURCE_TAG_KEY.equals(key)) {
+                same[0] = value.equals(two.get(key));
+            }
+        });
+        return same[0];
     }
 
     /**
@@ -415,10 +402,13 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
      * @param replaceTags The tags to replace
      */
     public static void replaceTags(DataSet dataSet, Map<Tag, Tag> replaceTags) {
-        replaceTags.forEach((orig, replace) -> dataSet.allNonDeletedPrimitives().stream()
-                .filter(prim -> prim.hasTag(orig.getKey(), orig.getValue())
-                        || (prim.hasKey(orig.getKey()) && Utils.isStripEmpty(orig.getValue())))
-                .forEach(prim -> prim.put(replace)));
+        replaceTags.forEach((orig, replacement) -> {
+            final var replace = TagInterner.intern(replacement);
+            dataSet.allNonDeletedPrimitives().stream()
+                    .filter(prim -> prim.hasTag(orig.getKey(), orig.getValue())
+                            || (prim.hasKey(orig.getKey()) && Utils.isStripEmpty(orig.getValue())))
+                    .forEach(prim -> prim.put(replace));
+        });
     }
 
     /**
@@ -435,7 +425,7 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
                 }));
     }
 
-    private static void cleanupDataSet(DataSet dataSet) {
+    static void cleanupDataSet(DataSet dataSet) {
         var origIds = dataSet.allPrimitives().stream().filter(prim -> prim.hasKey(MergeDuplicateWays.ORIG_ID))
                 .distinct().collect(Collectors.toMap(prim -> prim, prim -> prim.get(MergeDuplicateWays.ORIG_ID)));
         final var serverIds = dataSet.allPrimitives().stream().filter(prim -> prim.hasKey(SERVER_ID_KEY)).distinct()
@@ -512,7 +502,7 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
      *
      * @param dataSet The dataset to merge nodes in
      */
-    private static void mergeNodes(DataSet dataSet) {
+    static void mergeNodes(DataSet dataSet) {
         final var nodes = generateEfficientNodeSearchStorage(dataSet);
         for (var obj : nodes) {
             // We only care if there are multiple nodes at the location
@@ -558,18 +548,19 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
                 && node.isLatLonKnown() && nearNode.isLatLonKnown();
     }
 
-    private static void mergeWays(DataSet dataSet) {
-        for (final var way1 : dataSet.getWays()) {
-            if (way1.isDeleted()) {
-                continue;
-            }
-            final var bbox = new BBox();
-            bbox.addPrimitive(way1, DEGREE_BUFFER);
-            for (var nearbyWay : dataSet.searchWays(bbox)) {
+    static void mergeWays(DataSet dataSet) {
+        final var ways = dataSet.getWays().stream().filter(not(Way::isDeleted)).toList();
+        final var index = new WaySegmentIndex(ways);
+        for (final var way1 : ways) {
+            for (var nearbyWay : index.searchWays(way1)) {
                 if (nearbyWay.getNodes().stream().filter(way1::containsNode).count() > 1) {
-                    for (var entry : checkWayDuplications(way1, nearbyWay).entrySet()) {
+                    final var duplications = checkWayDuplications(way1, nearbyWay, index);
+                    for (var entry : duplications.entrySet()) {
                         GetDataRunnable.addMissingElement(entry);
                     }
+                    if (!duplications.isEmpty()) {
+                        index.update(way1);
+                    }
                 }
             }
         }
@@ -606,26 +597,94 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
     }
 
     protected static void cleanupArtifacts(Way way) {
-        for (var i = 0; i < (way.getNodesCount() - 2); i++) {
-            final var node0 = way.getNode(i);
-            final var node1 = way.getNode(i + 1);
-            final var node2 = way.getNode(i + 2);
-            final double angle = Geometry.getCornerAngle(node0.getEastNorth(), node1.getEastNorth(),
-                    node2.getEastNorth());
-            if (angle < ARTIFACT_ANGLE) {
-                final List<Node> nodes = way.getNodes();
-                nodes.remove(i + 1); // NOSONAR not an issue since I'm adding it back
-                nodes.add(i + 2, node1);
+        cleanupArtifacts(way, new ProjectedWayCache());
+    }
+
+    /**
+     * Remove two node ways that duplicate another way. Possible artifacts are
+     * found in parallel spatial partitions, and are then rechecked in order, since
+     * removing one artifact can keep another artifact from being removed.
+     *
+     * @param dataSet The dataset with the ways
+     * @param ways    The ways to check
+     */
+    static void cleanupArtifacts(DataSet dataSet, Collection<Way> ways) {
+        final var twoNodeWays = ways.stream().filter(way -> !way.isDeleted() && way.getNodesCount() == 2).toList();
+        if (twoNodeWays.isEmpty()) {
+            return;
+        }
+        final var projected = new ProjectedWayCache();
+        final var possibleDuplicates = dataSet.getWays().stream().filter(not(Way::isDeleted)).toList();
+        // Fill the caches now, so that the partitions only read them
+        possibleDuplicates.forEach(way -> {
+            projected.get(way);
+            way.getBBox();
+        });
+        final var index = new WaySegmentIndex(possibleDuplicates);
+        final double maxDistance = MapWithAIPreferenceHelper.getMaxNodeDistance();
+        PartitionedCleanup.detect(twoNodeWays, way -> isPossibleArtifact(way, index, projected, maxDistance))
+                .forEach(way -> cleanupArtifacts(way, projected));
+    }
+
+    /**
+     * Check if a two node way may be removed by {@link #cleanupArtifacts(Way)},
+     * assuming that no ways are deleted. This does not lock or modify the dataset.
+     *
+     * @param way         The way to check
+     * @param index       The index of ways that the way may duplicate
+     * @param projected   The projected coordinates of the ways in the index
+     * @param maxDistance The maximum distance between the way and a duplicated way
+     * @return {@code true} if the way may be an artifact
+     */
+    private static boolean isPossibleArtifact(Way way, WaySegmentIndex index, ProjectedWayCache projected,
+            double maxDistance) {
+        final var coordinates = projected.get(way);
+        if (coordinates == null) {
+            return false;
+        }
+        final var tBBox = new BBox();
+        tBBox.addPrimitive(way, DEGREE_BUFFER);
+        for (var segment : index.search(new IWaySegment<>(way, 0), maxDistance)) {
+            final var tWay = segment.getWay();
+            if (way.equals(tWay) || tWay.isDeleted() || !tBBox.intersects(tWay.getBBox())) {
+                continue;
+            }
+            final var tCoordinates = projected.get(tWay);
+            if (tCoordinates != null
+                    && ProjectedWayCache.distance(coordinates[0], coordinates[1], tCoordinates) < maxDistance
+                    && ProjectedWayCache.distance(coordinates[2], coordinates[3], tCoordinates) < maxDistance) {
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * Remove two node ways that duplicate another way
+     *
+     * @param way       The way to check
+     * @param projected The projected coordinates of the ways in the dataset
+     */
+    static void cleanupArtifacts(Way way, ProjectedWayCache projected) {
         if ((way.getNodesCount() == 2) && (way.getDataSet() != null)) {
+            final var coordinates = projected.get(way);
+            if (coordinates == null) {
+                return;
+            }
+            final double maxDistance = MapWithAIPreferenceHelper.getMaxNodeDistance();
             final var tBBox = new BBox();
             tBBox.addPrimitive(way, DEGREE_BUFFER);
-            if (way.getDataSet().searchWays(tBBox).stream().filter(not(IPrimitive::isDeleted)).filter(not(way::equals))
-                    .anyMatch(tWay -> way.getNodes().stream().filter(
-                            tNode -> Geometry.getDistance(tNode, tWay) < MapWithAIPreferenceHelper.getMaxNodeDistance())
-                            .count() == way.getNodesCount())) {
-                way.setDeleted(true);
+            for (var tWay : way.getDataSet().searchWays(tBBox)) {
+                if (tWay.isDeleted() || way.equals(tWay)) {
+                    continue;
+                }
+                final var tCoordinates = projected.get(tWay);
+                if (tCoordinates != null
+                        && ProjectedWayCache.distance(coordinates[0], coordinates[1], tCoordinates) < maxDistance
+                        && ProjectedWayCache.distance(coordinates[2], coordinates[3], tCoordinates) < maxDistance) {
+                    way.setDeleted(true);
+                    return;
+                }
             }
         }
     }
@@ -640,10 +699,39 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
      */
     protected static Map<IWaySegment<Node, Way>, List<IWaySegment<Node, Way>>> checkWayDuplications(Way way1,
             Way way2) {
-        final var waySegments1 = way1.getNodePairs(false).stream()
-                .map(pair -> IWaySegment.forNodePair(way1, pair.a, pair.b)).toList();
         final var waySegments2 = way2.getNodePairs(false).stream()
                 .map(pair -> IWaySegment.forNodePair(way2, pair.a, pair.b)).toList();
+        return checkWayDuplications(way1, segment1 -> waySegments2);
+    }
+
+    /**
+     * Check for nearly duplicate way sections, only looking at nearby segments
+     *
+     * @param way1  The way to map duplicate segments to
+     * @param way2  The way that may have duplicate segments
+     * @param index The index with the segments of way2
+     * @return A Map&lt;WaySegment to modify from way1, List&lt;WaySegments from
+     *         way2&gt; to make the segment conform to &gt;
+     */
+    private static Map<IWaySegment<Node, Way>, List<IWaySegment<Node, Way>>> checkWayDuplications(Way way1,
+            Way way2, WaySegmentIndex index) {
+        return checkWayDuplications(way1,
+                segment1 -> index.search(segment1).stream().filter(seg -> way2.equals(seg.getWay())).toList());
+    }
+
+    /**
+     * Check for nearly duplicate way sections
+     *
+     * @param way1       The way to map duplicate segments to
+     * @param candidates A function to get the segments that may duplicate a
+     *                   segment from way1
+     * @return A Map&lt;WaySegment to modify from way1, List&lt;WaySegments from
+     *         way2&gt; to make the segment conform to &gt;
+     */
+    private static Map<IWaySegment<Node, Way>, List<IWaySegment<Node, Way>>> checkWayDuplications(Way way1,
+            Function<IWaySegment<Node, Way>, List<IWaySegment<Node, Way>>> candidates) {
+        final var waySegments1 = way1.getNodePairs(false).stream()
+                .map(pair -> IWaySegment.forNodePair(way1, pair.a, pair.b)).toList();
         final var partials = new TreeMap<IWaySegment<Node, Way>, List<IWaySegment<Node, Way>>>();
         final BiPredicate<IWaySegment<Node, Way>, IWaySegment<Node, Way>> connected = (segment1,
                 segment2) -> segment1.getFirstNode().equals(segment2.getFirstNode())
@@ -651,7 +739,7 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
                         || segment1.getFirstNode().equals(segment2.getSecondNode())
                         || segment1.getSecondNode().equals(segment2.getSecondNode());
         for (final var segment1 : waySegments1) {
-            final var replacements = waySegments2.stream().filter(seg2 -> connected.test(segment1, seg2))
+            final var replacements = candidates.apply(segment1).stream().filter(seg2 -> connected.test(segment1, seg2))
                     .filter(seg -> {
                         final var node2 = segment1.getFirstNode().equals(seg.getFirstNode())
                                 || segment1.getSecondNode().equals(seg.getFirstNode()) ? seg.getFirstNode()
@@ -685,12 +773,21 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
 
         final var tasks = new ArrayList<ForkJoinTask<DataSet>>();
         final var pool = MapWithAIDataUtils.getForkJoinPool();
-        for (var map : new ArrayList<>(MapWithAILayerInfo.getInstance().getLayers())) {
-            tasks.add(pool.submit(
-                    MapWithAIDataUtils.download(monitor, bounds, map, MapWithAIDataUtils.MAXIMUM_SIDE_DIMENSIONS)));
+        final var policy = SourcePriorityPolicy.getDefault();
+        final var layers = new ArrayList<>(MapWithAILayerInfo.getInstance().getLayers());
+        // Merge the highest priority sources first, so that their duplicate areas are kept
+        layers.sort(Comparator.comparingInt((MapWithAIInfo info) -> policy.getRank(info)));
+        for (var map : layers) {
+            final var download = MapWithAIDataUtils.download(monitor, bounds, map,
+                    MapWithAIDataUtils.MAXIMUM_SIDE_DIMENSIONS);
+            tasks.add(pool.submit(ForkJoinTask
+                    .adapt(() -> CleanupMetrics.measure(CleanupMetrics.DOWNLOAD, map.getName(), download::invoke))));
         }
+        final var footprints = new FootprintIndex(dataSet);
         for (var task : tasks) {
-            dataSet.mergeFrom(task.join());
+            final var downloaded = task.join();
+            CleanupMetrics.measure(CleanupMetrics.DOWNLOAD, "merge", dataSet,
+                    () -> footprints.merge(downloaded, policy));
         }
         dataSet.setUploadPolicy(UploadPolicy.BLOCKED);
         return dataSet;
@@ -720,7 +817,9 @@ public class GetDataRunnable extends RecursiveTask<DataSet> {
         return addTag(dataSet, SOURCE_TAG_KEY, source);
     }
 
-    private static DataSet addTag(DataSet dataSet, String key, String value) {
+    private static DataSet addTag(DataSet dataSet, String tagKey, String tagValue) {
+        final var key = TagInterner.intern(tagKey);
+        final var value = TagInterner.intern(tagValue);
         dataSet.getNodes().stream().filter(p -> checkIfMapWithAISourceShouldBeAdded(p, key))
                 .filter(node -> node.getReferrers().isEmpty()).forEach(node -> node.put(key, value));
         dataSet.getWays().stream().filter(p -> checkIfMapWithAISourceShouldBeAdded(p, key))
@@ -43,6 +43,7 @@ import org.openstreetmap.josm.plugins.mapwithai.MapWithAIPlugin;
 import org.openstreetmap.josm.plugins.mapwithai.commands.MapWithAIAddCommand;
 import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIInfo;
 import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAILayerInfo;
+import org.openstreetmap.josm.plugins.mapwithai.tools.TagInterner;
 import org.openstreetmap.josm.tools.ExceptionUtil;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
@@ -100,7 +101,7 @@ public final class MapWithAIDataUtils {
      */
     public static void addSourceTags(DataSet dataSet, String primaryKey, String source) {
         dataSet.allPrimitives().stream().filter(p -> p.hasKey(primaryKey) && !p.hasKey("source")).forEach(p -> {
-            p.put("source", source);
+            p.put(TagInterner.intern("source"), TagInterner.intern(source));
             p.save();
         });
     }
@@ -195,7 +196,9 @@ public final class MapWithAIDataUtils {
     private static void mergeDataSets(final DataSet original, final List<ForkJoinTask<DataSet>> dataSetsToMerge) {
         for (var ds : dataSetsToMerge) {
             try {
-                original.mergeFrom(ds.join());
+                final var downloaded = ds.join();
+                original.mergeFrom(downloaded);
+                CleanupMetrics.transfer(downloaded, original);
             } catch (RuntimeException e) {
                 final String notificationMessage;
                 Throwable cause = e.getCause();
@@ -362,6 +365,7 @@ public final class MapWithAIDataUtils {
                 lock.lock();
                 try {
                     mapWithAISet.update(() -> mapWithAISet.mergeFrom(newData));
+                    CleanupMetrics.transfer(newData, mapWithAISet);
                     GetDataRunnable.cleanup(mapWithAISet, null, null);
                 } finally {
                     lock.unlock();
@@ -478,13 +482,10 @@ public final class MapWithAIDataUtils {
      * object is an object with tags or not a member of another object.
      *
      * @return The number of objects added from the MapWithAI data layer
+     * @see AddedObjectsCounter
      */
     public static Long getAddedObjects() {
-        return Optional
-                .ofNullable(GuiHelper.runInEDTAndWaitAndReturn(() -> UndoRedoHandler.getInstance().getUndoCommands()))
-                .map(commands -> commands.stream().filter(MapWithAIAddCommand.class::isInstance)
-                        .map(MapWithAIAddCommand.class::cast).mapToLong(MapWithAIAddCommand::getAddedObjects).sum())
-                .orElse(0L);
+        return AddedObjectsCounter.getInstance().getCount();
     }
 
     /**
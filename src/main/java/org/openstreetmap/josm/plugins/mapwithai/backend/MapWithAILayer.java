@@ -6,6 +6,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.Icon;
+import javax.swing.JButton;
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -43,6 +44,7 @@ import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.datatransfer.ClipboardUtils;
 import org.openstreetmap.josm.gui.dialogs.layer.DuplicateAction;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.MainLayerManager.ActiveLayerChangeEvent;
@@ -53,6 +55,7 @@ import org.openstreetmap.josm.gui.mappaint.StyleSource;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.gui.widgets.HtmlPanel;
 import org.openstreetmap.josm.plugins.mapwithai.MapWithAIPlugin;
+import org.openstreetmap.josm.plugins.mapwithai.commands.ConflationDecisionReport;
 import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIInfo;
 import org.openstreetmap.josm.plugins.mapwithai.tools.BlacklistUtils;
 import org.openstreetmap.josm.plugins.mapwithai.tools.MapPaintUtils;
@@ -78,6 +81,7 @@ public class MapWithAILayer extends OsmDataLayer implements ActiveLayerChangeLis
     private boolean continuousDownload = true;
     private final Lock lock;
     private final HashSet<MapWithAIInfo> downloadedInfo = new HashSet<>();
+    private final CleanupMetrics.History metrics = new CleanupMetrics.History();
 
     /**
      * Create a new MapWithAI layer
@@ -94,6 +98,7 @@ public class MapWithAILayer extends OsmDataLayer implements ActiveLayerChangeLis
         MainApplication.getLayerManager().addActiveLayerChangeListener(this);
         new ContinuousDownloadAction(this); // Initialize data source listeners
         Config.getPref().addKeyPreferenceChangeListener("download.mapwithai.data", this);
+        CleanupMetrics.addHistory(data, metrics);
     }
 
     @Override
@@ -148,6 +153,27 @@ public class MapWithAILayer extends OsmDataLayer implements ActiveLayerChangeLis
                 panel.add(new JLabel(tr("Switch Layers: {0}", switchLayers), SwingConstants.CENTER),
                         GBC.eop().insets(15, 0, 0, 0));
             }
+            final var measurements = metrics.getMeasurements();
+            if (!measurements.isEmpty()) {
+                final long cleanupMillis = measurements.stream()
+                        .filter(measurement -> CleanupMetrics.CLEANUP.equals(measurement.phase()))
+                        .mapToLong(CleanupMetrics.Measurement::nanos).sum() / 1_000_000;
+                panel.add(new JLabel(tr("Total Cleanup Time: {0} ms ({1} measurements)", cleanupMillis,
+                        measurements.size()), SwingConstants.CENTER), GBC.eop().insets(15, 0, 0, 0));
+                final var copyMetrics = new JButton(tr("Copy download and cleanup metrics"));
+                copyMetrics.addActionListener(e -> ClipboardUtils.copyString(metrics.getReport()));
+                panel.add(copyMetrics, GBC.eop().insets(15, 0, 0, 0));
+            }
+            // The decisions for the layer that data is added to
+            final var target = MapWithAIMoveAction.getOsmDataLayer();
+            final var decisions = target == null ? null : ConflationDecisionReport.getInstance(target.getDataSet());
+            if (decisions != null && decisions.getDecisionCount() > 0) {
+                panel.add(new JLabel(tr("Deferred conflation decisions: {0}", decisions.getDecisionCount()),
+                        SwingConstants.CENTER), GBC.eop().insets(15, 0, 0, 0));
+                final var copyDecisions = new JButton(tr("Copy deferred conflation decisions"));
+                copyDecisions.addActionListener(e -> ClipboardUtils.copyString(decisions.getReport()));
+                panel.add(copyDecisions, GBC.eop().insets(15, 0, 0, 0));
+            }
         }
         return p;
     }
@@ -238,6 +264,7 @@ public class MapWithAILayer extends OsmDataLayer implements ActiveLayerChangeLis
     @Override
     public synchronized void destroy() {
         Config.getPref().removeKeyPreferenceChangeListener("download.mapwithai.data", this);
+        CleanupMetrics.removeHistory(getDataSet());
         super.destroy();
         MainApplication.getLayerManager().removeActiveLayerChangeListener(this);
     }
@@ -5,6 +5,7 @@ import static org.openstreetmap.josm.gui.help.HelpUtil.ht;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.InputEvent;
@@ -87,9 +88,18 @@ public class MapWithAIMoveAction extends JosmAction {
                     && (MapWithAIDataUtils.getAddedObjects() < maxAddition * MAX_ADD_MULTIPLIER
                             || (maxAddition == 0 && ExpertToggleAction.isExpert()))) {
                 final MapWithAIAddCommand command = new MapWithAIAddCommand(mapWithAI, editLayer, selected);
-                GuiHelper.runInEDTAndWait(() -> UndoRedoHandler.getInstance().add(command));
-                if (MapWithAIPreferenceHelper.isSwitchLayers()) {
-                    MainApplication.getLayerManager().setActiveLayer(editLayer);
+                final Runnable add = () -> {
+                    // Plan the command off of the EDT, so that only applying it blocks the UI
+                    command.plan();
+                    GuiHelper.runInEDTAndWait(() -> UndoRedoHandler.getInstance().add(command));
+                    if (MapWithAIPreferenceHelper.isSwitchLayers()) {
+                        MainApplication.getLayerManager().setActiveLayer(editLayer);
+                    }
+                };
+                if (SwingUtilities.isEventDispatchThread()) {
+                    MainApplication.worker.execute(add);
+                } else {
+                    add.run();
                 }
             } else if (MapWithAIDataUtils.getAddedObjects() >= maxAddition * MAX_ADD_MULTIPLIER) {
                 createTooManyAdditionsNotification(maxAddition);
@@ -34,8 +34,10 @@ public class MapWithAIObject implements CommandQueueListener, Destroyable {
         mapWithAIObjects.setBackground(MapStatus.PROP_BACKGROUND_COLOR.get());
         mapWithAIObjects.setEditable(false);
         statusLines = new ArrayList<>();
-        UndoRedoHandler.getInstance().addCommandQueueListener(this);
+        // This creates the counter, which must be notified of changes to the command queue before this is,
+        // so that the count is already updated when this listener sets the text
         setText();
+        UndoRedoHandler.getInstance().addCommandQueueListener(this);
     }
 
     /**
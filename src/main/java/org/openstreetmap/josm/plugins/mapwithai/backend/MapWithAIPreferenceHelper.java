@@ -26,10 +26,21 @@ public final class MapWithAIPreferenceHelper {
     private static final String MAXIMUMSELECTION = MapWithAIPlugin.NAME.concat(".maximumselection");
     private static final CachingProperty<Double> PROPERTY_DUPLICATE_NODE_DISTANCE = new DoubleProperty(
             MapWithAIPlugin.NAME.concat(".duplicatenodedistance"), 0.6).cached();
+    private static final CachingProperty<Double> PROPERTY_COORDINATE_PRECISION = new DoubleProperty(
+            MapWithAIPlugin.NAME.concat(".coordinateprecision"), 1e-7).cached();
+    private static final CachingProperty<Double> PROPERTY_DUPLICATE_FOOTPRINT_OVERLAP = new DoubleProperty(
+            MapWithAIPlugin.NAME.concat(".duplicatefootprintoverlap"), 0.5).cached();
+    private static final String SOURCE_PRIORITY = MapWithAIPlugin.NAME.concat(".sourcepriority");
     private static final IntegerProperty PROPERTY_MAXIMUM_SELECTION = new IntegerProperty(MAXIMUMSELECTION, 100);
     private static final BooleanProperty PROPERTY_MERGEBUILDINGADDRESSES = new BooleanProperty(MERGEBUILDINGADDRESSES,
             true);
     private static final BooleanProperty PROPERTY_AUTOSWITCHLAYERS = new BooleanProperty(AUTOSWITCHLAYERS, true);
+    private static final BooleanProperty PROPERTY_PARALLEL_CLEANUP = new BooleanProperty(
+            MapWithAIPlugin.NAME.concat(".parallelcleanup"), true);
+    private static final BooleanProperty PROPERTY_INTERACTIVE_CONFLATION = new BooleanProperty(
+            MapWithAIPlugin.NAME.concat(".interactiveconflation"), true);
+    private static final BooleanProperty PROPERTY_DETAILED_METRICS = new BooleanProperty(
+            MapWithAIPlugin.NAME.concat(".detailedmetrics"), false);
 
     private MapWithAIPreferenceHelper() {
         // Hide the constructor
@@ -86,6 +97,36 @@ public final class MapWithAIPreferenceHelper {
         return PROPERTY_MERGEBUILDINGADDRESSES.get();
     }
 
+    /**
+     * Check if conflation commands may ask the user for decisions when data is
+     * added
+     *
+     * @return {@code true} if conflation may show dialogs, {@code false} if it
+     *         should use default decisions and defer the rest
+     */
+    public static boolean isInteractiveConflation() {
+        return PROPERTY_INTERACTIVE_CONFLATION.get();
+    }
+
+    /**
+     * Check if the primitive counters of download and cleanup stages should be
+     * recorded even when no JFR recording is running
+     *
+     * @return {@code true} if the primitive counters should always be recorded
+     */
+    public static boolean isDetailedMetrics() {
+        return PROPERTY_DETAILED_METRICS.get();
+    }
+
+    /**
+     * Check if downloaded data should be cleaned up in parallel spatial partitions
+     *
+     * @return {@code true} if cleanup detection should be split across threads
+     */
+    public static boolean isParallelCleanup() {
+        return PROPERTY_PARALLEL_CLEANUP.get();
+    }
+
     /**
      * Check if the user wants to switch layers automatically after adding data.
      *
@@ -150,6 +191,36 @@ public final class MapWithAIPreferenceHelper {
         }
     }
 
+    /**
+     * Set whether or not conflation commands may ask the user for decisions
+     *
+     * @param interactive {@code true} to allow dialogs, {@code false} to use
+     *                    default decisions and defer the rest
+     */
+    public static void setInteractiveConflation(boolean interactive) {
+        PROPERTY_INTERACTIVE_CONFLATION.put(interactive);
+    }
+
+    /**
+     * Set whether or not the primitive counters of download and cleanup stages are
+     * always recorded
+     *
+     * @param detailed {@code true} to always record the primitive counters
+     */
+    public static void setDetailedMetrics(boolean detailed) {
+        PROPERTY_DETAILED_METRICS.put(detailed);
+    }
+
+    /**
+     * Set whether or not downloaded data is cleaned up in parallel spatial
+     * partitions
+     *
+     * @param parallel {@code true} to split cleanup detection across threads
+     */
+    public static void setParallelCleanup(boolean parallel) {
+        PROPERTY_PARALLEL_CLEANUP.put(parallel);
+    }
+
     /**
      * Set whether or not a we switch from the MapWithAI layer to an OSM data layer
      *
@@ -175,6 +246,47 @@ public final class MapWithAIPreferenceHelper {
         return PROPERTY_DUPLICATE_NODE_DISTANCE.get();
     }
 
+    /**
+     * Get the overlap (intersection over union) at which areas from different
+     * sources are considered duplicates
+     *
+     * @return The overlap, from 0 to 1. If greater than 1, no areas are
+     *         duplicates.
+     */
+    public static double getDuplicateFootprintOverlap() {
+        return PROPERTY_DUPLICATE_FOOTPRINT_OVERLAP.get();
+    }
+
+    /**
+     * Get the user defined source priority
+     *
+     * @return The sources (source tag values or source names), highest priority
+     *         first. Sources that are not listed have a lower priority, in the
+     *         order of the MapWithAI sources.
+     */
+    public static List<String> getSourcePriority() {
+        return Config.getPref().getList(SOURCE_PRIORITY, Collections.emptyList());
+    }
+
+    /**
+     * Set the user defined source priority
+     *
+     * @param sources The sources, highest priority first
+     */
+    public static void setSourcePriority(List<String> sources) {
+        Config.getPref().putList(SOURCE_PRIORITY, sources);
+    }
+
+    /**
+     * Get the precision used to find vertices that share a coordinate when
+     * parsing data
+     *
+     * @return The precision in degrees. If not positive, vertices are not shared.
+     */
+    public static double getCoordinatePrecision() {
+        return PROPERTY_COORDINATE_PRECISION.get();
+    }
+
     /**
      * Get the tags to replace
      *
@@ -0,0 +1,119 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * Run read-only cleanup checks over spatial partitions (tiles) of a dataset in
+ * parallel.
+ * <p>
+ * Cleanup runs inside {@link org.openstreetmap.josm.data.osm.DataSet#update},
+ * so the dataset cannot be modified (or even locked) from other threads.
+ * Instead, each tile is checked in parallel, and the matches are returned in
+ * the original order. Callers then apply the modifications on the calling
+ * thread, rechecking any match that may depend upon an earlier modification
+ * (usually a feature that crosses into another tile). This keeps the result
+ * identical to a single-threaded cleanup.
+ *
+ * @author Taylor Smock
+ */
+final class PartitionedCleanup {
+    /** Below this size, the overhead of partitioning is larger than the check */
+    static final int MINIMUM_PARTITION_SIZE = 256;
+
+    private PartitionedCleanup() {
+        // Hide the constructor
+    }
+
+    /**
+     * Find the primitives that match a read-only check
+     *
+     * @param primitives The primitives to check
+     * @param check      The check. This <i>must not</i> modify the dataset, and
+     *                   it must not call methods that lock the dataset.
+     * @param <T>        The primitive type
+     * @return The primitives that matched, in the same order as
+     *         {@code primitives}
+     */
+    static <T extends OsmPrimitive> List<T> detect(List<T> primitives, Predicate<? super T> check) {
+        if (!MapWithAIPreferenceHelper.isParallelCleanup() || primitives.size() < MINIMUM_PARTITION_SIZE) {
+            return primitives.stream().filter(check).toList();
+        }
+        final int tilesPerSide = (int) Math
+                .ceil(Math.sqrt(4d * MapWithAIDataUtils.getForkJoinPool().getParallelism()));
+        final var matched = new boolean[primitives.size()];
+        final var tasks = new ArrayList<ForkJoinTask<?>>();
+        for (var tile : partition(primitives, tilesPerSide)) {
+            tasks.add(MapWithAIDataUtils.getForkJoinPool().submit(() -> {
+                for (int i : tile) {
+                    matched[i] = check.test(primitives.get(i));
+                }
+            }));
+        }
+        // Joining the tasks makes the writes to matched visible to this thread
+        tasks.forEach(ForkJoinTask::join);
+        return IntStream.range(0, matched.length).filter(i -> matched[i]).mapToObj(primitives::get).toList();
+    }
+
+    /**
+     * Partition primitives into a grid of tiles, using the center of the
+     * primitive bbox. This also computes (and caches) the bbox of every
+     * primitive, so that the checks do not have to.
+     *
+     * @param primitives   The primitives to partition
+     * @param tilesPerSide The number of tiles along each side of the grid
+     * @return The indexes of the primitives in each non-empty tile, in
+     *         ascending order
+     */
+    static List<int[]> partition(List<? extends OsmPrimitive> primitives, int tilesPerSide) {
+        final var centers = new LatLon[primitives.size()];
+        double minLat = Double.POSITIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        for (var i = 0; i < centers.length; i++) {
+            final var bbox = primitives.get(i).getBBox();
+            if (bbox.isValid()) {
+                centers[i] = bbox.getCenter();
+                minLat = Math.min(minLat, centers[i].lat());
+                minLon = Math.min(minLon, centers[i].lon());
+                maxLat = Math.max(maxLat, centers[i].lat());
+                maxLon = Math.max(maxLon, centers[i].lon());
+            }
+        }
+        final double latStep = Math.max(maxLat - minLat, Double.MIN_NORMAL) / tilesPerSide;
+        final double lonStep = Math.max(maxLon - minLon, Double.MIN_NORMAL) / tilesPerSide;
+        final var counts = new int[tilesPerSide * tilesPerSide];
+        final var tiles = new int[centers.length];
+        for (var i = 0; i < centers.length; i++) {
+            if (centers[i] != null) {
+                final int x = Math.min(tilesPerSide - 1, (int) ((centers[i].lon() - minLon) / lonStep));
+                final int y = Math.min(tilesPerSide - 1, (int) ((centers[i].lat() - minLat) / latStep));
+                tiles[i] = y * tilesPerSide + x;
+            }
+            counts[tiles[i]]++;
+        }
+        final var partitions = new int[counts.length][];
+        for (var tile = 0; tile < counts.length; tile++) {
+            partitions[tile] = new int[counts[tile]];
+            counts[tile] = 0;
+        }
+        for (var i = 0; i < tiles.length; i++) {
+            partitions[tiles[i]][counts[tiles[i]]++] = i;
+        }
+        final var nonEmpty = new ArrayList<int[]>();
+        for (var partition : partitions) {
+            if (partition.length > 0) {
+                nonEmpty.add(partition);
+            }
+        }
+        return nonEmpty;
+    }
+}
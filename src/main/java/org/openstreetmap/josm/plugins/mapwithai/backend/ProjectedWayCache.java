@@ -0,0 +1,125 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Cache the projected coordinates of ways as primitive arrays. This is
+ * intended to live for a single cleanup run, so that each stage does not have
+ * to copy the node list and look up {@link EastNorth} objects for every way.
+ * Entries are checked against the current nodes of the way, so ways that are
+ * modified between stages are reprojected.
+ *
+ * @author Taylor Smock
+ */
+final class ProjectedWayCache {
+    /**
+     * The nodes and coordinates of a way at the time it was cached
+     *
+     * @param nodes       The nodes of the way
+     * @param coordinates The interleaved east/north coordinates of the nodes
+     */
+    private record Entry(Node[] nodes, double[] coordinates) {
+        boolean isValid(Way way) {
+            if (way.getNodesCount() != nodes.length) {
+                return false;
+            }
+            for (var i = 0; i < nodes.length; i++) {
+                if (way.getNode(i) != nodes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Used for ways that have nodes without coordinates */
+    private static final double[] NO_COORDINATES = new double[0];
+
+    private final Map<Way, Entry> cache = new HashMap<>();
+
+    /**
+     * Get the projected coordinates of a way
+     *
+     * @param way The way to get the coordinates for
+     * @return The interleaved east/north coordinates ({@code [e0, n0, e1, n1,
+     *         ...]}), or {@code null} if the way is incomplete or a node does not
+     *         have a location
+     */
+    double[] get(Way way) {
+        var entry = cache.get(way);
+        if (entry == null || !entry.isValid(way)) {
+            entry = project(way);
+            cache.put(way, entry);
+        }
+        return entry.coordinates() == NO_COORDINATES ? null : entry.coordinates();
+    }
+
+    private static Entry project(Way way) {
+        final var nodes = new Node[way.isIncomplete() ? 0 : way.getNodesCount()];
+        final var coordinates = new double[2 * nodes.length];
+        var valid = !way.isIncomplete();
+        for (var i = 0; i < nodes.length; i++) {
+            nodes[i] = way.getNode(i);
+            final EastNorth eastNorth = nodes[i].getEastNorth();
+            if (eastNorth == null) {
+                valid = false;
+            } else {
+                coordinates[2 * i] = eastNorth.east();
+                coordinates[2 * i + 1] = eastNorth.north();
+            }
+        }
+        return new Entry(nodes, valid ? coordinates : NO_COORDINATES);
+    }
+
+    /**
+     * Get the distance from a point to the closest segment of a way
+     *
+     * @param east        The east coordinate of the point
+     * @param north       The north coordinate of the point
+     * @param coordinates The coordinates of the way (see {@link #get(Way)})
+     * @return The distance (in {@link EastNorth} units), or {@link Double#NaN} if
+     *         the way has fewer than two nodes
+     * @see org.openstreetmap.josm.tools.Geometry#getDistanceWayNode
+     */
+    static double distance(double east, double north, double[] coordinates) {
+        var smallest = Double.MAX_VALUE;
+        for (var i = 0; i + 3 < coordinates.length; i += 2) {
+            smallest = Math.min(smallest, segmentDistanceSq(coordinates[i], coordinates[i + 1], coordinates[i + 2],
+                    coordinates[i + 3], east, north));
+        }
+        return smallest == Double.MAX_VALUE ? Double.NaN : Math.sqrt(smallest);
+    }
+
+    /**
+     * Get the squared distance from a point to a segment
+     *
+     * @see org.openstreetmap.josm.tools.Geometry#closestPointToSegment
+     */
+    private static double segmentDistanceSq(double east1, double north1, double east2, double north2, double east,
+            double north) {
+        final double segmentEast = east2 - east1;
+        final double segmentNorth = north2 - north1;
+        double closestEast = east1;
+        double closestNorth = north1;
+        if (segmentEast != 0 || segmentNorth != 0) {
+            final double offset = ((east - east1) * segmentEast + (north - north1) * segmentNorth)
+                    / (segmentEast * segmentEast + segmentNorth * segmentNorth);
+            if (offset >= 1) {
+                closestEast = east2;
+                closestNorth = north2;
+            } else if (offset > 0) {
+                closestEast = east1 + segmentEast * offset;
+                closestNorth = north1 + segmentNorth * offset;
+            }
+        }
+        final double dEast = east - closestEast;
+        final double dNorth = north - closestNorth;
+        return dEast * dEast + dNorth * dNorth;
+    }
+}
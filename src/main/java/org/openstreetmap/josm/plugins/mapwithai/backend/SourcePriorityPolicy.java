@@ -0,0 +1,98 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.plugins.mapwithai.MapWithAIPlugin;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIInfo;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAILayerInfo;
+
+/**
+ * Decide which source wins when sources have duplicate features. A lower rank
+ * is a higher priority.
+ *
+ * @author Taylor Smock
+ */
+public final class SourcePriorityPolicy {
+    /** The rank of sources that are not known to the policy */
+    public static final int UNKNOWN_RANK = Integer.MAX_VALUE;
+
+    private final Map<String, Integer> ranks = new HashMap<>();
+
+    /**
+     * Create a new policy
+     *
+     * @param sources The sources (source tag values or source names), highest
+     *                priority first
+     */
+    public SourcePriorityPolicy(List<String> sources) {
+        for (var source : sources) {
+            if (source != null) {
+                ranks.putIfAbsent(source, ranks.size());
+            }
+        }
+    }
+
+    /**
+     * Get the current policy. Sources in
+     * {@link MapWithAIPreferenceHelper#getSourcePriority()} come first, followed
+     * by the MapWithAI sources in their configured order.
+     *
+     * @return The policy
+     */
+    public static SourcePriorityPolicy getDefault() {
+        final var sources = new ArrayList<>(MapWithAIPreferenceHelper.getSourcePriority());
+        for (var info : MapWithAILayerInfo.getInstance().getLayers()) {
+            sources.add(info.getSource());
+            sources.add(info.getName());
+        }
+        return new SourcePriorityPolicy(sources);
+    }
+
+    /**
+     * Get the source of a primitive
+     *
+     * @param primitive The primitive
+     * @return The {@link GetDataRunnable#MAPWITHAI_SOURCE_TAG_KEY} value, the
+     *         {@code source} value, or {@code null}
+     */
+    public static String getSource(OsmPrimitive primitive) {
+        final var source = primitive.get(GetDataRunnable.MAPWITHAI_SOURCE_TAG_KEY);
+        return source != null ? source : primitive.get("source");
+    }
+
+    /**
+     * Get the rank of a source
+     *
+     * @param source The source
+     * @return The rank, or {@link #UNKNOWN_RANK}
+     */
+    public int getRank(String source) {
+        return source == null ? UNKNOWN_RANK : ranks.getOrDefault(source, UNKNOWN_RANK);
+    }
+
+    /**
+     * Get the rank of a primitive
+     *
+     * @param primitive The primitive
+     * @return The rank of the primitive source
+     */
+    public int getRank(OsmPrimitive primitive) {
+        return getRank(getSource(primitive));
+    }
+
+    /**
+     * Get the rank of a MapWithAI source
+     *
+     * @param info The source
+     * @return The best rank of the source tag or name of the source
+     */
+    public int getRank(MapWithAIInfo info) {
+        return Math.min(getRank(info.getSource()),
+                getRank(info.getName() == null ? MapWithAIPlugin.NAME : info.getName()));
+    }
+}
@@ -0,0 +1,321 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+import org.openstreetmap.josm.data.IQuadBucketType;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.QuadBuckets;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.plugins.mapwithai.tools.DataSetIndexes;
+import org.openstreetmap.josm.tools.Destroyable;
+
+/**
+ * An index of way fingerprints (bbox, distinct node count, and tag digest) for
+ * a dataset. This is kept up to date with {@link DataSetListener} events, so
+ * that checking if a MapWithAI way has already been added to an OSM layer is
+ * a lookup instead of a comparison with every nearby way.
+ *
+ * @author Taylor Smock
+ */
+public final class WayFingerprintIndex implements DataSetListener, Destroyable {
+    /**
+     * The fingerprint of a way
+     *
+     * @param way       The way
+     * @param bbox      The bbox of the way when the fingerprint was created
+     * @param tagDigest The digest of the way tags (see {@link #tagDigest})
+     * @param nodeCount The number of distinct nodes in the way
+     */
+    private record WayFingerprint(Way way, BBox bbox, int tagDigest, int nodeCount) implements IQuadBucketType {
+        @Override
+        public BBox getBBox() {
+            return bbox;
+        }
+    }
+
+    private static final DataSetIndexes<WayFingerprintIndex> INDEXES = new DataSetIndexes<>(
+            WayFingerprintIndex::new);
+
+    private final DataSet ds;
+    private final QuadBuckets<WayFingerprint> fingerprints = new QuadBuckets<>();
+    private final Map<Way, WayFingerprint> wayFingerprints = new HashMap<>();
+
+    private WayFingerprintIndex(DataSet dataSet) {
+        this.ds = dataSet;
+        final var lock = dataSet.getReadLock();
+        lock.lock();
+        try {
+            dataSet.getWays().forEach(this::update);
+            // Register while holding the read lock, so that no modifications are missed
+            dataSet.addDataSetListener(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the index for a dataset, creating it if necessary
+     *
+     * @param dataSet The dataset to get the index for
+     * @return The index for the dataset
+     */
+    public static WayFingerprintIndex getIndex(DataSet dataSet) {
+        return INDEXES.get(dataSet);
+    }
+
+    /**
+     * A read-only copy of an index, which can be searched from many threads at
+     * once without locking. Changes to the dataset after the snapshot was taken
+     * are not seen, except that deleted ways are not returned.
+     */
+    public static final class Snapshot {
+        /** The size of a grid cell, in degrees */
+        private static final double CELL_SIZE = 0.01;
+        /** Bboxes covering more cells than this are not put into the grid */
+        private static final long MAX_CELLS = 256;
+
+        private final Map<Long, List<WayFingerprint>> cells = new HashMap<>();
+        /** The fingerprints that cover too many cells, which are checked for every search */
+        private final List<WayFingerprint> large = new ArrayList<>();
+        private final List<WayFingerprint> all;
+
+        private Snapshot(Collection<WayFingerprint> fingerprints) {
+            this.all = List.copyOf(fingerprints);
+            for (var fingerprint : this.all) {
+                if (cellCount(fingerprint.bbox()) > MAX_CELLS) {
+                    large.add(fingerprint);
+                } else {
+                    forEachCell(fingerprint.bbox(),
+                            cell -> cells.computeIfAbsent(cell, ignored -> new ArrayList<>()).add(fingerprint));
+                }
+            }
+        }
+
+        /**
+         * Get the ways that may be duplicated by another way, like
+         * {@link WayFingerprintIndex#getCandidates(Way, double)}
+         *
+         * @param way    The way to search for (usually from another dataset)
+         * @param buffer The buffer to add around the way when searching, in degrees
+         * @return The possible duplicates
+         */
+        public List<Way> getCandidates(Way way, double buffer) {
+            final var searchBBox = new BBox();
+            searchBBox.addPrimitive(way, buffer);
+            if (!searchBBox.isValid()) {
+                return List.of();
+            }
+            final int digest = tagDigest(way);
+            final int nodeCount = way.getNodesCount();
+            if (cellCount(searchBBox) > MAX_CELLS) {
+                return all.stream().filter(fingerprint -> isCandidate(fingerprint, searchBBox, digest, nodeCount))
+                        .map(WayFingerprint::way).toList();
+            }
+            // A fingerprint may be in several of the searched cells
+            final var candidates = new LinkedHashSet<Way>();
+            forEachCell(searchBBox, cell -> addCandidates(cells.getOrDefault(cell, List.of()), candidates,
+                    searchBBox, digest, nodeCount));
+            addCandidates(large, candidates, searchBBox, digest, nodeCount);
+            return List.copyOf(candidates);
+        }
+
+        private static void addCandidates(List<WayFingerprint> fingerprints, Collection<Way> candidates,
+                BBox searchBBox, int digest, int nodeCount) {
+            for (var fingerprint : fingerprints) {
+                if (isCandidate(fingerprint, searchBBox, digest, nodeCount)) {
+                    candidates.add(fingerprint.way());
+                }
+            }
+        }
+
+        private static long cellCount(BBox bbox) {
+            return (cell(bbox.getBottomRightLon()) - cell(bbox.getTopLeftLon()) + 1)
+                    * (cell(bbox.getTopLeftLat()) - cell(bbox.getBottomRightLat()) + 1);
+        }
+
+        private static long cell(double degrees) {
+            return (long) Math.floor(degrees / CELL_SIZE);
+        }
+
+        private static void forEachCell(BBox bbox, LongConsumer consumer) {
+            for (long x = cell(bbox.getTopLeftLon()); x <= cell(bbox.getBottomRightLon()); x++) {
+                for (long y = cell(bbox.getBottomRightLat()); y <= cell(bbox.getTopLeftLat()); y++) {
+                    consumer.accept((x << 32) ^ (y & 0xffff_ffffL));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the ways that may be duplicated by another way. The returned ways have
+     * the same tags (ignoring {@link GetDataRunnable#MAPWITHAI_SOURCE_TAG_KEY}),
+     * no more distinct nodes than the searched way, and lie within the bbox of the
+     * searched way.
+     * <p>
+     * This locks the index, so use {@link #snapshot()} when searching from many
+     * threads.
+     *
+     * @param way    The way to search for (usually from another dataset)
+     * @param buffer The buffer to add around the way when searching, in degrees
+     * @return The possible duplicates
+     */
+    public synchronized List<Way> getCandidates(Way way, double buffer) {
+        final var searchBBox = new BBox();
+        searchBBox.addPrimitive(way, buffer);
+        if (!searchBBox.isValid()) {
+            return List.of();
+        }
+        final int digest = tagDigest(way);
+        final int nodeCount = way.getNodesCount();
+        return fingerprints.search(searchBBox).stream()
+                .filter(fingerprint -> isCandidate(fingerprint, searchBBox, digest, nodeCount))
+                .map(WayFingerprint::way).toList();
+    }
+
+    /**
+     * Get a read-only copy of the index, for searching from many threads
+     *
+     * @return The copy of the index
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(wayFingerprints.values());
+    }
+
+    private static boolean isCandidate(WayFingerprint fingerprint, BBox searchBBox, int digest, int nodeCount) {
+        return fingerprint.tagDigest() == digest && fingerprint.nodeCount() <= nodeCount
+                && searchBBox.bounds(fingerprint.bbox()) && !fingerprint.way().isDeleted();
+    }
+
+    /**
+     * Get a digest of the tags of a primitive. This does not copy the tag map.
+     *
+     * @param primitive The primitive to get the digest for
+     * @return A digest of the tags, ignoring
+     *         {@link GetDataRunnable#MAPWITHAI_SOURCE_TAG_KEY}
+     */
+    static int tagDigest(OsmPrimitive primitive) {
+        final var digest = new int[1];
+        primitive.visitKeys((p, key, value) -> {
+            if (!GetDataRunnable.MAPWITHAI_SOURCE_TAG_KEY.equals(key)) {
+                // Same as Map.Entry#hashCode, so the digest does not depend upon key order
+                digest[0] += key.hashCode() ^ Objects.hashCode(value);
+            }
+        });
+        return digest[0];
+    }
+
+    private synchronized void update(Way way) {
+        remove(way);
+        if (way.isDeleted() || way.isIncomplete() || way.getDataSet() == null) {
+            return;
+        }
+        final var bbox = new BBox(way);
+        if (bbox.isValid()) {
+            final var fingerprint = new WayFingerprint(way, bbox, tagDigest(way), new HashSet<>(way.getNodes()).size());
+            fingerprints.add(fingerprint);
+            wayFingerprints.put(way, fingerprint);
+        }
+    }
+
+    private synchronized void remove(Way way) {
+        final var fingerprint = wayFingerprints.remove(way);
+        if (fingerprint != null) {
+            fingerprints.remove(fingerprint);
+        }
+    }
+
+    private void update(Collection<? extends OsmPrimitive> primitives) {
+        for (var primitive : primitives) {
+            if (primitive instanceof Way way) {
+                update(way);
+            }
+        }
+    }
+
+    private synchronized void rebuild() {
+        fingerprints.clear();
+        wayFingerprints.clear();
+        ds.getWays().forEach(this::update);
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        update(event.getPrimitives());
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        for (var primitive : event.getPrimitives()) {
+            if (primitive instanceof Way way) {
+                remove(way);
+            }
+        }
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        update(event.getPrimitives());
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        update(event.getNode().getParentWays());
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        update(event.getChangedWay());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Relations are not indexed
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Nothing that changes way geometry or tags
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() == null) {
+            rebuild();
+        } else {
+            event.getEvents().forEach(e -> e.visitEvent(this));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        ds.removeDataSetListener(this);
+        INDEXES.remove(ds, this);
+    }
+
+    /**
+     * Destroy all way fingerprint indexes
+     */
+    public static void destroyAll() {
+        INDEXES.destroyAll();
+    }
+}
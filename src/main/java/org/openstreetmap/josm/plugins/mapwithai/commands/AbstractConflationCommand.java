@@ -8,10 +8,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
 
@@ -21,6 +23,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.PrimitiveId;
 import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.io.DownloadPrimitivesTask;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
@@ -105,56 +108,134 @@ public abstract class AbstractConflationCommand extends Command {
         final String[] connections = ids.split(",", -1);
         final OsmPrimitive[] primitiveConnections = new OsmPrimitive[connections.length];
         for (int i = 0; i < connections.length; i++) {
-            final String member = connections[i];
-            try {
-                SimplePrimitiveId primitiveId = SimplePrimitiveId.fromString(member);
+            final SimplePrimitiveId primitiveId = parsePrimitiveId(connections[i]);
+            if (primitiveId != null) {
                 primitiveConnections[i] = dataSet.getPrimitiveById(primitiveId);
                 if (primitiveConnections[i] == null) {
                     missingPrimitives.put(i, new Pair<>(primitiveId.getUniqueId(), primitiveId.getType()));
                 }
-            } catch (IllegalArgumentException e) {
-                // Assume someone fiddled with the tag if the pattern doesn't match.
-                if (!e.getMessage().contains("n|node|w|way|r|rel|relation")) {
-                    throw e;
-                }
             }
         }
         obtainMissingPrimitives(dataSet, primitiveConnections, missingPrimitives);
         return primitiveConnections;
     }
 
+    /**
+     * Download the primitives that the values of keys point to, for many
+     * primitives at once. This should be called before conflating a large amount
+     * of data, since {@link #getPrimitives(DataSet, String)} downloads missing
+     * primitives one value at a time.
+     *
+     * @param dataSet    The dataset holding the primitives (hopefully)
+     * @param primitives The primitives (or primitive data) with the keys
+     * @param keys       The keys with ids formated like
+     *                   n&lt;NUMBER&gt;,r&lt;NUMBER&gt;,w&lt;NUMBER&gt;
+     * @return The number of primitives that were not in the dataset
+     */
+    public static int prefetchMissingPrimitives(DataSet dataSet, Collection<? extends Tagged> primitives,
+            String... keys) {
+        return prefetchMissingPrimitives(dataSet, dataSet, primitives, keys);
+    }
+
+    /**
+     * Download the primitives that the values of keys point to, for many
+     * primitives at once, into a separate dataset. The downloaded data can then be
+     * merged into the dataset later (e.g. on the EDT).
+     *
+     * @param dataSet    The dataset holding the primitives (hopefully)
+     * @param target     The dataset to download the missing primitives into
+     * @param primitives The primitives (or primitive data) with the keys
+     * @param keys       The keys with ids formated like
+     *                   n&lt;NUMBER&gt;,r&lt;NUMBER&gt;,w&lt;NUMBER&gt;
+     * @return The number of primitives that were not in the dataset
+     */
+    public static int prefetchMissingPrimitives(DataSet dataSet, DataSet target,
+            Collection<? extends Tagged> primitives, String... keys) {
+        Objects.requireNonNull(dataSet, tr("DataSet cannot be null"));
+        Objects.requireNonNull(target, tr("DataSet cannot be null"));
+        final Set<PrimitiveId> missing = new LinkedHashSet<>();
+        for (Tagged primitive : primitives) {
+            if (!primitive.hasKeys()) {
+                continue;
+            }
+            for (String key : keys) {
+                final String ids = primitive.get(key);
+                if (ids == null) {
+                    continue;
+                }
+                for (String member : ids.split(",", -1)) {
+                    final SimplePrimitiveId primitiveId = parsePrimitiveId(member);
+                    if (primitiveId != null && dataSet.getPrimitiveById(primitiveId) == null) {
+                        missing.add(primitiveId);
+                    }
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            downloadPrimitives(target, new ArrayList<>(missing));
+        }
+        return missing.size();
+    }
+
+    /**
+     * Parse a primitive id
+     *
+     * @param member The id, like n&lt;NUMBER&gt;
+     * @return The id, or {@code null} if someone fiddled with the tag
+     */
+    private static SimplePrimitiveId parsePrimitiveId(String member) {
+        try {
+            return SimplePrimitiveId.fromString(member);
+        } catch (IllegalArgumentException e) {
+            // Assume someone fiddled with the tag if the pattern doesn't match.
+            if (!e.getMessage().contains("n|node|w|way|r|rel|relation")) {
+                throw e;
+            }
+        }
+        return null;
+    }
+
     private static void obtainMissingPrimitives(DataSet dataSet, OsmPrimitive[] primitiveConnections,
             Map<Integer, Pair<Long, OsmPrimitiveType>> missingPrimitives) {
         if (!missingPrimitives.isEmpty()) {
             final Map<PrimitiveId, Integer> ids = missingPrimitives.entrySet().stream().collect(Collectors
                     .toMap(entry -> new SimplePrimitiveId(entry.getValue().a, entry.getValue().b), Map.Entry::getKey));
-            final List<PrimitiveId> toFetch = new ArrayList<>(ids.keySet());
-            final Optional<OsmDataLayer> optionalLayer = MainApplication.getLayerManager()
-                    .getLayersOfType(OsmDataLayer.class).stream().filter(layer -> layer.getDataSet().equals(dataSet))
-                    .findFirst();
-
-            final String generatedLayerName = "EvKlVarShAiAllsM generated layer";
-            final OsmDataLayer layer = optionalLayer
-                    .orElseGet(() -> new OsmDataLayer(dataSet, generatedLayerName, null));
-
-            final ProgressMonitor monitor;
-            if (GraphicsEnvironment.isHeadless()) {
-                monitor = NullProgressMonitor.INSTANCE;
-            } else {
-                monitor = new PleaseWaitProgressMonitor(tr("Downloading additional OsmPrimitives"));
-            }
-            final DownloadPrimitivesTask downloadPrimitivesTask = new DownloadPrimitivesTask(layer, toFetch, true,
-                    monitor);
-            downloadPrimitivesTask.run();
+            downloadPrimitives(dataSet, new ArrayList<>(ids.keySet()));
             for (final Map.Entry<PrimitiveId, Integer> entry : ids.entrySet()) {
                 final int index = entry.getValue();
                 final OsmPrimitive primitive = dataSet.getPrimitiveById(entry.getKey());
                 primitiveConnections[index] = primitive;
             }
+        }
+    }
 
-            if (generatedLayerName.equals(layer.getName())) {
-                layer.destroy();
-            }
+    /**
+     * Download primitives into a dataset. The primitives are fetched with as few
+     * multi-fetch calls as the API allows.
+     *
+     * @param dataSet The dataset to download the primitives into
+     * @param toFetch The primitives to download
+     */
+    private static void downloadPrimitives(DataSet dataSet, List<PrimitiveId> toFetch) {
+        final Optional<OsmDataLayer> optionalLayer = MainApplication.getLayerManager()
+                .getLayersOfType(OsmDataLayer.class).stream().filter(layer -> layer.getDataSet().equals(dataSet))
+                .findFirst();
+
+        final String generatedLayerName = "EvKlVarShAiAllsM generated layer";
+        final OsmDataLayer layer = optionalLayer.orElseGet(() -> new OsmDataLayer(dataSet, generatedLayerName, null));
+
+        final ProgressMonitor monitor;
+        if (GraphicsEnvironment.isHeadless()) {
+            monitor = NullProgressMonitor.INSTANCE;
+        } else {
+            monitor = new PleaseWaitProgressMonitor(tr("Downloading additional OsmPrimitives"));
+        }
+        final DownloadPrimitivesTask downloadPrimitivesTask = new DownloadPrimitivesTask(layer, toFetch, true,
+                monitor);
+        downloadPrimitivesTask.run();
+
+        if (generatedLayerName.equals(layer.getName())) {
+            layer.destroy();
         }
     }
 
@@ -0,0 +1,161 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import java.awt.geom.Area;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.openstreetmap.josm.data.IQuadBucketType;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.QuadBuckets;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.tools.Geometry;
+
+/**
+ * Join nodes with the areas that they are inside for a whole batch of
+ * primitives at once. Each area is converted to an east/north {@link Area} once
+ * and put in a {@link QuadBuckets} index, so a node is only tested against the
+ * areas whose bboxes contain it, and an area is never rebuilt for each node.
+ * <p>
+ * The dataset is only read while holding its read lock, so the join does not
+ * need to run on the EDT. Only the commands that are built from the result need
+ * to be run there.
+ *
+ * @author Taylor Smock
+ */
+final class AddressBuildingJoin {
+    /**
+     * A prepared area
+     *
+     * @param primitive The way or multipolygon
+     * @param bbox      The bbox of the primitive
+     * @param area      The area of the primitive, in east/north coordinates
+     */
+    private record Polygon(OsmPrimitive primitive, BBox bbox, Area area) implements IQuadBucketType {
+        @Override
+        public BBox getBBox() {
+            return bbox;
+        }
+
+        boolean contains(Node node) {
+            final var eastNorth = node.getEastNorth();
+            return eastNorth != null && area.contains(eastNorth.east(), eastNorth.north());
+        }
+    }
+
+    private final DataSet dataSet;
+    private final QuadBuckets<Polygon> polygons = new QuadBuckets<>();
+    private final Map<OsmPrimitive, Optional<Polygon>> prepared = new HashMap<>();
+
+    /**
+     * Create a new join
+     *
+     * @param dataSet The dataset to search
+     */
+    AddressBuildingJoin(DataSet dataSet) {
+        this.dataSet = dataSet;
+    }
+
+    /**
+     * Run a function with the read lock of the dataset
+     *
+     * @param <T>      The type returned
+     * @param function The function to run
+     * @return The result of the function
+     */
+    <T> T read(Function<AddressBuildingJoin, T> function) {
+        final var lock = dataSet.getReadLock();
+        lock.lock();
+        try {
+            return function.apply(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Search the dataset for all primitive types
+     *
+     * @param bbox The area to search
+     * @return The ways, relations, and nodes in the area (in that order)
+     */
+    List<OsmPrimitive> search(BBox bbox) {
+        final var found = new ArrayList<OsmPrimitive>();
+        found.addAll(dataSet.searchWays(bbox));
+        found.addAll(dataSet.searchRelations(bbox));
+        found.addAll(dataSet.searchNodes(bbox));
+        return found;
+    }
+
+    /**
+     * Get the prepared areas that a node is inside
+     *
+     * @param node The node
+     * @return The areas that contain the node
+     * @see #prepareAll(Collection)
+     */
+    List<OsmPrimitive> getContaining(Node node) {
+        final var containing = new ArrayList<OsmPrimitive>();
+        if (node.isLatLonKnown()) {
+            for (var polygon : polygons.search(node.getBBox())) {
+                if (polygon.contains(node)) {
+                    containing.add(polygon.primitive());
+                }
+            }
+        }
+        return containing;
+    }
+
+    /**
+     * Get the nodes of the dataset that are inside an area
+     *
+     * @param primitive The way or multipolygon
+     * @return The nodes inside the area, not including the nodes of its outline
+     */
+    List<Node> getNodesInside(OsmPrimitive primitive) {
+        final var polygon = prepare(primitive);
+        if (polygon == null) {
+            return List.of();
+        }
+        final var outline = new HashSet<Node>();
+        if (primitive instanceof Way way) {
+            outline.addAll(way.getNodes());
+        } else if (primitive instanceof Relation relation) {
+            relation.getMemberPrimitives(Way.class).forEach(way -> outline.addAll(way.getNodes()));
+        }
+        return dataSet.searchNodes(polygon.bbox()).stream().filter(node -> !outline.contains(node))
+                .filter(polygon::contains).toList();
+    }
+
+    /**
+     * Prepare areas so that they can be found with {@link #getContaining}
+     *
+     * @param primitives The ways and multipolygons to prepare
+     */
+    void prepareAll(Collection<? extends OsmPrimitive> primitives) {
+        new LinkedHashSet<>(primitives).forEach(this::prepare);
+    }
+
+    private Polygon prepare(OsmPrimitive primitive) {
+        return prepared.computeIfAbsent(primitive, p -> {
+            final var area = p.isIncomplete() ? null : Geometry.getAreaEastNorth(p);
+            if (area == null || area.isEmpty()) {
+                return Optional.empty();
+            }
+            final var polygon = new Polygon(p, new BBox(p.getBBox()), area);
+            polygons.add(polygon);
+            return Optional.of(polygon);
+        }).orElse(null);
+    }
+}
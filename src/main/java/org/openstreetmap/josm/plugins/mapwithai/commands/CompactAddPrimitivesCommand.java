@@ -0,0 +1,227 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import static org.openstreetmap.josm.tools.I18n.trn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.josm.command.AddPrimitivesCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+
+/**
+ * Add primitives to a dataset, like {@link AddPrimitivesCommand}, but without
+ * keeping copies of the primitives on the undo stack.
+ * <ul>
+ * <li>Before the first execution, the primitive data is kept.</li>
+ * <li>While executed, only the ids of the added primitives are kept (the
+ * dataset holds the primitives).</li>
+ * <li>After an undo, the removed primitives are kept, since redoing the command
+ * must add the same objects for later commands to be redone.</li>
+ * </ul>
+ * If any of the primitives already exist in the dataset, or relations are
+ * members of other relations, this falls back to {@link AddPrimitivesCommand}.
+ *
+ * @author Taylor Smock
+ */
+final class CompactAddPrimitivesCommand extends Command {
+    /** The data to add, until the command is executed for the first time */
+    private Collection<PrimitiveData> data;
+    /** The primitives to select after adding them */
+    private final List<SimplePrimitiveId> toSelect;
+    /** The number of primitives that are added */
+    private final int size;
+    /** Used if any of the primitives already exist in the dataset */
+    private AddPrimitivesCommand fallback;
+    /** The ids of the added primitives, by type, while the command is executed */
+    private long[][] ids;
+    /** The removed primitives, while the command is undone */
+    private List<OsmPrimitive> removed;
+
+    /**
+     * Create a new command
+     *
+     * @param data     The primitives to add
+     * @param toSelect The primitives to select after adding them
+     * @param ds       The dataset to add the primitives to
+     */
+    CompactAddPrimitivesCommand(Collection<PrimitiveData> data, Collection<? extends PrimitiveId> toSelect,
+            DataSet ds) {
+        super(ds);
+        this.data = new ArrayList<>(data);
+        // Don't keep the selection itself, since it may be primitive data
+        this.toSelect = toSelect.stream().map(id -> new SimplePrimitiveId(id.getUniqueId(), id.getType()))
+                .collect(Collectors.toUnmodifiableList());
+        this.size = data.size();
+    }
+
+    @Override
+    public boolean executeCommand() {
+        final DataSet ds = getAffectedDataSet();
+        if (fallback != null) {
+            return fallback.executeCommand();
+        }
+        if (data != null) {
+            if (data.stream().anyMatch(pd -> ds.getPrimitiveById(pd) != null || hasRelationMember(pd))) {
+                final var selected = new HashSet<>(toSelect);
+                fallback = new AddPrimitivesCommand(new ArrayList<>(data), data.stream()
+                        .filter(pd -> selected.contains(new SimplePrimitiveId(pd.getUniqueId(), pd.getType())))
+                        .collect(Collectors.toList()), ds);
+                data = null;
+                return fallback.executeCommand();
+            }
+            ds.update(() -> create(ds));
+        } else if (removed != null) {
+            ds.update(() -> removed.forEach(ds::addPrimitive));
+            removed = null;
+        }
+        ds.setSelected(toSelect.stream().map(ds::getPrimitiveById).filter(Objects::nonNull).toList());
+        return true;
+    }
+
+    /**
+     * Check if a relation has relation members. Those relations must be added
+     * back in a specific order on redo, which is left to
+     * {@link AddPrimitivesCommand}.
+     *
+     * @param pd The data to check
+     * @return {@code true} if the data is for a relation with relation members
+     */
+    private static boolean hasRelationMember(PrimitiveData pd) {
+        return pd instanceof RelationData relationData && relationData.getMembers().stream()
+                .anyMatch(member -> member.getMemberType() == OsmPrimitiveType.RELATION);
+    }
+
+    private void create(DataSet ds) {
+        final var created = new ArrayList<OsmPrimitive>(data.size());
+        // Create all primitives first, so that way nodes and relation members can be found when loading them
+        for (PrimitiveData pd : data) {
+            final OsmPrimitive primitive = pd.getType().newInstance(pd.getUniqueId(), true);
+            // Like AddPrimitivesCommand, load nodes before adding them, so they are indexed with their coordinates
+            if (pd instanceof NodeData) {
+                primitive.load(pd);
+            }
+            ds.addPrimitive(primitive);
+            created.add(primitive);
+        }
+        final var iterator = data.iterator();
+        for (OsmPrimitive primitive : created) {
+            final PrimitiveData pd = iterator.next();
+            if (!(pd instanceof NodeData)) {
+                primitive.load(pd);
+            }
+        }
+        created.forEach(primitive -> primitive.setModified(true));
+        data = null;
+        ids = toIds(created);
+    }
+
+    @Override
+    public void undoCommand() {
+        final DataSet ds = getAffectedDataSet();
+        if (fallback != null) {
+            fallback.undoCommand();
+        } else if (ids != null) {
+            final List<OsmPrimitive> primitives = getPrimitives();
+            ds.update(() -> {
+                // Remove the referrers before the primitives they refer to
+                for (int i = primitives.size() - 1; i >= 0; i--) {
+                    ds.removePrimitive(primitives.get(i));
+                }
+            });
+            removed = primitives;
+            ids = null;
+        }
+    }
+
+    /**
+     * Get the added primitives
+     *
+     * @return The primitives, nodes first and relations last
+     */
+    private List<OsmPrimitive> getPrimitives() {
+        if (removed != null) {
+            return removed;
+        }
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        final DataSet ds = getAffectedDataSet();
+        final var primitives = new ArrayList<OsmPrimitive>(size);
+        final var types = OsmPrimitiveType.dataValues();
+        for (int i = 0; i < types.size(); i++) {
+            for (long id : ids[i]) {
+                final OsmPrimitive primitive = ds.getPrimitiveById(id, types.get(i));
+                // The primitive may have been purged
+                if (primitive != null) {
+                    primitives.add(primitive);
+                }
+            }
+        }
+        return primitives;
+    }
+
+    private static long[][] toIds(Collection<OsmPrimitive> primitives) {
+        final var types = OsmPrimitiveType.dataValues();
+        final long[][] typeIds = new long[types.size()][];
+        for (int i = 0; i < types.size(); i++) {
+            final OsmPrimitiveType type = types.get(i);
+            typeIds[i] = primitives.stream().filter(p -> type == p.getType()).mapToLong(OsmPrimitive::getUniqueId)
+                    .toArray();
+        }
+        return typeIds;
+    }
+
+    @Override
+    public String getDescriptionText() {
+        return trn("Added {0} object", "Added {0} objects", size, size);
+    }
+
+    @Override
+    public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted,
+            Collection<OsmPrimitive> added) {
+        if (fallback != null) {
+            fallback.fillModifiedData(modified, deleted, added);
+        } else {
+            added.addAll(getPrimitives());
+        }
+    }
+
+    @Override
+    public Collection<? extends OsmPrimitive> getParticipatingPrimitives() {
+        return fallback != null ? fallback.getParticipatingPrimitives() : getPrimitives();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), toSelect, size, fallback, Arrays.deepHashCode(ids));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass() || !super.equals(obj)) {
+            return false;
+        }
+        final CompactAddPrimitivesCommand other = (CompactAddPrimitivesCommand) obj;
+        return size == other.size && Objects.equals(toSelect, other.toSelect)
+                && Objects.equals(fallback, other.fallback) && Arrays.deepEquals(ids, other.ids)
+                && Objects.equals(data, other.data) && Objects.equals(removed, other.removed);
+    }
+}
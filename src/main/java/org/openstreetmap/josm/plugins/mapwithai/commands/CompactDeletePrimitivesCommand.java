@@ -0,0 +1,150 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import static org.openstreetmap.josm.tools.I18n.trn;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.DeleteCommand;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * Delete primitives from a dataset, like {@link DeleteCommand}, but without
+ * keeping copies of the primitives on the undo stack.
+ * <p>
+ * {@link DeleteCommand} removes the nodes of deleted ways and the members of
+ * deleted relations, so it has to keep a copy of every primitive to restore
+ * them. This command only marks the primitives as deleted, so undoing it only
+ * has to restore the deleted and modified flags. This only works if nothing
+ * outside of the deleted primitives refers to them, so use
+ * {@link #delete(Collection)} to fall back to {@link DeleteCommand} otherwise.
+ * Since the dataset may change between creating and executing the command
+ * (e.g. a download merges a way using one of the nodes), this is checked again
+ * when the command is executed.
+ *
+ * @author Taylor Smock
+ */
+final class CompactDeletePrimitivesCommand extends Command {
+    private final List<OsmPrimitive> toDelete;
+    /** The primitives that were modified before they were deleted */
+    private final BitSet wasModified;
+    /** Used if the primitives cannot be deleted compactly when the command is executed */
+    private Command fallback;
+
+    private CompactDeletePrimitivesCommand(DataSet ds, Collection<OsmPrimitive> toDelete) {
+        super(ds);
+        this.toDelete = List.copyOf(toDelete);
+        this.wasModified = new BitSet(toDelete.size());
+    }
+
+    /**
+     * Create a command to delete primitives
+     *
+     * @param toDelete The primitives to delete, all in the same dataset
+     * @return The command, or {@code null} if there is nothing to delete
+     */
+    static Command delete(Collection<OsmPrimitive> toDelete) {
+        if (toDelete.isEmpty()) {
+            return null;
+        }
+        final DataSet ds = toDelete.iterator().next().getDataSet();
+        if (!canDeleteCompactly(ds, toDelete)) {
+            return DeleteCommand.delete(toDelete, false, true);
+        }
+        return new CompactDeletePrimitivesCommand(ds, toDelete);
+    }
+
+    /**
+     * Check if primitives can be deleted by only marking them as deleted
+     *
+     * @param ds       The dataset the primitives must be in
+     * @param toDelete The primitives to delete
+     * @return {@code true} if no primitive is already deleted, and nothing else
+     *         refers to the primitives
+     */
+    private static boolean canDeleteCompactly(DataSet ds, Collection<OsmPrimitive> toDelete) {
+        final Set<OsmPrimitive> deleting = toDelete instanceof Set<OsmPrimitive> set ? set : Set.copyOf(toDelete);
+        for (OsmPrimitive primitive : toDelete) {
+            if (primitive.isDeleted() || primitive.getDataSet() != ds || primitive.referrers(OsmPrimitive.class)
+                    .anyMatch(referrer -> !referrer.isDeleted() && !deleting.contains(referrer))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean executeCommand() {
+        if (fallback == null && !canDeleteCompactly(getAffectedDataSet(), toDelete)) {
+            fallback = DeleteCommand.delete(toDelete, false, true);
+        }
+        if (fallback != null) {
+            return fallback.executeCommand();
+        }
+        ensurePrimitivesAreInDataset();
+        getAffectedDataSet().update(() -> {
+            for (int i = 0; i < toDelete.size(); i++) {
+                final OsmPrimitive primitive = toDelete.get(i);
+                wasModified.set(i, primitive.isModified());
+                primitive.setDeleted(true);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public void undoCommand() {
+        if (fallback != null) {
+            fallback.undoCommand();
+            return;
+        }
+        ensurePrimitivesAreInDataset();
+        getAffectedDataSet().update(() -> {
+            for (int i = 0; i < toDelete.size(); i++) {
+                final OsmPrimitive primitive = toDelete.get(i);
+                primitive.setDeleted(false);
+                primitive.setModified(wasModified.get(i));
+            }
+        });
+    }
+
+    @Override
+    public String getDescriptionText() {
+        return trn("Delete {0} object", "Delete {0} objects", toDelete.size(), toDelete.size());
+    }
+
+    @Override
+    public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted,
+            Collection<OsmPrimitive> added) {
+        // Do nothing, like DeleteCommand
+    }
+
+    @Override
+    public Collection<? extends OsmPrimitive> getParticipatingPrimitives() {
+        return fallback != null ? fallback.getParticipatingPrimitives() : toDelete;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), toDelete, wasModified, fallback);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass() || !super.equals(obj)) {
+            return false;
+        }
+        final CompactDeletePrimitivesCommand other = (CompactDeletePrimitivesCommand) obj;
+        return Objects.equals(toDelete, other.toDelete) && Objects.equals(wasModified, other.wasModified)
+                && Objects.equals(fallback, other.fallback);
+    }
+}
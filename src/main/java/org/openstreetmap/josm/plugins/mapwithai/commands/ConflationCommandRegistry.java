@@ -0,0 +1,196 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.plugins.mapwithai.MapWithAIPlugin;
+import org.openstreetmap.josm.plugins.mapwithai.commands.cleanup.MissingConnectionTags;
+import org.openstreetmap.josm.plugins.mapwithai.commands.cleanup.OverNodedWays;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * The conflation commands that run when data is added from the MapWithAI
+ * layer. Each command is registered with a factory, and the information that
+ * does not depend upon the data (the key, the interested types, and so on) is
+ * read once when the command is registered.
+ *
+ * @author Taylor Smock
+ */
+public final class ConflationCommandRegistry {
+    /**
+     * A registered conflation command
+     *
+     * @param type                   The class of the command
+     * @param factory                Creates the command for a dataset
+     * @param key                    See {@link AbstractConflationCommand#getKey()}
+     * @param interestedTypes        See
+     *                               {@link AbstractConflationCommand#getInterestedTypes()}
+     * @param conflictedCommands     See
+     *                               {@link AbstractConflationCommand#conflictedCommands()}
+     * @param allowUndo              See {@link AbstractConflationCommand#allowUndo()}
+     * @param keyShouldNotExistInOSM See
+     *                               {@link AbstractConflationCommand#keyShouldNotExistInOSM()}
+     */
+    public record Entry(Class<? extends AbstractConflationCommand> type,
+            Function<DataSet, ? extends AbstractConflationCommand> factory, String key,
+            List<Class<? extends OsmPrimitive>> interestedTypes,
+            List<Class<? extends AbstractConflationCommand>> conflictedCommands, boolean allowUndo,
+            boolean keyShouldNotExistInOSM) {
+
+        /**
+         * Create a new command
+         *
+         * @param dataSet The dataset the command works on
+         * @return The new command
+         */
+        public AbstractConflationCommand create(DataSet dataSet) {
+            return factory.apply(dataSet);
+        }
+
+        /**
+         * Check if the command should run on a primitive
+         *
+         * @param primitive The primitive to check
+         * @return {@code true} if the primitive is not deleted, is an interested
+         *         type, and has the key of the command
+         */
+        public boolean isApplicable(OsmPrimitive primitive) {
+            return !primitive.isDeleted() && primitive.hasKey(key)
+                    && interestedTypes.stream().anyMatch(clazz -> clazz.isInstance(primitive));
+        }
+    }
+
+    private static final Map<Class<? extends AbstractConflationCommand>, Entry> ENTRIES = new LinkedHashMap<>();
+    private static List<Entry> entries = List.of();
+    private static Set<String> keys = Set.of();
+
+    static {
+        register(MissingConnectionTags.class, MissingConnectionTags::new);
+        register(ConnectedCommand.class, ConnectedCommand::new);
+        register(DuplicateCommand.class, DuplicateCommand::new);
+        register(MergeAddressBuildings.class, MergeAddressBuildings::new);
+        register(MergeBuildingAddress.class, MergeBuildingAddress::new);
+        register(OverNodedWays.class, OverNodedWays::new);
+        register(AlreadyConflatedCommand.class, AlreadyConflatedCommand::new);
+    }
+
+    private ConflationCommandRegistry() {
+        // Hide constructor
+    }
+
+    /**
+     * Register a conflation command. Commands run in the order they are
+     * registered.
+     *
+     * @param <T>     The type of the command
+     * @param type    The class of the command
+     * @param factory Creates the command for a dataset
+     * @return {@code true} if the command was not already registered
+     */
+    public static synchronized <T extends AbstractConflationCommand> boolean register(Class<T> type,
+            Function<DataSet, T> factory) {
+        Objects.requireNonNull(type, "Command class cannot be null");
+        Objects.requireNonNull(factory, "Command factory cannot be null");
+        if (ENTRIES.containsKey(type)) {
+            return false;
+        }
+        final var command = factory.apply(new DataSet());
+        ENTRIES.put(type,
+                new Entry(type, factory, command.getKey(), List.copyOf(command.getInterestedTypes()),
+                        List.copyOf(command.conflictedCommands()), command.allowUndo(),
+                        command.keyShouldNotExistInOSM()));
+        update();
+        return true;
+    }
+
+    /**
+     * Register a conflation command with a public {@code (DataSet)} constructor.
+     * Classes that cannot be registered are logged and skipped, like they were
+     * skipped when the commands were created for every addition.
+     *
+     * @param type The class of the command
+     * @return {@code true} if the command was registered, {@code false} if it was
+     *         already registered or cannot be created
+     */
+    public static boolean register(Class<? extends AbstractConflationCommand> type) {
+        try {
+            final var constructor = type.getConstructor(DataSet.class);
+            return register(type, dataSet -> {
+                try {
+                    return constructor.newInstance(dataSet);
+                } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                    throw new JosmRuntimeException(e);
+                }
+            });
+        } catch (NoSuchMethodException | SecurityException | JosmRuntimeException e) {
+            Logging.warn("{0}: Cannot register conflation command {1}: {2}", MapWithAIPlugin.NAME, type.getName(),
+                    e.getMessage());
+            Logging.debug(e);
+            return false;
+        }
+    }
+
+    /**
+     * Unregister a conflation command
+     *
+     * @param type The class of the command
+     * @return {@code true} if the command was registered
+     */
+    public static synchronized boolean unregister(Class<? extends AbstractConflationCommand> type) {
+        final var removed = ENTRIES.remove(type) != null;
+        update();
+        return removed;
+    }
+
+    /**
+     * Get the registered commands
+     *
+     * @return The registered commands, in the order they run
+     */
+    public static synchronized List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Get the registered command classes
+     *
+     * @return The registered command classes, in the order they run
+     */
+    public static synchronized Set<Class<? extends AbstractConflationCommand>> getTypes() {
+        return new LinkedHashSet<>(ENTRIES.keySet());
+    }
+
+    /**
+     * Get the keys used by the registered commands
+     *
+     * @return The conflation keys
+     */
+    public static synchronized Set<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Check if a primitive has a key used by a registered command
+     *
+     * @param primitive The primitive to check
+     * @return {@code true} if the primitive has any conflation key
+     */
+    public static boolean hasConflationKey(OsmPrimitive primitive) {
+        return primitive.hasKeys() && getKeys().stream().anyMatch(primitive::hasKey);
+    }
+
+    private static void update() {
+        entries = List.copyOf(ENTRIES.values());
+        keys = Set.copyOf(entries.stream().map(Entry::key).filter(Objects::nonNull).toList());
+    }
+}
@@ -0,0 +1,166 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.plugins.mapwithai.MapWithAIPlugin;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * The decisions that conflation commands did not make when running without
+ * asking the user (see {@link MapWithAIPreferenceHelper#isInteractiveConflation()}).
+ * Each command uses a default decision that leaves the data unchanged, and
+ * records what it would have asked here, so that the decisions can be reviewed
+ * after the data has been added (the MapWithAI layer info can copy
+ * {@link #getReport()}).
+ * <p>
+ * There is one report per dataset the data is added to, which only keeps the
+ * last {@value #MAX_DECISIONS} decisions. The report is dropped with its
+ * dataset.
+ *
+ * @author Taylor Smock
+ */
+public final class ConflationDecisionReport {
+    /**
+     * A decision that was not made
+     *
+     * @param command     The class of the command that deferred the decision
+     * @param description What the user would have been asked
+     * @param primitives  The primitives the decision is about
+     */
+    public record Decision(Class<? extends AbstractConflationCommand> command, String description,
+            List<PrimitiveId> primitives) {
+        /**
+         * Create a new deferred decision
+         *
+         * @param command     The class of the command that deferred the decision
+         * @param description What the user would have been asked
+         * @param primitives  The primitives the decision is about
+         */
+        public Decision {
+            Objects.requireNonNull(command, "command cannot be null");
+            Objects.requireNonNull(description, "description cannot be null");
+            primitives = List.copyOf(primitives);
+        }
+    }
+
+    /** The maximum number of decisions kept for a dataset */
+    static final int MAX_DECISIONS = 1000;
+
+    private static final Map<DataSet, ConflationDecisionReport> REPORTS = new WeakHashMap<>();
+
+    private final Deque<Decision> decisions = new ArrayDeque<>();
+    /** The number of decisions deferred, including those no longer kept */
+    private long deferred;
+
+    private ConflationDecisionReport() {
+        // Hide constructor
+    }
+
+    /**
+     * Get the report for a dataset
+     *
+     * @param dataSet The dataset the decisions are about
+     * @return The report of deferred decisions for the dataset
+     */
+    public static ConflationDecisionReport getInstance(DataSet dataSet) {
+        Objects.requireNonNull(dataSet, "DataSet cannot be null");
+        synchronized (REPORTS) {
+            return REPORTS.computeIfAbsent(dataSet, ignored -> new ConflationDecisionReport());
+        }
+    }
+
+    /**
+     * Record a decision that was not made
+     *
+     * @param command     The class of the command that deferred the decision
+     * @param description What the user would have been asked
+     * @param primitives  The primitives the decision is about
+     */
+    public void defer(Class<? extends AbstractConflationCommand> command, String description,
+            Collection<? extends OsmPrimitive> primitives) {
+        final var decision = new Decision(command, description,
+                primitives.stream().map(OsmPrimitive::getPrimitiveId).toList());
+        synchronized (decisions) {
+            decisions.addLast(decision);
+            deferred++;
+            while (decisions.size() > MAX_DECISIONS) {
+                decisions.removeFirst();
+            }
+        }
+        Logging.debug("{0}: {1} deferred \"{2}\" for {3}", MapWithAIPlugin.NAME, command.getSimpleName(), description,
+                decision.primitives());
+    }
+
+    /**
+     * Get the decisions that were not made
+     *
+     * @return The last deferred decisions, in the order they were deferred
+     */
+    public List<Decision> getDecisions() {
+        synchronized (decisions) {
+            return List.copyOf(decisions);
+        }
+    }
+
+    /**
+     * Get the number of decisions that were not made
+     *
+     * @return The number of deferred decisions
+     */
+    public int getDecisionCount() {
+        synchronized (decisions) {
+            return decisions.size();
+        }
+    }
+
+    /**
+     * Get the number of decisions that were not made since the report was last
+     * cleared, including those that are no longer kept
+     *
+     * @return The number of decisions deferred
+     */
+    public long getDeferredCount() {
+        synchronized (decisions) {
+            return deferred;
+        }
+    }
+
+    /**
+     * Get a plain text report of the deferred decisions, for review
+     *
+     * @return The report, with one line per decision (oldest first)
+     */
+    public String getReport() {
+        final var report = new StringBuilder("command\tdecision\tprimitives");
+        for (var decision : getDecisions()) {
+            report.append('\n').append(decision.command().getSimpleName()).append('\t')
+                    .append(decision.description()).append('\t')
+                    .append(decision.primitives().stream()
+                            .map(id -> id.getType().getAPIName().charAt(0) + Long.toString(id.getUniqueId()))
+                            .collect(Collectors.joining(",")));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Remove all deferred decisions, e.g. after they have been reviewed
+     */
+    public void clear() {
+        synchronized (decisions) {
+            decisions.clear();
+            deferred = 0;
+        }
+    }
+}
@@ -3,16 +3,16 @@ package org.openstreetmap.josm.plugins.mapwithai.commands;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.command.Command;
@@ -23,28 +23,15 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.plugins.mapwithai.MapWithAIPlugin;
-import org.openstreetmap.josm.plugins.mapwithai.commands.cleanup.MissingConnectionTags;
-import org.openstreetmap.josm.plugins.mapwithai.commands.cleanup.OverNodedWays;
-import org.openstreetmap.josm.tools.Logging;
-import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Create connections
  */
 public class CreateConnectionsCommand extends Command {
-    private final Collection<PrimitiveData> primitives;
+    /** The primitives to connect, until the connections are created */
+    private Collection<PrimitiveData> primitives;
     private Command command;
     private Command undoCommands;
-    private static final LinkedHashSet<Class<? extends AbstractConflationCommand>> CONFLATION_COMMANDS = new LinkedHashSet<>();
-    static {
-        CONFLATION_COMMANDS.add(MissingConnectionTags.class);
-        CONFLATION_COMMANDS.add(ConnectedCommand.class);
-        CONFLATION_COMMANDS.add(DuplicateCommand.class);
-        CONFLATION_COMMANDS.add(MergeAddressBuildings.class);
-        CONFLATION_COMMANDS.add(MergeBuildingAddress.class);
-        CONFLATION_COMMANDS.add(OverNodedWays.class);
-        CONFLATION_COMMANDS.add(AlreadyConflatedCommand.class);
-    }
 
     /**
      * Create a new command
@@ -59,10 +46,12 @@ public class CreateConnectionsCommand extends Command {
 
     @Override
     public boolean executeCommand() {
-        if (command == null) {
+        if (primitives != null) {
             List<Command> commands = createConnections(getAffectedDataSet(), primitives);
             command = commands.get(0);
             undoCommands = commands.get(1);
+            // Don't keep copies of the added primitives on the undo stack
+            primitives = null;
         }
         if (command != null) {
             command.executeCommand();
@@ -94,36 +83,28 @@ public class CreateConnectionsCommand extends Command {
     public static List<Command> createConnections(DataSet dataSet, Collection<PrimitiveData> collection) {
         final List<Command> permanent = new ArrayList<>();
         final List<Command> undoable = new ArrayList<>();
-        List<Class<? extends AbstractConflationCommand>> runCommands = new ArrayList<>();
-        for (final Class<? extends AbstractConflationCommand> abstractCommandClass : getConflationCommands()) {
-            final AbstractConflationCommand abstractCommand;
-            try {
-                abstractCommand = abstractCommandClass.getConstructor(DataSet.class).newInstance(dataSet);
-            } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-                    | InvocationTargetException | NoSuchMethodException | SecurityException e) {
-                Logging.debug(e);
+        final List<Class<? extends AbstractConflationCommand>> runCommands = new ArrayList<>();
+        final Map<String, List<OsmPrimitive>> buckets = classify(dataSet, collection,
+                ConflationCommandRegistry.getKeys());
+        for (final ConflationCommandRegistry.Entry entry : ConflationCommandRegistry.getEntries()) {
+            // If there are conflicting commands, don't add it.
+            if (runCommands.stream().anyMatch(entry.conflictedCommands()::contains)) {
                 continue;
             }
-            // If there are conflicting commands, don't add it.
-            if (runCommands.stream().anyMatch(c -> abstractCommand.conflictedCommands().contains(c))) {
+            final List<OsmPrimitive> tPrimitives = buckets.getOrDefault(entry.key(), Collections.emptyList())
+                    .stream().filter(entry::isApplicable).collect(Collectors.toList());
+            if (tPrimitives.isEmpty()) {
                 continue;
             }
-            final Collection<OsmPrimitive> realPrimitives = collection.stream().map(dataSet::getPrimitiveById)
-                    .filter(Objects::nonNull).collect(Collectors.toList());
-            final Collection<OsmPrimitive> tPrimitives = new TreeSet<>();
-            abstractCommand.getInterestedTypes()
-                    .forEach(clazz -> tPrimitives.addAll(Utils.filteredCollection(realPrimitives, clazz)));
-
-            final Command actualCommand = abstractCommand.getCommand(
-                    tPrimitives.stream().filter(prim -> prim.hasKey(abstractCommand.getKey()) && !prim.isDeleted())
-                            .collect(Collectors.toList()));
+            final AbstractConflationCommand abstractCommand = entry.create(dataSet);
+            final Command actualCommand = abstractCommand.getCommand(tPrimitives);
             if (Objects.nonNull(actualCommand)) {
-                if (abstractCommand.allowUndo()) {
+                if (entry.allowUndo()) {
                     undoable.add(actualCommand);
                 } else {
                     permanent.add(actualCommand);
                 }
-                runCommands.add(abstractCommand.getClass());
+                runCommands.add(entry.type());
             }
         }
 
@@ -135,6 +116,34 @@ public class CreateConnectionsCommand extends Command {
         return Arrays.asList(permanentCommand, undoCommand);
     }
 
+    /**
+     * Sort the primitives into buckets by conflation key in one pass, so that each
+     * command only looks at the primitives with its key
+     *
+     * @param dataSet    The dataset with the primitives
+     * @param collection The primitives to sort
+     * @param keys       The conflation keys
+     * @return The primitives with each key, in the order of the collection
+     */
+    static Map<String, List<OsmPrimitive>> classify(DataSet dataSet, Collection<PrimitiveData> collection,
+            Collection<String> keys) {
+        final Map<String, List<OsmPrimitive>> buckets = new HashMap<>(keys.size());
+        final Set<OsmPrimitive> seen = new HashSet<>();
+        for (PrimitiveData data : collection) {
+            final OsmPrimitive primitive = dataSet.getPrimitiveById(data);
+            // Most added primitives are untagged nodes
+            if (primitive == null || !primitive.hasKeys() || !seen.add(primitive)) {
+                continue;
+            }
+            for (String key : keys) {
+                if (primitive.hasKey(key)) {
+                    buckets.computeIfAbsent(key, ignored -> new ArrayList<>()).add(primitive);
+                }
+            }
+        }
+        return buckets;
+    }
+
     @Override
     public String getDescriptionText() {
         return getRealDescriptionText();
@@ -156,12 +165,14 @@ public class CreateConnectionsCommand extends Command {
     }
 
     /**
-     * Add third-party commands that are run when conflating data.
+     * Add third-party commands that are run when conflating data. Commands
+     * without a public {@code (DataSet)} constructor are logged and skipped.
      *
      * @param command A command to run when copying data from the MapWithAI layer
+     * @see ConflationCommandRegistry#register(Class, java.util.function.Function)
      */
     public static void addConflationCommand(Class<? extends AbstractConflationCommand> command) {
-        CONFLATION_COMMANDS.add(command);
+        ConflationCommandRegistry.register(command);
     }
 
     /**
@@ -170,7 +181,7 @@ public class CreateConnectionsCommand extends Command {
      * @return A set of commands to run when copying data from the MapWithAI layer
      */
     public static Set<Class<? extends AbstractConflationCommand>> getConflationCommands() {
-        return Collections.unmodifiableSet(CONFLATION_COMMANDS);
+        return Collections.unmodifiableSet(ConflationCommandRegistry.getTypes());
     }
 
     /**
@@ -181,6 +192,6 @@ public class CreateConnectionsCommand extends Command {
      * @see List#remove
      */
     public static boolean removeConflationCommand(Class<? extends AbstractConflationCommand> command) {
-        return CONFLATION_COMMANDS.remove(command);
+        return ConflationCommandRegistry.unregister(command);
     }
 }
@@ -0,0 +1,131 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.projection.Ellipsoid;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
+
+/**
+ * Find the ways in a region that may duplicate each other. All of the nodes in
+ * the region are put in a grid with cells the size of the maximum duplicate
+ * node distance once, so finding the ways with nodes near the nodes of a way
+ * only looks at neighbouring cells.
+ * <p>
+ * This is a pre-filter for {@link MergeDuplicateWays#checkForDuplicateWays(Way, Way)}:
+ * a way is only a candidate if it has nodes near at least two nodes of the
+ * searched way, or if it has the same {@link MergeDuplicateWays#ORIG_ID}.
+ *
+ * @author Taylor Smock
+ */
+final class DuplicateWaySweep {
+    private final Map<Way, Integer> order = new HashMap<>();
+    private final Map<String, List<Way>> origIds = new HashMap<>();
+    private final Map<Long, List<Node>> cells = new HashMap<>();
+    private final double maxDistance;
+    private final double latitudeCell;
+    private final double longitudeCell;
+
+    /**
+     * Index the nodes of ways
+     *
+     * @param ways The ways in the region
+     */
+    DuplicateWaySweep(Collection<Way> ways) {
+        this.maxDistance = MapWithAIPreferenceHelper.getMaxNodeDistance();
+        final var nodes = new LinkedHashSet<Node>();
+        var maxLatitude = 0d;
+        for (var way : ways) {
+            order.putIfAbsent(way, order.size());
+            if (way.hasKey(MergeDuplicateWays.ORIG_ID)) {
+                origIds.computeIfAbsent(way.get(MergeDuplicateWays.ORIG_ID), ignored -> new ArrayList<>()).add(way);
+            }
+            for (var node : way.getNodes()) {
+                if (node.isLatLonKnown() && nodes.add(node)) {
+                    maxLatitude = Math.max(maxLatitude, Math.abs(node.lat()));
+                }
+            }
+        }
+        // Nodes closer than the maximum distance are closer than this in latitude (with a margin for rounding)
+        this.latitudeCell = Math.max(Math.toDegrees(1.01 * maxDistance / Ellipsoid.WGS84.a), 1e-9);
+        // Longitude degrees are shortest at the highest latitude
+        this.longitudeCell = Math.min(latitudeCell / Math.max(Math.cos(Math.toRadians(maxLatitude)), 1e-9), 360);
+        for (var node : nodes) {
+            cells.computeIfAbsent(cell(latitudeIndex(node), longitudeIndex(node)), ignored -> new ArrayList<>())
+                    .add(node);
+        }
+    }
+
+    /**
+     * Get the ways that may be duplicates of a way. This uses the current nodes
+     * of the way, so ways that have been merged into the way are accounted for.
+     *
+     * @param way The way to get candidates for
+     * @return The candidates, in the order they were given to the constructor
+     */
+    List<Way> getCandidates(Way way) {
+        final var counts = new HashMap<Way, Integer>();
+        for (var node : way.getNodes()) {
+            final var near = new HashSet<Way>();
+            if (node.isLatLonKnown()) {
+                final long latitude = latitudeIndex(node);
+                final long longitude = longitudeIndex(node);
+                for (var i = latitude - 1; i <= latitude + 1; i++) {
+                    for (var j = longitude - 1; j <= longitude + 1; j++) {
+                        for (var possible : cells.getOrDefault(cell(i, j), List.of())) {
+                            if (node.equals(possible) || (!possible.isDeleted()
+                                    && node.greatCircleDistance(possible) < maxDistance)) {
+                                addParentWays(way, possible, near);
+                            }
+                        }
+                    }
+                }
+            } else {
+                addParentWays(way, node, near);
+            }
+            near.forEach(candidate -> counts.merge(candidate, 1, Integer::sum));
+        }
+        final Set<Way> candidates = new HashSet<>();
+        counts.forEach((candidate, count) -> {
+            if (count > 1) {
+                candidates.add(candidate);
+            }
+        });
+        if (way.hasKey(MergeDuplicateWays.ORIG_ID)) {
+            candidates.addAll(origIds.getOrDefault(way.get(MergeDuplicateWays.ORIG_ID), List.of()));
+            candidates.remove(way);
+        }
+        return candidates.stream().filter(candidate -> !candidate.isDeleted())
+                .sorted(Comparator.comparingInt(order::get)).toList();
+    }
+
+    private void addParentWays(Way way, Node node, Set<Way> near) {
+        for (var parent : node.getParentWays()) {
+            if (!way.equals(parent) && order.containsKey(parent)) {
+                near.add(parent);
+            }
+        }
+    }
+
+    private long latitudeIndex(Node node) {
+        return (long) Math.floor(node.lat() / latitudeCell);
+    }
+
+    private long longitudeIndex(Node node) {
+        return (long) Math.floor(node.lon() / longitudeCell);
+    }
+
+    private static long cell(long latitudeIndex, long longitudeIndex) {
+        return (latitudeIndex << 32) ^ (longitudeIndex & 0xffff_ffffL);
+    }
+}
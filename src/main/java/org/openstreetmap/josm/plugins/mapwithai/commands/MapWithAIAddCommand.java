@@ -11,13 +11,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeSet;
 import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.command.SequenceCommand;
-import org.openstreetmap.josm.data.UndoRedoHandler;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
@@ -26,8 +26,8 @@ import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.plugins.mapwithai.MapWithAIPlugin;
+import org.openstreetmap.josm.plugins.mapwithai.backend.AddedObjectsCounter;
 import org.openstreetmap.josm.plugins.mapwithai.backend.GetDataRunnable;
-import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIDataUtils;
 import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAILayer;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Pair;
@@ -41,7 +41,10 @@ public class MapWithAIAddCommand extends Command implements Runnable {
     private final DataSet mapWithAI;
     private final Collection<OsmPrimitive> primitives;
     Command command;
+    /** The OSM primitives downloaded for {@link #command}, until they are merged into the OSM layer */
+    private DataSet references;
     private Lock lock;
+    private boolean executed;
     final Map<OsmPrimitive, String> sources;
 
     /**
@@ -85,6 +88,85 @@ public class MapWithAIAddCommand extends Command implements Runnable {
         return true;
     }
 
+    /**
+     * Plan the command without applying it. This copies the primitives from the
+     * MapWithAI layer, works out what has to be removed from it, and downloads the
+     * OSM primitives that the conflation keys point to into a separate dataset.
+     * Nothing in the OSM layer is changed, so this should be called from a
+     * background thread before the command is added to the undo/redo stack. Only
+     * applying the plan (merging the downloaded primitives into the OSM layer and
+     * executing the command) then has to happen on the EDT.
+     * <p>
+     * If the MapWithAI data changes before the plan is applied, the command is
+     * planned again when it is applied, including the download.
+     */
+    public void plan() {
+        synchronized (this) {
+            if (command != null) {
+                return;
+            }
+        }
+        final Command planned;
+        final var downloaded = new DataSet();
+        try {
+            if (lock != null) {
+                lock.lock();
+            }
+            planned = createCommand(downloaded);
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        synchronized (this) {
+            if (command == null) {
+                command = planned;
+                references = downloaded;
+            }
+        }
+    }
+
+    /**
+     * Create the command
+     *
+     * @param downloaded The dataset to download missing OSM primitives into. It
+     *                   must be merged into the OSM layer before the command is
+     *                   executed.
+     * @return The command
+     */
+    private Command createCommand(DataSet downloaded) {
+        if (mapWithAI.equals(editable)) {
+            Logging.error("{0}: DataSet mapWithAI ({1}) should not be the same as DataSet editable ({2})",
+                    MapWithAIPlugin.NAME, mapWithAI, editable);
+            throw new IllegalArgumentException();
+        }
+        final Collection<PrimitiveData> primitiveData = new HashSet<>();
+        // Primitives may have been removed from the MapWithAI layer since the command was created
+        final Collection<OsmPrimitive> toMove = primitives.stream().filter(this::isInMapWithAI)
+                .collect(Collectors.toList());
+        final Command movePrimitivesCommand = new MovePrimitiveDataSetCommand(editable, mapWithAI, toMove,
+                primitiveData);
+        // Download everything that the added primitives point to at once, instead of once per tag
+        AbstractConflationCommand.prefetchMissingPrimitives(editable, downloaded, primitiveData,
+                ConnectedCommand.KEY, DuplicateCommand.KEY);
+        final Command createConnectionsCommand = createConnections(editable, primitiveData);
+        return SequenceCommand.wrapIfNeeded(getDescriptionText(), movePrimitivesCommand, createConnectionsCommand);
+    }
+
+    /**
+     * Check that the plan is still valid, i.e. that the primitives have not been
+     * removed from the MapWithAI layer since the plan was made
+     *
+     * @return {@code true} if the plan can be applied
+     */
+    private boolean isPlanValid() {
+        return primitives.stream().allMatch(this::isInMapWithAI);
+    }
+
+    private boolean isInMapWithAI(OsmPrimitive prim) {
+        return !prim.isDeleted() && mapWithAI.equals(prim.getDataSet());
+    }
+
     @Override
     public void run() {
         if (mapWithAI.equals(editable)) {
@@ -97,17 +179,32 @@ public class MapWithAIAddCommand extends Command implements Runnable {
                 if (lock != null) {
                     lock.lock();
                 }
+                if (command != null && !executed && !isPlanValid()) {
+                    Logging.info("{0}: MapWithAI data changed while planning, planning again", MapWithAIPlugin.NAME);
+                    command = null;
+                }
                 if (command == null) {// needed for undo/redo (don't create a new command)
-                    final List<OsmPrimitive> allPrimitives = new ArrayList<>();
-                    MapWithAIDataUtils.addPrimitivesToCollection(allPrimitives, primitives);
-                    Collection<PrimitiveData> primitiveData = new HashSet<>();
-                    final Command movePrimitivesCommand = new MovePrimitiveDataSetCommand(editable, mapWithAI,
-                            primitives, primitiveData);
-                    final Command createConnectionsCommand = createConnections(editable, primitiveData);
-                    command = SequenceCommand.wrapIfNeeded(getDescriptionText(), movePrimitivesCommand,
-                            createConnectionsCommand);
+                    references = new DataSet();
+                    command = createCommand(references);
+                }
+                final Command toExecute = command;
+                final DataSet toMerge = references;
+                references = null;
+                final var decisions = ConflationDecisionReport.getInstance(editable);
+                final long deferred = decisions.getDeferredCount();
+                GuiHelper.runInEDTAndWait(() -> {
+                    // Like DownloadPrimitivesTask, the downloaded primitives are not part of the command
+                    if (toMerge != null && !toMerge.isEmpty()) {
+                        editable.mergeFrom(toMerge);
+                    }
+                    toExecute.executeCommand();
+                });
+                executed = true;
+                final long newlyDeferred = decisions.getDeferredCount() - deferred;
+                if (newlyDeferred > 0) {
+                    Logging.info("{0}: {1} conflation decisions were deferred, see the MapWithAI layer information",
+                            MapWithAIPlugin.NAME, newlyDeferred);
                 }
-                GuiHelper.runInEDTAndWait(command::executeCommand);
             } finally {
                 if (lock != null) {
                     lock.unlock();
@@ -175,25 +272,44 @@ public class MapWithAIAddCommand extends Command implements Runnable {
      * (may not count significantly modified objects as well).
      *
      * @return The number of MapWithAI objects added in this command that are not
-     *         deleted
+     *         deleted, or {@code 0} if the command is not in the undo stack
+     * @see AddedObjectsCounter#getCount(MapWithAIAddCommand)
      */
     public long getAddedObjects() {
-        long returnLong;
-        if (this.equals(UndoRedoHandler.getInstance().getLastCommand())) {
-            returnLong = primitives.size();
-        } else {
-            returnLong = primitives.stream().map(editable::getPrimitiveById).filter(Objects::nonNull)
-                    .filter(MapWithAIAddCommand::validPrimitive).count();
-        }
-        return returnLong;
+        return AddedObjectsCounter.getInstance().getCount(this);
+    }
+
+    /**
+     * Get the primitives from this command that are in the OSM dataset
+     *
+     * @return The added primitives, including ones that have been deleted since
+     * @see #validPrimitive(OsmPrimitive)
+     */
+    public List<OsmPrimitive> getAddedPrimitives() {
+        return primitives.stream().map(editable::getPrimitiveById).filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     public Collection<String> getSourceTags() {
-        return sources.entrySet().stream().filter(entry -> validPrimitive(editable.getPrimitiveById(entry.getKey())))
-                .map(Map.Entry::getValue).filter(Objects::nonNull).distinct().sorted().collect(Collectors.toList());
+        final var sourceTags = new TreeSet<String>();
+        for (Map.Entry<OsmPrimitive, String> entry : sources.entrySet()) {
+            // Most additions have a single source, so only look the primitive up when the source is new
+            if (entry.getValue() != null && !sourceTags.contains(entry.getValue())
+                    && validPrimitive(editable.getPrimitiveById(entry.getKey()))) {
+                sourceTags.add(entry.getValue());
+            }
+        }
+        return new ArrayList<>(sourceTags);
     }
 
-    private static boolean validPrimitive(OsmPrimitive prim) {
+    /**
+     * Check if an added primitive should be counted as added
+     *
+     * @param prim The primitive in the OSM dataset
+     * @return {@code true} if the primitive exists and is not deleted (deleted
+     *         nodes are counted, since they are usually merged into other nodes)
+     */
+    public static boolean validPrimitive(OsmPrimitive prim) {
         return prim != null && (!prim.isDeleted() || prim instanceof Node);
     }
 
@@ -7,8 +7,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -16,7 +20,6 @@ import org.openstreetmap.josm.command.ChangePropertyCommand;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.command.SequenceCommand;
 import org.openstreetmap.josm.data.osm.DataSet;
-import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
@@ -24,7 +27,6 @@ import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
 import org.openstreetmap.josm.plugins.utilsplugin2.replacegeometry.ReplaceGeometryUtils;
-import org.openstreetmap.josm.tools.Geometry;
 
 /**
  * Merge buildings with pre-existing addresses
@@ -59,14 +61,18 @@ public class MergeAddressBuildings extends AbstractConflationCommand {
     public Command getRealCommand() {
         List<Command> commands = new ArrayList<>();
         if (MapWithAIPreferenceHelper.isMergeBuildingAddress()) {
-            final List<Node> mergedNodes = new ArrayList<>();
+            final List<OsmPrimitive> buildings = new ArrayList<>();
             possiblyAffectedPrimitives.stream().filter(Way.class::isInstance).map(Way.class::cast)
-                    .filter(way -> way.hasKey(KEY)).filter(Way::isClosed)
-                    .forEach(way -> commands.addAll(mergeAddressBuilding(getAffectedDataSet(), way, mergedNodes)));
-
+                    .filter(way -> way.hasKey(KEY)).filter(Way::isClosed).forEach(buildings::add);
             possiblyAffectedPrimitives.stream().filter(Relation.class::isInstance).map(Relation.class::cast)
-                    .filter(rel -> rel.hasKey(KEY)).filter(Relation::isMultipolygon)
-                    .forEach(rel -> commands.addAll(mergeAddressBuilding(getAffectedDataSet(), rel, mergedNodes)));
+                    .filter(rel -> rel.hasKey(KEY)).filter(Relation::isMultipolygon).forEach(buildings::add);
+            final Map<OsmPrimitive, Node> pairs = buildings.isEmpty() ? Collections.emptyMap()
+                    : new AddressBuildingJoin(getAffectedDataSet()).read(join -> findAddressNodes(join, buildings));
+            if (!pairs.isEmpty()) {
+                // Only building the commands needs the EDT, and it is done for all of the buildings at once
+                GuiHelper.runInEDTAndWait(() -> pairs.forEach(
+                        (building, node) -> commands.addAll(mergeAddressBuilding(building, node))));
+            }
         }
 
         Command returnCommand = null;
@@ -78,50 +84,59 @@ public class MergeAddressBuildings extends AbstractConflationCommand {
         return returnCommand;
     }
 
+    /**
+     * Find the address nodes to merge with buildings
+     *
+     * @param join      The join for the dataset
+     * @param buildings The buildings to find address nodes for
+     * @return The address node to merge into each building
+     */
+    private static Map<OsmPrimitive, Node> findAddressNodes(AddressBuildingJoin join,
+            Collection<OsmPrimitive> buildings) {
+        final Set<Node> mergedNodes = new HashSet<>();
+        final Map<OsmPrimitive, Node> pairs = new LinkedHashMap<>();
+        for (OsmPrimitive building : buildings) {
+            final List<Node> nodesWithAddresses = join.getNodesInside(building).stream()
+                    .filter(node -> !node.isDeleted())
+                    .filter(node -> node.keySet().stream().anyMatch(str -> str.startsWith("addr:")))
+                    .filter(node -> !mergedNodes.contains(node)).collect(Collectors.toList());
+            if (nodesWithAddresses.size() == 1 && nodesWithAddresses.get(0).getParentWays().isEmpty()) {
+                final Node node = nodesWithAddresses.get(0);
+                mergedNodes.add(node);
+                pairs.put(building, node);
+            }
+        }
+        return pairs;
+    }
+
     /**
      * Merge a building with an address node
      *
-     * @param affectedDataSet The dataset to use
-     * @param object          The object to merge with an address node
-     * @param mergedNodes     The nodes already merged. <i>This will be modified in
-     *                        this method!</i>
+     * @param object The object to merge with an address node
+     * @param node   The address node
      * @return The command to merge an address onto a building
      */
-    private static Collection<? extends Command> mergeAddressBuilding(DataSet affectedDataSet, OsmPrimitive object,
-            Collection<Node> mergedNodes) {
-        final List<IPrimitive> toCheck = new ArrayList<>(affectedDataSet.searchNodes(object.getBBox()));
-        toCheck.removeIf(IPrimitive::isDeleted);
-        final Collection<IPrimitive> nodesInside = Geometry.filterInsideAnyPolygon(toCheck, object);
-
-        final List<Node> nodesWithAddresses = nodesInside.stream().filter(Node.class::isInstance).map(Node.class::cast)
-                .filter(node -> node.keySet().stream().anyMatch(str -> str.startsWith("addr:")))
-                .filter(node -> !mergedNodes.contains(node)).collect(Collectors.toList());
-
+    private static Collection<? extends Command> mergeAddressBuilding(OsmPrimitive object, Node node) {
         final List<Command> commandList = new ArrayList<>();
-        if (nodesWithAddresses.size() == 1 && nodesWithAddresses.stream().allMatch(n -> n.getParentWays().isEmpty())) {
-            String currentKey = null;
-            Node node = nodesWithAddresses.get(0);
-            mergedNodes.add(node);
-            List<String> sources = new ArrayList<>();
-            try {
-                // Remove the key to avoid the popup from utilsplugin2
-                currentKey = object.get(KEY);
-                sources.add(object.get(SOURCE));
-                object.remove(KEY);
-                object.remove(SOURCE);
-                GuiHelper.runInEDTAndWait(
-                        () -> commandList.add(ReplaceGeometryUtils.buildUpgradeNodeCommand(node, object)));
-            } finally {
-                if (currentKey != null) {
-                    object.put(KEY, currentKey);
-                }
-                sources.add(node.get(SOURCE));
-                sources.removeIf(Objects::isNull);
-                sources = sources.stream().flatMap(source -> Stream.of(source.split(";", 0))).distinct()
-                        .filter(Objects::nonNull).sorted().collect(Collectors.toList());
-                if (!sources.isEmpty()) {
-                    commandList.add(new ChangePropertyCommand(object, SOURCE, String.join(";", sources)));
-                }
+        String currentKey = null;
+        List<String> sources = new ArrayList<>();
+        try {
+            // Remove the key to avoid the popup from utilsplugin2
+            currentKey = object.get(KEY);
+            sources.add(object.get(SOURCE));
+            object.remove(KEY);
+            object.remove(SOURCE);
+            commandList.add(ReplaceGeometryUtils.buildUpgradeNodeCommand(node, object));
+        } finally {
+            if (currentKey != null) {
+                object.put(KEY, currentKey);
+            }
+            sources.add(node.get(SOURCE));
+            sources.removeIf(Objects::isNull);
+            sources = sources.stream().flatMap(source -> Stream.of(source.split(";", 0))).distinct()
+                    .filter(Objects::nonNull).sorted().collect(Collectors.toList());
+            if (!sources.isEmpty()) {
+                commandList.add(new ChangePropertyCommand(object, SOURCE, String.join(";", sources)));
             }
         }
         return commandList;
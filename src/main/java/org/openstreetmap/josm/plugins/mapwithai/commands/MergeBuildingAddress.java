@@ -7,8 +7,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -19,14 +20,9 @@ import org.openstreetmap.josm.command.DeleteCommand;
 import org.openstreetmap.josm.command.SequenceCommand;
 import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
-import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
-import org.openstreetmap.josm.data.osm.Relation;
-import org.openstreetmap.josm.data.osm.Way;
-import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
-import org.openstreetmap.josm.tools.Geometry;
 
 /**
  * Merge addresses with pre-existing buildings
@@ -60,9 +56,12 @@ public class MergeBuildingAddress extends AbstractConflationCommand {
     public Command getRealCommand() {
         List<Command> commands = new ArrayList<>();
         if (MapWithAIPreferenceHelper.isMergeBuildingAddress()) {
-            possiblyAffectedPrimitives.stream().filter(Node.class::isInstance).map(Node.class::cast)
-                    .filter(n -> n.hasKey(KEY))
-                    .forEach(n -> commands.addAll(mergeBuildingAddress(getAffectedDataSet(), n)));
+            final List<Node> nodes = possiblyAffectedPrimitives.stream().filter(Node.class::isInstance)
+                    .map(Node.class::cast).filter(n -> n.hasKey(KEY)).collect(Collectors.toList());
+            if (!nodes.isEmpty()) {
+                commands.addAll(new AddressBuildingJoin(getAffectedDataSet())
+                        .read(join -> mergeBuildingAddresses(join, nodes)));
+            }
         }
 
         Command returnCommand = null;
@@ -74,14 +73,29 @@ public class MergeBuildingAddress extends AbstractConflationCommand {
         return returnCommand;
     }
 
-    private Collection<Command> mergeBuildingAddress(DataSet affectedDataSet, Node node) {
-        final List<OsmPrimitive> toCheck = new ArrayList<>();
-        final BBox bbox = new BBox(node.lon(), node.lat(), 0.001);
-        GuiHelper.runInEDTAndWait(() -> {
-            toCheck.addAll(affectedDataSet.searchWays(bbox));
-            toCheck.addAll(affectedDataSet.searchRelations(bbox));
-            toCheck.addAll(affectedDataSet.searchNodes(bbox));
-        });
+    /**
+     * Merge addresses with buildings. All of the buildings near the addresses are
+     * prepared at once, so that each building is only converted to an area once.
+     *
+     * @param join  The join for the dataset
+     * @param nodes The address nodes
+     * @return The commands to merge the addresses
+     */
+    private List<Command> mergeBuildingAddresses(AddressBuildingJoin join, Collection<Node> nodes) {
+        final Map<Node, List<OsmPrimitive>> nearby = new LinkedHashMap<>(nodes.size());
+        for (Node node : nodes) {
+            nearby.put(node, join.search(new BBox(node.lon(), node.lat(), 0.001)));
+        }
+        join.prepareAll(nearby.values().stream().flatMap(List::stream)
+                .filter(prim -> !(prim instanceof Node) && !prim.isDeleted() && prim.hasTag("building"))
+                .collect(Collectors.toList()));
+        final List<Command> commandList = new ArrayList<>();
+        nearby.forEach((node, toCheck) -> commandList.addAll(mergeBuildingAddress(join, node, toCheck)));
+        return commandList;
+    }
+
+    private Collection<Command> mergeBuildingAddress(AddressBuildingJoin join, Node node,
+            List<OsmPrimitive> toCheck) {
         List<OsmPrimitive> possibleDuplicates = toCheck.stream().filter(prim -> !prim.isDeleted() && prim.hasTag(KEY))
                 .filter(prim -> prim.get(KEY).equals(node.get(KEY)))
                 .filter(prim -> !prim.equals(node) && !this.possiblyAffectedPrimitives.contains(prim))
@@ -93,8 +107,7 @@ public class MergeBuildingAddress extends AbstractConflationCommand {
             }
         }
 
-        List<OsmPrimitive> buildings = toCheck.stream().filter(prim -> prim.hasTag("building"))
-                .filter(prim -> checkInside(node, prim)).collect(Collectors.toList());
+        List<OsmPrimitive> buildings = join.getContaining(node);
 
         final List<Command> commandList = new ArrayList<>();
         List<String> sources = new ArrayList<>();
@@ -108,7 +121,7 @@ public class MergeBuildingAddress extends AbstractConflationCommand {
             }
             commandList.add(DeleteCommand.delete(Collections.singleton(node)));
             object = possibleDuplicates.get(0);
-        } else if (buildings.size() == 1 && getAddressPoints(buildings.get(0)).size() == 1) {
+        } else if (buildings.size() == 1 && getAddressPoints(join, buildings.get(0)).size() == 1) {
             commandList.add(new ChangePropertyCommand(buildings, node.getKeys()));
             commandList.add(DeleteCommand.delete(Collections.singleton(node)));
             object = buildings.get(0);
@@ -127,33 +140,11 @@ public class MergeBuildingAddress extends AbstractConflationCommand {
         return commandList;
     }
 
-    private static Collection<Node> getAddressPoints(OsmPrimitive prim) {
-        BBox bbox = prim.getBBox();
-        final Collection<IPrimitive> searchCollection = new HashSet<>();
-        searchCollection.addAll(prim.getDataSet().searchNodes(bbox));
-        searchCollection.addAll(prim.getDataSet().searchWays(bbox));
-        searchCollection.addAll(prim.getDataSet().searchRelations(bbox));
-        return Geometry.filterInsideAnyPolygon(searchCollection, prim).stream().filter(p -> !p.isDeleted())
-                .filter(Node.class::isInstance).map(Node.class::cast).filter(n -> n.hasTag(KEY))
+    private static Collection<Node> getAddressPoints(AddressBuildingJoin join, OsmPrimitive prim) {
+        return join.getNodesInside(prim).stream().filter(p -> !p.isDeleted()).filter(n -> n.hasTag(KEY))
                 .collect(Collectors.toList());
     }
 
-    /**
-     * Check if the node is inside the other primitive
-     *
-     * @param node The node to check
-     * @param prim The primitive that the node may be inside
-     * @return true if the node is inside the primitive
-     */
-    private static boolean checkInside(Node node, OsmPrimitive prim) {
-        if (prim instanceof Relation) {
-            return !Geometry.filterInsideMultipolygon(Collections.singleton(node), (Relation) prim).isEmpty();
-        } else if (prim instanceof Way) {
-            return !Geometry.filterInsidePolygon(Collections.singletonList(node), (Way) prim).isEmpty();
-        }
-        return false;
-    }
-
     @Override
     public boolean allowUndo() {
         return false;
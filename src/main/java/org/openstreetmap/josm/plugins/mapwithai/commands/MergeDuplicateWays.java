@@ -14,7 +14,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.openstreetmap.josm.command.ChangeCommand;
@@ -26,6 +28,8 @@ import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.projection.Ellipsoid;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIDataUtils;
 import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Pair;
@@ -38,6 +42,18 @@ import jakarta.annotation.Nullable;
  */
 public class MergeDuplicateWays extends Command {
     public static final String ORIG_ID = "orig_id";
+    /** The minimum number of ways to look through in each thread */
+    private static final int MINIMUM_PARTITION_SIZE = 256;
+
+    /**
+     * A planned merge
+     *
+     * @param way1       The way to keep
+     * @param way2       The way to merge into way1
+     * @param compressed The duplicate nodes of the ways
+     */
+    private record MergePlan(Way way1, Way way2, Set<Pair<Pair<Integer, Node>, Pair<Integer, Node>>> compressed) {
+    }
 
     private final List<Way> ways;
 
@@ -160,24 +176,112 @@ public class MergeDuplicateWays extends Command {
      */
     public static void filterDataSet(@Nonnull DataSet dataSet, @Nonnull List<Command> commands,
             @Nullable Bounds bound) {
-        final List<Way> ways = (bound == null ? dataSet.getWays() : dataSet.searchWays(bound.toBBox())).stream()
-                .filter(prim -> !prim.isIncomplete() && !prim.isDeleted())
-                .collect(Collectors.toCollection(ArrayList::new));
-        for (var i = 0; i < ways.size(); i++) {
+        filterWays(bound == null ? dataSet.getWays() : dataSet.searchWays(bound.toBBox()), commands);
+    }
+
+    /**
+     * Look for duplicates in a region. The ways are indexed once, so that only
+     * ways with nodes near the nodes of a way are checked as duplicates.
+     * <p>
+     * Duplicates are found in parallel without modifying the data, and then the
+     * merges are applied one after another (in a single dataset update).
+     *
+     * @param ways     The ways in the region (only duplicates with other ways in
+     *                 the region are found)
+     * @param commands The command list to add the executed merge commands to
+     */
+    public static void filterWays(@Nonnull Collection<Way> ways, @Nonnull List<Command> commands) {
+        final var regionWays = ways.stream().filter(way -> !way.isIncomplete())
+                .filter(MergeDuplicateWays::nonDeletedWay).toList();
+        if (regionWays.isEmpty()) {
+            return;
+        }
+        final var sweep = new DuplicateWaySweep(regionWays);
+        final var plans = findMerges(regionWays, sweep);
+        final var dataSet = regionWays.get(0).getDataSet();
+        if (dataSet == null) {
+            applyMerges(plans, sweep, commands);
+        } else {
+            dataSet.update(() -> applyMerges(plans, sweep, commands));
+        }
+    }
+
+    /**
+     * Find the ways to merge, without modifying the ways
+     *
+     * @param ways  The ways to look through
+     * @param sweep The index of the ways
+     * @return The planned merges, in the order of the ways
+     */
+    private static List<MergePlan> findMerges(List<Way> ways, DuplicateWaySweep sweep) {
+        if (!MapWithAIPreferenceHelper.isParallelCleanup() || ways.size() < MINIMUM_PARTITION_SIZE) {
+            return findMerges(ways, sweep, 0, ways.size());
+        }
+        final var pool = MapWithAIDataUtils.getForkJoinPool();
+        final int partitions = Math.max(1, Math.min(4 * pool.getParallelism(), ways.size() / MINIMUM_PARTITION_SIZE));
+        final int partitionSize = (ways.size() + partitions - 1) / partitions;
+        final var tasks = new ArrayList<ForkJoinTask<List<MergePlan>>>(partitions);
+        for (var start = 0; start < ways.size(); start += partitionSize) {
+            final int from = start;
+            final int to = Math.min(ways.size(), start + partitionSize);
+            tasks.add(pool.submit(() -> findMerges(ways, sweep, from, to)));
+        }
+        final var plans = new ArrayList<MergePlan>();
+        tasks.forEach(task -> plans.addAll(task.join()));
+        return plans;
+    }
+
+    private static List<MergePlan> findMerges(List<Way> ways, DuplicateWaySweep sweep, int from, int to) {
+        final var plans = new ArrayList<MergePlan>();
+        for (var i = from; i < to; i++) {
             final var way1 = ways.get(i);
-            final var nearbyWays = dataSet.searchWays(way1.getBBox()).stream().filter(MergeDuplicateWays::nonDeletedWay)
-                    .filter(w -> !Objects.equals(w, way1)).toList();
-            for (final Way way2 : nearbyWays) {
-                final var command = checkForDuplicateWays(way1, way2);
-                final var deletedWays = new ArrayList<OsmPrimitive>();
+            for (var way2 : sweep.getCandidates(way1)) {
+                if (nonDeletedWay(way2)) {
+                    final var compressed = getMergeableNodes(way1, way2);
+                    if (compressed != null) {
+                        plans.add(new MergePlan(way1, way2, compressed));
+                    }
+                }
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * Apply planned merges. Plans for ways that have been changed by an earlier
+     * merge are checked again, and changed ways are checked for new duplicates
+     * afterwards.
+     *
+     * @param plans    The planned merges
+     * @param sweep    The index of the ways
+     * @param commands The command list to add the executed merge commands to
+     */
+    private static void applyMerges(List<MergePlan> plans, DuplicateWaySweep sweep, List<Command> commands) {
+        final var changed = new LinkedHashSet<Way>();
+        for (var plan : plans) {
+            if (nonDeletedWay(plan.way1()) && nonDeletedWay(plan.way2())) {
+                final var command = changed.contains(plan.way1()) || changed.contains(plan.way2())
+                        ? checkForDuplicateWays(plan.way1(), plan.way2())
+                        : mergeWays(plan.way1(), plan.way2(), plan.compressed());
                 if (command != null) {
-                    commands.add(command);
                     command.executeCommand();
-                    command.fillModifiedData(new ArrayList<>(), deletedWays, new ArrayList<>());
-                    if (!deletedWays.contains(way1) && !deletedWays.contains(way2)) {
+                    commands.add(command);
+                    changed.add(plan.way1());
+                }
+            }
+        }
+        // Merged ways may now duplicate ways that were only near the ways merged into them
+        final var queue = new ArrayList<>(changed);
+        while (!queue.isEmpty()) {
+            final var way1 = queue.remove(queue.size() - 1);
+            for (var way2 : sweep.getCandidates(way1)) {
+                if (nonDeletedWay(way1) && nonDeletedWay(way2)) {
+                    final var command = checkForDuplicateWays(way1, way2);
+                    if (command != null) {
+                        command.executeCommand();
                         commands.add(command);
+                        queue.add(way1);
                     }
-                    ways.remove(way2);
                 }
             }
         }
@@ -212,7 +316,21 @@ public class MergeDuplicateWays extends Command {
      * @return non-null command if they are duplicate ways
      */
     public static Command checkForDuplicateWays(Way way1, Way way2) {
-        Command returnCommand = null;
+        final var compressed = getMergeableNodes(way1, way2);
+        return compressed == null ? null : mergeWays(way1, way2, compressed);
+    }
+
+    /**
+     * Check if ways are (partial) duplicates. This does not modify the ways, so
+     * it may be called from multiple threads.
+     *
+     * @param way1 A way to check
+     * @param way2 A way to check
+     * @return The duplicate nodes to use with {@link #mergeWays}, or {@code null}
+     *         if the ways are not duplicates
+     */
+    @Nullable
+    static Set<Pair<Pair<Integer, Node>, Pair<Integer, Node>>> getMergeableNodes(Way way1, Way way2) {
         final Map<Pair<Integer, Node>, Map<Integer, Node>> duplicateNodes = getDuplicateNodes(way1, way2);
         final Set<Map.Entry<Pair<Integer, Node>, Map<Integer, Node>>> duplicateEntrySet = duplicateNodes.entrySet();
         final Set<Pair<Pair<Integer, Node>, Pair<Integer, Node>>> compressed = duplicateNodes.entrySet().stream()
@@ -229,12 +347,12 @@ public class MergeDuplicateWays extends Command {
             final var initial = compressed.stream().map(entry -> entry.a.a).sorted().toList();
             final var after = compressed.stream().map(entry -> entry.b.a).sorted().toList();
             if (sorted(initial) && sorted(after)) {
-                returnCommand = mergeWays(way1, way2, compressed);
+                return compressed;
             }
         } else if (compressed.isEmpty() && way1.hasKey(ORIG_ID) && way1.get(ORIG_ID).equals(way2.get(ORIG_ID))) {
-            returnCommand = mergeWays(way1, way2, compressed);
+            return compressed;
         }
-        return returnCommand;
+        return null;
     }
 
     /**
@@ -376,21 +494,93 @@ public class MergeDuplicateWays extends Command {
      */
     public static Map<Pair<Integer, Node>, Map<Integer, Node>> getDuplicateNodes(Way way1, Way way2) {
         final var duplicateNodes = new LinkedHashMap<Pair<Integer, Node>, Map<Integer, Node>>();
+        final double maxDistance = MapWithAIPreferenceHelper.getMaxNodeDistance();
+        // way2 nodes sorted by latitude, so only nodes in a latitude band around each way1 node are checked
+        final int[] sorted = IntStream.range(0, way2.getNodesCount()).filter(k -> way2.getNode(k).isLatLonKnown())
+                .boxed().sorted(Comparator.comparingDouble(k -> way2.getNode(k).lat())).mapToInt(Integer::intValue)
+                .toArray();
+        final int[] unknown = IntStream.range(0, way2.getNodesCount())
+                .filter(k -> !way2.getNode(k).isLatLonKnown()).toArray();
+        final var latitudes = new double[sorted.length];
+        final var cosines = new double[sorted.length];
+        for (var i = 0; i < sorted.length; i++) {
+            latitudes[i] = way2.getNode(sorted[i]).lat();
+            cosines[i] = Math.cos(Math.toRadians(latitudes[i]));
+        }
+        // Points closer than maxDistance are closer than this angle in latitude (with a margin for rounding)
+        final double maxAngle = 1.01 * maxDistance / Ellipsoid.WGS84.a;
+        final double maxLatitude = Math.toDegrees(maxAngle);
         for (var j = 0; j < way1.getNodesCount(); j++) {
             final var origNode = way1.getNode(j);
-            for (var k = 0; k < way2.getNodesCount(); k++) {
-                final var possDupeNode = way2.getNode(k);
-                if (origNode.equals(possDupeNode) || (origNode
-                        .greatCircleDistance(possDupeNode) < MapWithAIPreferenceHelper.getMaxNodeDistance())) {
-                    final var origNodePair = new Pair<>(j, origNode);
-                    final var dupeNodeMap = duplicateNodes.computeIfAbsent(origNodePair, ignored -> new HashMap<>());
-                    dupeNodeMap.put(k, possDupeNode);
+            final var duplicates = new HashMap<Integer, Node>();
+            if (origNode.isLatLonKnown()) {
+                final double cosine = Math.cos(Math.toRadians(origNode.lat()));
+                for (var i = lowerBound(latitudes, origNode.lat() - maxLatitude); i < sorted.length
+                        && latitudes[i] <= origNode.lat() + maxLatitude; i++) {
+                    final var possDupeNode = way2.getNode(sorted[i]);
+                    if (origNode.equals(possDupeNode)
+                            || (isPossiblyNear(origNode, possDupeNode, cosine * cosines[i], maxAngle)
+                                    && origNode.greatCircleDistance(possDupeNode) < maxDistance)) {
+                        duplicates.put(sorted[i], possDupeNode);
+                    }
+                }
+            }
+            // Nodes without coordinates can only be duplicates of themselves
+            for (var k : unknown) {
+                if (origNode.equals(way2.getNode(k))) {
+                    duplicates.put(k, way2.getNode(k));
                 }
             }
+            if (!duplicates.isEmpty()) {
+                duplicateNodes.put(new Pair<>(j, origNode), duplicates);
+            }
         }
         return duplicateNodes;
     }
 
+    /**
+     * Check if two nodes may be within an angle of each other, without
+     * trigonometry. This uses the haversine formula, with
+     * {@code sin(x/2) >= x/pi} for the longitude difference.
+     *
+     * @param node1    The first node
+     * @param node2    The second node
+     * @param cosines  The product of the cosines of the node latitudes
+     * @param maxAngle The maximum angle between the nodes, in radians
+     * @return {@code false} if the nodes are definitely further apart than the
+     *         angle
+     */
+    private static boolean isPossiblyNear(Node node1, Node node2, double cosines, double maxAngle) {
+        var longitude = Math.abs(Math.toRadians(node1.lon() - node2.lon()));
+        if (longitude > Math.PI) {
+            longitude = 2 * Math.PI - longitude;
+        }
+        final double maximum = maxAngle * Math.PI / 2;
+        return cosines * longitude * longitude < maximum * maximum;
+    }
+
+    /**
+     * Get the first index with a value that is not less than the key
+     *
+     * @param sorted The sorted values
+     * @param key    The key to search for
+     * @return The index of the first value that is greater than or equal to the
+     *         key
+     */
+    private static int lowerBound(double[] sorted, double key) {
+        var low = 0;
+        var high = sorted.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
     @Override
     public String getDescriptionText() {
         return tr("Merge ways");
@@ -4,29 +4,26 @@ package org.openstreetmap.josm.plugins.mapwithai.commands;
 import static org.openstreetmap.josm.tools.I18n.tr;
 import static org.openstreetmap.josm.tools.I18n.trn;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
-import org.openstreetmap.josm.command.AddPrimitivesCommand;
-import org.openstreetmap.josm.command.ChangePropertyCommand;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.command.DeleteCommand;
 import org.openstreetmap.josm.command.SequenceCommand;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
-import org.openstreetmap.josm.data.osm.visitor.MergeSourceBuildingVisitor;
-import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.datatransfer.data.PrimitiveTransferData;
 import org.openstreetmap.josm.plugins.mapwithai.MapWithAIPlugin;
 import org.openstreetmap.josm.plugins.mapwithai.backend.GetDataRunnable;
-import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIDataUtils;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.bugreport.ReportedException;
 
 /**
@@ -36,6 +33,7 @@ import org.openstreetmap.josm.tools.bugreport.ReportedException;
  */
 public class MovePrimitiveDataSetCommand extends Command {
     private Command command;
+    private DataSet from;
 
     /**
      * Move primitives from one dataset to another
@@ -50,6 +48,7 @@ public class MovePrimitiveDataSetCommand extends Command {
             Logging.error("{0}: Cannot move primitives from {1} to {2}", MapWithAIPlugin.NAME, from, to);
         } else {
             command = moveCollection(from, to, primitives);
+            this.from = from;
         }
     }
 
@@ -69,6 +68,7 @@ public class MovePrimitiveDataSetCommand extends Command {
             Logging.error("{0}: Cannot move primitives from {1} to {2}", MapWithAIPlugin.NAME, from, to);
         } else {
             command = moveCollection(from, to, primitives, primitiveData);
+            this.from = from;
         }
     }
 
@@ -79,12 +79,27 @@ public class MovePrimitiveDataSetCommand extends Command {
             if (command instanceof DeleteCommand) {
                 command.undoCommand();
             } else {
-                command.getAffectedDataSet().update(command::executeCommand);
+                update(command::executeCommand);
             }
         }
         return true;
     }
 
+    /**
+     * Run a change while both datasets are being updated, so that listeners get
+     * one event per dataset instead of one event per moved primitive
+     *
+     * @param change The change to run
+     */
+    private void update(Runnable change) {
+        final DataSet to = command.getAffectedDataSet();
+        if (from == null || from.equals(to)) {
+            to.update(change);
+        } else {
+            to.update(() -> from.update(change));
+        }
+    }
+
     /**
      * Move primitives from one dataset to another
      *
@@ -111,13 +126,17 @@ public class MovePrimitiveDataSetCommand extends Command {
             Collection<PrimitiveData> primitiveData) {
         final var commands = new ArrayList<Command>();
 
-        final var selected = from.getAllSelected();
-        GuiHelper.runInEDTAndWait(() -> from.setSelected(selection));
-        final var builder = new MergeSourceBuildingVisitor(from);
-        final var hull = builder.build();
-        GuiHelper.runInEDTAndWait(() -> from.setSelected(selected));
-
-        final var primitiveAddData = hull.allPrimitives().stream().map(OsmPrimitive::save).toList();
+        // Copy the primitives from a snapshot, instead of changing the selection (which must happen on the EDT)
+        final Collection<PrimitiveData> primitiveAddData;
+        final Command delete;
+        final var lock = from.getReadLock();
+        lock.lock();
+        try {
+            primitiveAddData = PrimitiveTransferData.getDataWithReferences(selection).getAll();
+            delete = CompactDeletePrimitivesCommand.delete(getPrimitivesToDelete(selection));
+        } finally {
+            lock.unlock();
+        }
         primitiveAddData.stream().map(data -> {
             if (data.getUniqueId() > 0) {
                 // Don't do this with conn data?
@@ -127,31 +146,9 @@ public class MovePrimitiveDataSetCommand extends Command {
         }).forEach(data -> data.remove(GetDataRunnable.MAPWITHAI_SOURCE_TAG_KEY));
         primitiveData.addAll(primitiveAddData);
 
-        commands.add(new AddPrimitivesCommand(primitiveAddData,
-                selection.stream().map(OsmPrimitive::save).collect(Collectors.toList()), to));
-        final var removeKeyCommand = new ArrayList<Command>();
-        final var fullSelection = new HashSet<OsmPrimitive>();
-        MapWithAIDataUtils.addPrimitivesToCollection(fullSelection, selection);
-        if (!fullSelection.isEmpty()) {
-            CreateConnectionsCommand.getConflationCommands().forEach(clazz -> {
-                try {
-                    removeKeyCommand.add(new ChangePropertyCommand(fullSelection,
-                            clazz.getConstructor(DataSet.class).newInstance(from).getKey(), null));
-                } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-                        | InvocationTargetException | NoSuchMethodException | SecurityException e) {
-                    Logging.error(e);
-                }
-            });
-        }
-        Command delete;
-        if (!removeKeyCommand.isEmpty()) {
-            final var sequence = new SequenceCommand("Temporary Command", removeKeyCommand);
-            sequence.executeCommand(); // This *must* be executed for the delete command to get everything.
-            delete = DeleteCommand.delete(selection, true, true);
-            sequence.undoCommand();
-        } else {
-            delete = DeleteCommand.delete(selection, true, true);
-        }
+        // Only the ids of the selection are needed to select it after the move
+        commands.add(new CompactAddPrimitivesCommand(primitiveAddData,
+                selection.stream().map(OsmPrimitive::getPrimitiveId).toList(), to));
         commands.add(delete);
         commands.removeIf(Objects::isNull);
 
@@ -162,6 +159,28 @@ public class MovePrimitiveDataSetCommand extends Command {
         return null;
     }
 
+    /**
+     * Get the primitives to delete from the originating dataset. This is the
+     * selection, and the nodes of selected ways that are not used elsewhere and that
+     * would not have any interesting tags without the conflation keys.
+     *
+     * @param selection The primitives to move
+     * @return The primitives to delete
+     */
+    private static Collection<OsmPrimitive> getPrimitivesToDelete(Collection<OsmPrimitive> selection) {
+        final var keys = ConflationCommandRegistry.getKeys();
+        final var toDelete = new LinkedHashSet<OsmPrimitive>(selection);
+        for (var way : Utils.filteredCollection(selection, Way.class)) {
+            for (var node : way.getNodes()) {
+                if (!toDelete.contains(node) && keys.containsAll(node.getInterestingTags().keySet())
+                        && toDelete.containsAll(node.getReferrers())) {
+                    toDelete.add(node);
+                }
+            }
+        }
+        return toDelete;
+    }
+
     @Override
     public void undoCommand() {
         if (command != null) {
@@ -169,7 +188,7 @@ public class MovePrimitiveDataSetCommand extends Command {
                 if (command instanceof DeleteCommand) {
                     command.executeCommand();
                 } else {
-                    command.undoCommand();
+                    update(command::undoCommand);
                 }
             } catch (ReportedException | AssertionError e) {
                 if (!e.getMessage().contains("Primitive is of wrong data set for this command")) {
@@ -0,0 +1,80 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands.cleanup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import org.openstreetmap.josm.actions.SimplifyWayAction;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIDataUtils;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Simplify many ways at once. The simplification of each way only reads the
+ * dataset, so the ways are simplified in parallel while holding the read lock,
+ * and the commands are then run together.
+ *
+ * @author Taylor Smock
+ */
+final class BatchWaySimplifier {
+    /**
+     * The simplification of a way
+     *
+     * @param way          The way to simplify
+     * @param command      The command that simplifies the way
+     * @param removedNodes The number of nodes that the command removes
+     */
+    record Simplification(Way way, Command command, int removedNodes) {
+        /**
+         * Check if the way has too many nodes
+         *
+         * @param acceptableRemovalPercentage The percentage of nodes that may be
+         *                                    removed before a way is over-noded
+         * @return {@code true} if simplifying the way removes more nodes than is
+         *         acceptable
+         */
+        boolean isOverNoded(int acceptableRemovalPercentage) {
+            return (removedNodes / (double) way.getNodesCount()) * 100 > acceptableRemovalPercentage;
+        }
+    }
+
+    private BatchWaySimplifier() {
+        // Hide constructor
+    }
+
+    /**
+     * Simplify ways
+     *
+     * @param dataSet   The dataset with the ways
+     * @param ways      The ways to simplify
+     * @param threshold The maximum error, in meters
+     * @return The simplifications of the ways that can be simplified, in the
+     *         order of the ways
+     */
+    static List<Simplification> simplify(DataSet dataSet, Collection<Way> ways, double threshold) {
+        final var toSimplify = new ArrayList<>(ways);
+        final var lock = dataSet.getReadLock();
+        lock.lock();
+        try {
+            return MapWithAIDataUtils.getForkJoinPool().submit(() -> toSimplify.parallelStream()
+                    .map(way -> simplify(way, threshold)).filter(Objects::nonNull).toList()).join();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Simplification simplify(Way way, double threshold) {
+        final Command command = SimplifyWayAction.createSimplifyCommand(way, threshold);
+        if (command == null) {
+            return null;
+        }
+        final int removedNodes = Utils
+                .filteredCollection(new ArrayList<>(command.getParticipatingPrimitives()), Node.class).size();
+        return new Simplification(way, command, removedNodes);
+    }
+}
@@ -5,14 +5,18 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import javax.swing.JOptionPane;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -35,11 +39,12 @@ import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.AbstractOsmDataLayer;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
 import org.openstreetmap.josm.plugins.mapwithai.commands.AbstractConflationCommand;
-import org.openstreetmap.josm.plugins.mapwithai.commands.CreateConnectionsCommand;
+import org.openstreetmap.josm.plugins.mapwithai.commands.ConflationCommandRegistry;
+import org.openstreetmap.josm.plugins.mapwithai.commands.ConflationDecisionReport;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Geometry;
-import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -76,9 +81,11 @@ public class MissingConnectionTags extends AbstractConflationCommand {
         precision = Config.getPref().getDouble("validator.duplicatenodes.precision", 0.);
         // precision is in meters
         precision = precision == 0 ? 1 : precision;
-        final var current = MainApplication.getLayerManager().getActiveLayer();
+        // Without the user, there is no reason to change the view
+        final var interactive = MapWithAIPreferenceHelper.isInteractiveConflation();
+        final var current = interactive ? MainApplication.getLayerManager().getActiveLayer() : null;
         final var ways = Utils.filteredCollection(possiblyAffectedPrimitives, Way.class);
-        if (!ways.isEmpty()) {
+        if (interactive && !ways.isEmpty()) {
             final var ds = this.getAffectedDataSet();
             MainApplication.getLayerManager().getLayersOfType(AbstractOsmDataLayer.class).stream()
                     .filter(d -> ds.equals(d.getDataSet())).findAny()
@@ -96,7 +103,9 @@ public class MissingConnectionTags extends AbstractConflationCommand {
         if (current != null) {
             MainApplication.getLayerManager().setActiveLayer(current);
         }
-        GuiHelper.runInEDT(() -> getAffectedDataSet().setSelected(selection));
+        if (interactive) {
+            GuiHelper.runInEDT(() -> getAffectedDataSet().setSelected(selection));
+        }
         if (commands.size() == 1) {
             return commands.iterator().next();
         } else if (!commands.isEmpty()) {
@@ -111,6 +120,12 @@ public class MissingConnectionTags extends AbstractConflationCommand {
                     || issue.getPrimitives().stream().anyMatch(IPrimitive::isDeleted)) {
                 continue;
             }
+            if (!MapWithAIPreferenceHelper.isInteractiveConflation()) {
+                // The default is to not add the conflation key, since it may not be correct
+                ConflationDecisionReport.getInstance(getAffectedDataSet()).defer(getClass(), issue.getFix().getDescriptionText(),
+                        issue.getPrimitives());
+                continue;
+            }
             GuiHelper.runInEDT(() -> getAffectedDataSet().setSelected(issue.getPrimitives()));
             final var primitives = issue.getPrimitives();
             if (primitives.stream().noneMatch(Node.class::isInstance)) {
@@ -132,63 +147,106 @@ public class MissingConnectionTags extends AbstractConflationCommand {
     }
 
     /**
-     * Find nodes that may be missing a dupe tag
+     * Find nodes that may be missing a dupe tag. The duplicate node test is run
+     * once for the nodes near all of the ways, and the errors are then mapped back
+     * to the nodes of the ways.
      *
      * @param possiblyAffectedPrimitives The primitives that may be affected
      * @return The issues
      */
     protected static Collection<TestError> findDuplicateNodes(Collection<OsmPrimitive> possiblyAffectedPrimitives) {
-        final var issues = new ArrayList<TestError>();
-        final var duplicateNodeTest = new DuplicateNode();
+        final var wayNodes = new LinkedHashSet<Node>();
+        final var nearNodes = new LinkedHashSet<Node>();
         for (var way : Utils.filteredCollection(possiblyAffectedPrimitives, Way.class)) {
             for (var node : way.getNodes()) {
-                duplicateNodeTest.startTest(NullProgressMonitor.INSTANCE);
-                final var searchBBox = node.getBBox();
-                searchBBox.addPrimitive(node, 0.001);
-                way.getDataSet().searchNodes(searchBBox).stream().filter(MissingConnectionTags::noConflationKey)
-                        .forEach(duplicateNodeTest::visit);
-                duplicateNodeTest.endTest();
-                final var dupeNodes = duplicateNodeTest.getErrors().stream()
-                        .filter(e -> e.getPrimitives().contains(node)).flatMap(e -> e.getPrimitives().stream())
-                        .distinct()
-                        .filter(p -> !p.isDeleted() && !p.equals(node) && noConflationKey(p) && p.getOsmId() > 0)
-                        .toList();
-                if (duplicateNodeTest.getErrors().isEmpty() || dupeNodes.isEmpty()) {
-                    continue;
+                if (wayNodes.add(node)) {
+                    final var searchBBox = node.getBBox();
+                    searchBBox.addPrimitive(node, 0.001);
+                    way.getDataSet().searchNodes(searchBBox).stream().filter(MissingConnectionTags::noConflationKey)
+                            .forEach(nearNodes::add);
                 }
-                final var dupes = duplicateNodeTest.getErrors().stream().filter(e -> e.getPrimitives().contains(node))
-                        .flatMap(e -> e.getPrimitives().stream()).distinct()
-                        .filter(p -> !p.isDeleted() && !p.equals(node)).map(OsmPrimitive::getPrimitiveId)
-                        .map(Object::toString).toList();
+            }
+        }
+        if (nearNodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final var duplicateNodeTest = new DuplicateNode();
+        duplicateNodeTest.startTest(NullProgressMonitor.INSTANCE);
+        nearNodes.forEach(duplicateNodeTest::visit);
+        duplicateNodeTest.endTest();
+        final var errors = mapErrors(duplicateNodeTest.getErrors());
+        duplicateNodeTest.clear();
 
-                final var initial = duplicateNodeTest.getErrors().get(0);
-                final var prims = new ArrayList<OsmPrimitive>(dupeNodes);
-                prims.add(node);
-                issues.add(TestError.builder(initial.getTester(), initial.getSeverity(), initial.getCode())
-                        .message(initial.getMessage()).primitives(prims)
-                        .fix(() -> new ChangePropertyCommand(node, "dupe", String.join(",", dupes))).build());
-                duplicateNodeTest.clear();
+        final var issues = new ArrayList<TestError>();
+        for (var node : wayNodes) {
+            final var nodeErrors = errors.getOrDefault(node, Collections.emptyList());
+            final var dupeNodes = nodeErrors.stream().flatMap(e -> e.getPrimitives().stream()).distinct()
+                    .filter(p -> !p.isDeleted() && !p.equals(node) && noConflationKey(p) && p.getOsmId() > 0)
+                    .toList();
+            if (dupeNodes.isEmpty()) {
+                continue;
             }
+            final var dupes = nodeErrors.stream().flatMap(e -> e.getPrimitives().stream()).distinct()
+                    .filter(p -> !p.isDeleted() && !p.equals(node)).map(OsmPrimitive::getPrimitiveId)
+                    .map(Object::toString).toList();
+
+            final var initial = nodeErrors.get(0);
+            final var prims = new ArrayList<OsmPrimitive>(dupeNodes);
+            prims.add(node);
+            issues.add(TestError.builder(initial.getTester(), initial.getSeverity(), initial.getCode())
+                    .message(initial.getMessage()).primitives(prims)
+                    .fix(() -> new ChangePropertyCommand(node, "dupe", String.join(",", dupes))).build());
         }
         return issues;
     }
 
     /**
-     * Find nodes that may be missing a conn tag
+     * Find nodes that may be missing a conn tag. The crossing ways test is run
+     * once for the highways near all of the ways, and each error is then given to
+     * the ways whose search area had all of the ways of the error.
      *
      * @param possiblyAffectedPrimitives The primitives that may be affected
      * @return The issues found
      */
     protected Collection<TestError> findCrossingWaysAtNodes(Collection<OsmPrimitive> possiblyAffectedPrimitives) {
-        final var issues = new ArrayList<TestError>();
+        final var ways = Utils.filteredCollection(possiblyAffectedPrimitives, Way.class);
+        // The affected ways that had a highway in their search area
+        final var searchedBy = new LinkedHashMap<Way, List<Way>>();
+        for (var way : ways) {
+            way.getDataSet().searchWays(way.getBBox()).stream().filter(w -> w.hasKey(HIGHWAY))
+                    .forEach(w -> searchedBy.computeIfAbsent(w, ignored -> new ArrayList<>()).add(way));
+        }
+        if (searchedBy.isEmpty()) {
+            return Collections.emptyList();
+        }
         final var crossingWays = new CrossingWays.Ways();
-        for (var way : Utils.filteredCollection(possiblyAffectedPrimitives, Way.class)) {
+        crossingWays.startTest(NullProgressMonitor.INSTANCE);
+        searchedBy.keySet().forEach(crossingWays::visit);
+        crossingWays.endTest();
+        final var wayErrors = new HashMap<Way, List<TestError>>();
+        for (var error : crossingWays.getErrors()) {
+            Set<Way> affected = null;
+            for (var primitive : error.getPrimitives()) {
+                final var searching = primitive instanceof Way w ? searchedBy.get(w) : null;
+                if (searching == null) {
+                    affected = Collections.emptySet();
+                    break;
+                } else if (affected == null) {
+                    affected = new HashSet<>(searching);
+                } else {
+                    affected.retainAll(searching);
+                }
+            }
+            if (affected != null) {
+                affected.forEach(way -> wayErrors.computeIfAbsent(way, ignored -> new ArrayList<>()).add(error));
+            }
+        }
+        crossingWays.clear();
+
+        final var issues = new ArrayList<TestError>();
+        for (var way : ways) {
             final var seenFix = new HashSet<OsmPrimitive>();
-            crossingWays.startTest(NullProgressMonitor.INSTANCE);
-            way.getDataSet().searchWays(way.getBBox()).stream().filter(w -> w.hasKey(HIGHWAY))
-                    .forEach(crossingWays::visit);
-            crossingWays.endTest();
-            for (var error : crossingWays.getErrors()) {
+            for (var error : wayErrors.getOrDefault(way, Collections.emptyList())) {
                 if (seenFix.containsAll(error.getPrimitives()) || error.getPrimitives().stream()
                         .filter(Way.class::isInstance).map(Way.class::cast).noneMatch(w -> w.hasKey(HIGHWAY))) {
                     continue;
@@ -199,11 +257,26 @@ public class MissingConnectionTags extends AbstractConflationCommand {
                 seenFix.addAll(error.getPrimitives());
                 issues.add(fixError.build());
             }
-            crossingWays.clear();
         }
         return issues;
     }
 
+    /**
+     * Map the primitives of validator errors to the errors they are in
+     *
+     * @param errors The errors to map
+     * @return The errors for each primitive, in the order they were found
+     */
+    private static Map<OsmPrimitive, List<TestError>> mapErrors(Collection<TestError> errors) {
+        final var mapped = new HashMap<OsmPrimitive, List<TestError>>();
+        for (var error : errors) {
+            for (var primitive : error.getPrimitives()) {
+                mapped.computeIfAbsent(primitive, ignored -> new ArrayList<>()).add(error);
+            }
+        }
+        return mapped;
+    }
+
     private static Supplier<Command> createIntersectionCommandSupplier(TestError error, Way way, double precision) {
         final var nodes = Geometry.addIntersections(error.getPrimitives().stream().filter(Way.class::isInstance)
                 .map(Way.class::cast).filter(w -> w.hasKey(HIGHWAY)).collect(Collectors.toList()), false,
@@ -291,16 +364,7 @@ public class MissingConnectionTags extends AbstractConflationCommand {
     }
 
     private static boolean noConflationKey(OsmPrimitive prim) {
-        return CreateConnectionsCommand.getConflationCommands().stream().map(c -> {
-            try {
-                return c.getConstructor(DataSet.class)
-                        .newInstance(prim.getDataSet() == null ? new DataSet() : prim.getDataSet());
-            } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-                    | InvocationTargetException | NoSuchMethodException | SecurityException e) {
-                Logging.error(e);
-            }
-            return null;
-        }).filter(Objects::nonNull).noneMatch(c -> prim.hasKey(c.getKey()));
+        return !ConflationCommandRegistry.hasConflationKey(prim);
     }
 
     @Override
@@ -2,23 +2,26 @@
 package org.openstreetmap.josm.plugins.mapwithai.commands.cleanup;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.openstreetmap.josm.actions.AutoScaleAction;
 import org.openstreetmap.josm.actions.SimplifyWayAction;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.SystemOfMeasurement;
 import org.openstreetmap.josm.data.osm.DataSet;
-import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.AbstractOsmDataLayer;
 import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
 import org.openstreetmap.josm.plugins.mapwithai.commands.AbstractConflationCommand;
+import org.openstreetmap.josm.plugins.mapwithai.commands.ConflationDecisionReport;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -40,44 +43,48 @@ public class OverNodedWays extends AbstractConflationCommand {
                 double threshold = Config.getPref().getDouble("mapwithai.conflation.simplifyway", 0.5);
                 int acceptableRemovalPercentage = Config.getPref()
                         .getInt("mapwithai.conflation.simplifywaynodepercentagerequired", 20);
-                Layer current = MainApplication.getLayerManager().getActiveLayer();
-                Collection<Way> ways = Utils.filteredCollection(possiblyAffectedPrimitives, Way.class);
-                if (!ways.isEmpty()) {
-                    DataSet ds = this.getAffectedDataSet();
-                    Layer toSwitch = MainApplication.getLayerManager().getLayersOfType(AbstractOsmDataLayer.class)
-                            .stream().filter(d -> ds.equals(d.getDataSet())).findAny().orElse(null);
-                    if (toSwitch != null) {
-                        MainApplication.getLayerManager().setActiveLayer(toSwitch);
-                    }
+                DataSet ds = this.getAffectedDataSet();
+                List<BatchWaySimplifier.Simplification> overNoded = BatchWaySimplifier
+                        .simplify(ds, Utils.filteredCollection(possiblyAffectedPrimitives, Way.class), threshold)
+                        .stream().filter(simplification -> simplification.isOverNoded(acceptableRemovalPercentage))
+                        .toList();
+                if (overNoded.isEmpty()) {
+                    return true;
                 }
-                Collection<Command> commands = new ArrayList<>();
-                for (Way way : ways) {
-                    Command command = SimplifyWayAction.createSimplifyCommand(way, threshold);
-                    if (command == null) {
-                        continue;
-                    }
-                    int count = Utils
-                            .filteredCollection(new ArrayList<>(command.getParticipatingPrimitives()), Node.class)
-                            .size();
-                    if ((count / (double) way.getNodesCount()) * 100 > acceptableRemovalPercentage) {
-                        AutoScaleAction.zoomTo(Collections.singleton(way));
-                        double length = SimplifyWayAction.askSimplifyWays(
-                                tr("You are about to simplify {0} way with a total length of {1}.", 1, way.getLength()),
-                                true);
-                        command = SimplifyWayAction.createSimplifyCommand(way, length);
-                        if (command != null) {
-                            commands.add(command);
-                        }
+                List<Way> ways = overNoded.stream().map(BatchWaySimplifier.Simplification::way).toList();
+                if (!MapWithAIPreferenceHelper.isInteractiveConflation()) {
+                    // The default is to leave the ways as they are
+                    for (Way way : ways) {
+                        ConflationDecisionReport.getInstance(ds).defer(OverNodedWays.class,
+                                tr("Simplify way with {0} nodes", way.getNodesCount()), Collections.singleton(way));
                     }
+                    return true;
                 }
+                Layer current = MainApplication.getLayerManager().getActiveLayer();
+                MainApplication.getLayerManager().getLayersOfType(AbstractOsmDataLayer.class).stream()
+                        .filter(d -> ds.equals(d.getDataSet())).findAny()
+                        .ifPresent(toSwitch -> MainApplication.getLayerManager().setActiveLayer(toSwitch));
+                AutoScaleAction.zoomTo(ways);
+                double length = SimplifyWayAction.askSimplifyWays(trn(
+                        "You are about to simplify {0} way with a total length of {1}.",
+                        "You are about to simplify {0} ways with a total length of {1}.", ways.size(), ways.size(),
+                        SystemOfMeasurement.getSystemOfMeasurement()
+                                .getDistText(ways.stream().mapToDouble(Way::getLength).sum())),
+                        true);
                 if (current != null) {
                     MainApplication.getLayerManager().setActiveLayer(current);
                 }
-                if (!commands.isEmpty()) {
-                    realCommand = SequenceCommand.wrapIfNeeded(tr("Simplify ways"), commands);
-                    realCommand.executeCommand();
+                if (length > 0) {
+                    // Only simplify the ways again if the user picked a different threshold
+                    List<BatchWaySimplifier.Simplification> simplifications = Double.compare(length, threshold) == 0
+                            ? overNoded
+                            : BatchWaySimplifier.simplify(ds, ways, length);
+                    if (!simplifications.isEmpty()) {
+                        realCommand = SequenceCommand.wrapIfNeeded(tr("Simplify ways"), simplifications.stream()
+                                .map(BatchWaySimplifier.Simplification::command).toList());
+                        realCommand.executeCommand();
+                    }
                 }
-
             } else {
                 realCommand.executeCommand();
             }
@@ -0,0 +1,145 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.data.mapwithai;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.plugins.mapwithai.tools.DataSetIndexes;
+import org.openstreetmap.josm.tools.Destroyable;
+
+/**
+ * An index of the primitives in a dataset with the
+ * {@link PreConflatedDataUtils#getConflatedKey()} key. This is kept up to date
+ * with {@link DataSetListener} events, so that showing or hiding conflated data
+ * does not have to look at every primitive.
+ *
+ * @author Taylor Smock
+ */
+final class ConflatedPrimitiveIndex implements DataSetListener, Destroyable {
+    private static final DataSetIndexes<ConflatedPrimitiveIndex> INDEXES = new DataSetIndexes<>(
+            ConflatedPrimitiveIndex::new);
+
+    private final DataSet ds;
+    private final Set<OsmPrimitive> primitives = new HashSet<>();
+
+    private ConflatedPrimitiveIndex(DataSet dataSet) {
+        this.ds = dataSet;
+        final var lock = dataSet.getReadLock();
+        lock.lock();
+        try {
+            update(dataSet.allPrimitives());
+            // Register while holding the read lock, so that no modifications are missed
+            dataSet.addDataSetListener(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the index for a dataset, creating it if necessary. The index is kept
+     * until the layer of the dataset is removed, or the dataset is no longer
+     * used.
+     *
+     * @param dataSet The dataset to get the index for
+     * @return The index for the dataset
+     */
+    static ConflatedPrimitiveIndex getIndex(DataSet dataSet) {
+        return INDEXES.get(dataSet);
+    }
+
+    /**
+     * Get the conflated primitives
+     *
+     * @return A copy of the primitives with the conflated key (including
+     *         deleted primitives, since they may be undeleted)
+     */
+    synchronized List<OsmPrimitive> getPrimitives() {
+        return List.copyOf(primitives);
+    }
+
+    private synchronized void update(Collection<? extends OsmPrimitive> changed) {
+        final var key = PreConflatedDataUtils.getConflatedKey();
+        for (var primitive : changed) {
+            if (primitive.getDataSet() != null && primitive.hasKey(key)) {
+                primitives.add(primitive);
+            } else {
+                primitives.remove(primitive);
+            }
+        }
+    }
+
+    private synchronized void rebuild() {
+        primitives.clear();
+        update(ds.allPrimitives());
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        update(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        event.getPrimitives().forEach(primitives::remove);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        update(event.getPrimitives());
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        // Only tags are indexed
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        // Only tags are indexed
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Only tags are indexed
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Deleted primitives are kept, since they may be undeleted
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        if (event.getEvents() == null) {
+            rebuild();
+        } else {
+            event.getEvents().forEach(e -> e.visitEvent(this));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        ds.removeDataSetListener(this);
+        INDEXES.remove(ds, this);
+    }
+
+    /**
+     * Destroy all conflated primitive indexes
+     */
+    static void destroyAll() {
+        INDEXES.destroyAll();
+    }
+}
@@ -1,8 +1,11 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.mapwithai.data.mapwithai;
 
+import java.util.Collection;
+
 import org.openstreetmap.josm.command.ChangePropertyKeyCommand;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAILayer;
 import org.openstreetmap.josm.spi.preferences.Config;
@@ -50,9 +53,15 @@ public class PreConflatedDataUtils implements PreferenceChangedListener, Destroy
     public static void removeConflatedData(DataSet dataSet, MapWithAIInfo info) {
         if (info != null && info.getAlreadyConflatedKey() != null && !info.getAlreadyConflatedKey().trim().isEmpty()) {
             String key = info.getAlreadyConflatedKey();
-            dataSet.allPrimitives().stream().filter(p -> p.hasKey(key))
-                    .forEach(p -> new ChangePropertyKeyCommand(p, key, getConflatedKey()).executeCommand());
-            hideConflatedData(dataSet);
+            final var conflated = dataSet.allPrimitives().stream()
+                    .filter(p -> p.hasKey(key) || p.hasKey(getConflatedKey())).toList();
+            final var toRename = conflated.stream().filter(p -> p.hasKey(key)).toList();
+            if (!toRename.isEmpty()) {
+                // One command for all of the primitives, instead of one command per primitive
+                final var command = new ChangePropertyKeyCommand(toRename, key, getConflatedKey());
+                dataSet.update(command::executeCommand);
+            }
+            setHidden(conflated);
         }
     }
 
@@ -62,9 +71,18 @@ public class PreConflatedDataUtils implements PreferenceChangedListener, Destroy
      * @param dataSet The dataset to show/hide data in
      */
     public static void hideConflatedData(DataSet dataSet) {
+        setHidden(ConflatedPrimitiveIndex.getIndex(dataSet).getPrimitives());
+    }
+
+    /**
+     * Show or hide conflated primitives, depending upon the user preferences
+     *
+     * @param conflated The primitives with the conflated key
+     */
+    private static void setHidden(Collection<OsmPrimitive> conflated) {
         boolean hide = Config.getPref().getBoolean(PREF_KEY, true);
         boolean fullHide = Config.getPref().getBoolean(PREF_KEY_FULL, false);
-        dataSet.allPrimitives().stream().filter(p -> p.hasKey(getConflatedKey())).forEach(p -> {
+        conflated.stream().filter(p -> p.hasKey(getConflatedKey())).forEach(p -> {
             if (hide) {
                 p.setDisabledState(fullHide);
             } else {
@@ -83,6 +101,7 @@ public class PreConflatedDataUtils implements PreferenceChangedListener, Destroy
     public void destroy() {
         Config.getPref().removeKeyPreferenceChangeListener(PREF_KEY, this);
         Config.getPref().removeKeyPreferenceChangeListener(PREF_KEY_FULL, this);
+        ConflatedPrimitiveIndex.destroyAll();
     }
 
     /**
@@ -3,7 +3,6 @@ package org.openstreetmap.josm.plugins.mapwithai.data.validation.tests;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -21,9 +20,7 @@ import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
-import org.openstreetmap.josm.plugins.mapwithai.commands.AbstractConflationCommand;
-import org.openstreetmap.josm.plugins.mapwithai.commands.CreateConnectionsCommand;
-import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.plugins.mapwithai.commands.ConflationCommandRegistry;
 
 /**
  * Ensure that no conflation keys remain
@@ -46,17 +43,9 @@ public class ConnectingNodeInformationTest extends Test {
     public void startTest(ProgressMonitor monitor) {
         super.startTest(monitor);
         badTags = new HashMap<>();
-        CreateConnectionsCommand.getConflationCommands().forEach(clazz -> {
-            try {
-                AbstractConflationCommand command = clazz.getConstructor(DataSet.class).newInstance(new DataSet());
-                if (command.keyShouldNotExistInOSM()) {
-                    badTags.put(command.getKey(), null);
-                }
-            } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-                    | InvocationTargetException | NoSuchMethodException | SecurityException e) {
-                Logging.error(e);
-            }
-        });
+        ConflationCommandRegistry.getEntries().stream()
+                .filter(ConflationCommandRegistry.Entry::keyShouldNotExistInOSM)
+                .forEach(entry -> badTags.put(entry.key(), null));
     }
 
     @Override
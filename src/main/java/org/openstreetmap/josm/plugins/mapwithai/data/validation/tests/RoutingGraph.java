@@ -0,0 +1,205 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.data.validation.tests;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.osm.Node;
+
+/**
+ * A directed graph of the nodes of a road (or waterway) network for one
+ * transport mode. There is an additional vertex for the world outside of the
+ * downloaded area, which is connected in both directions to every node that is
+ * outside of the downloaded area.
+ * <p>
+ * All algorithms are iterative and linear in the size of the graph, so long
+ * chains of ways cannot overflow the stack.
+ *
+ * @author Taylor Smock
+ */
+final class RoutingGraph {
+    /** The vertex for everything outside of the downloaded area */
+    static final int OUTSIDE = 0;
+
+    private final Predicate<Node> isOutside;
+    private final Map<Node, Integer> vertices = new HashMap<>();
+    private int vertexCount = 1;
+    private int[] tails = new int[16];
+    private int[] heads = new int[16];
+    private int edgeCount;
+    /** The start of the edges of each vertex in {@link #targets}, built when needed */
+    private int[] offsets;
+    private int[] targets;
+
+    /**
+     * Create a new graph
+     *
+     * @param isOutside Check if a node is connected to the world outside of the
+     *                  downloaded area
+     */
+    RoutingGraph(Predicate<Node> isOutside) {
+        this.isOutside = isOutside;
+    }
+
+    /**
+     * Get the vertex for a node, adding it if necessary
+     *
+     * @param node The node
+     * @return The vertex
+     */
+    int addVertex(Node node) {
+        final Integer vertex = vertices.get(node);
+        if (vertex != null) {
+            return vertex;
+        }
+        final int added = vertexCount++;
+        vertices.put(node, added);
+        if (isOutside.test(node)) {
+            addEdge(OUTSIDE, added);
+            addEdge(added, OUTSIDE);
+        }
+        return added;
+    }
+
+    /**
+     * Get the vertex for a node
+     *
+     * @param node The node
+     * @return The vertex, or {@code -1} if the node is not in the graph
+     */
+    int getVertex(Node node) {
+        return vertices.getOrDefault(node, -1);
+    }
+
+    /**
+     * Add an edge
+     *
+     * @param from The vertex the edge starts at
+     * @param to   The vertex the edge ends at
+     */
+    void addEdge(int from, int to) {
+        if (edgeCount == tails.length) {
+            tails = Arrays.copyOf(tails, edgeCount * 2);
+            heads = Arrays.copyOf(heads, edgeCount * 2);
+        }
+        tails[edgeCount] = from;
+        heads[edgeCount] = to;
+        edgeCount++;
+        offsets = null;
+    }
+
+    /**
+     * Sort the edges by the vertex they start at
+     */
+    private void buildAdjacency() {
+        if (offsets != null) {
+            return;
+        }
+        final int[] starts = new int[vertexCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            starts[tails[i] + 1]++;
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+        final int[] next = Arrays.copyOf(starts, vertexCount);
+        final int[] sorted = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            sorted[next[tails[i]]++] = heads[i];
+        }
+        targets = sorted;
+        offsets = starts;
+    }
+
+    /**
+     * Find the strongly connected components with Tarjan's algorithm
+     *
+     * @return The component of each vertex
+     */
+    int[] stronglyConnectedComponents() {
+        buildAdjacency();
+        final int[] index = new int[vertexCount];
+        Arrays.fill(index, -1);
+        final int[] low = new int[vertexCount];
+        final int[] component = new int[vertexCount];
+        final boolean[] onStack = new boolean[vertexCount];
+        final int[] stack = new int[vertexCount];
+        // The explicit call stack, and the next edge to look at for each vertex on it
+        final int[] calls = new int[vertexCount];
+        final int[] nextEdge = new int[vertexCount];
+        int stackSize = 0;
+        int nextIndex = 0;
+        int components = 0;
+        for (int root = 0; root < vertexCount; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            calls[depth++] = root;
+            index[root] = low[root] = nextIndex++;
+            nextEdge[root] = offsets[root];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth > 0) {
+                final int vertex = calls[depth - 1];
+                if (nextEdge[vertex] < offsets[vertex + 1]) {
+                    final int target = targets[nextEdge[vertex]++];
+                    if (index[target] == -1) {
+                        index[target] = low[target] = nextIndex++;
+                        nextEdge[target] = offsets[target];
+                        stack[stackSize++] = target;
+                        onStack[target] = true;
+                        calls[depth++] = target;
+                    } else if (onStack[target]) {
+                        low[vertex] = Math.min(low[vertex], index[target]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    final int parent = calls[depth - 1];
+                    low[parent] = Math.min(low[parent], low[vertex]);
+                }
+                if (low[vertex] == index[vertex]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        component[member] = components;
+                    } while (member != vertex);
+                    components++;
+                }
+            }
+        }
+        return component;
+    }
+
+    /**
+     * Find the vertices that can be reached from the world outside of the
+     * downloaded area
+     *
+     * @return {@code true} for each vertex that can be reached
+     */
+    boolean[] reachableFromOutside() {
+        buildAdjacency();
+        final boolean[] reached = new boolean[vertexCount];
+        final int[] queue = new int[vertexCount];
+        int head = 0;
+        int tail = 0;
+        reached[OUTSIDE] = true;
+        queue[tail++] = OUTSIDE;
+        while (head < tail) {
+            final int vertex = queue[head++];
+            for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+                final int target = targets[edge];
+                if (!reached[target]) {
+                    reached[target] = true;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return reached;
+    }
+}
@@ -4,12 +4,14 @@ package org.openstreetmap.josm.plugins.mapwithai.data.validation.tests;
 import static org.openstreetmap.josm.tools.I18n.marktr;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -62,8 +64,8 @@ public class RoutingIslandsTest extends Test {
     private static final List<String> IGNORE_TAGS_WATERWAY = Arrays.asList("services", "rest_area", "dam");
 
     /**
-     * This is mostly as a sanity check, and to avoid infinite recursion (shouldn't
-     * happen, but still)
+     * The default maximum number of expansions in
+     * {@link #checkForUnconnectedWays(Collection, Collection, String)}
      */
     private static final int MAX_LOOPS = 1000;
     /** Highways to check for routing connectivity */
@@ -88,13 +90,15 @@ public class RoutingIslandsTest extends Test {
 
     @Override
     public void endTest() {
+        // The access tags of a way are the same for every mode
+        final var accessTags = new HashMap<Way, TagMap>();
         Access.AccessTags.getByTransportType(Access.AccessTags.LAND_TRANSPORT_TYPE).forEach(mode -> {
-            runTest(mode.getKey(), potentialHighways);
+            runTest(mode.getKey(), potentialHighways, accessTags);
             progressMonitor.setCustomText(mode.getKey());
         });
         Access.AccessTags.getByTransportType(Access.AccessTags.WATER_TRANSPORT_TYPE).forEach(mode -> {
             progressMonitor.setCustomText(mode.getKey());
-            runTest(mode.getKey(), potentialWaterways);
+            runTest(mode.getKey(), potentialWaterways, accessTags);
         });
         super.endTest();
     }
@@ -124,137 +128,130 @@ public class RoutingIslandsTest extends Test {
         }
     }
 
-    private void runTest(String currentTransportMode, Collection<Way> potentialWays) {
-        Set<Way> incomingWays = new HashSet<>();
-        Set<Way> outgoingWays = new HashSet<>();
-        findConnectedWays(currentTransportMode, potentialWays, incomingWays, outgoingWays);
-        Collection<Way> realPotentialWays = (incomingWays.isEmpty() || outgoingWays.isEmpty())
-                ? expandNetwork(potentialWays)
-                : potentialWays;
-
-        if (incomingWays.isEmpty() || outgoingWays.isEmpty()) {
-            findConnectedWays(currentTransportMode, realPotentialWays, incomingWays, outgoingWays);
-        }
-        runGenericTest(currentTransportMode, realPotentialWays, incomingWays, outgoingWays);
-
-    }
-
     /**
-     * Expand a network from an initial selection
+     * Check the ways for one transport mode. The network that the ways are in is
+     * modelled as a directed graph of nodes, and a way is a routing island if any
+     * of its nodes is not in the strongly connected component of the world outside
+     * of the downloaded area (i.e., it cannot be both reached from and left to the
+     * outside). Islands are split by whether the ways can be reached from the
+     * outside.
      *
-     * @param initial The initial collection of ways
-     * @return An expanded collection of ways, which should be all connected ways
-     *         that allow the current transport mode.
+     * @param currentTransportMode The transport mode
+     * @param potentialWays        The ways to check
+     * @param accessTags           The default access tags of the ways that have
+     *                             been looked at
      */
-    private static Collection<Way> expandNetwork(Collection<Way> initial) {
-        Collection<Way> connected = initial.stream().flatMap(way -> way.getNodes().stream())
-                .flatMap(node -> node.getReferrers().stream()).filter(Way.class::isInstance).map(Way.class::cast)
-                .collect(Collectors.toSet());
-        if (connected.containsAll(initial) && initial.containsAll(connected)) {
-            return connected;
+    private void runTest(String currentTransportMode, Collection<Way> potentialWays,
+            Map<Way, TagMap> accessTags) {
+        final var graph = new RoutingGraph(Node::isOutsideDownloadArea);
+        final var seen = new HashSet<Way>(potentialWays);
+        final var queue = new ArrayDeque<Way>();
+        final var routable = new ArrayList<Way>();
+        for (Way way : potentialWays) {
+            if (addToGraph(graph, way, currentTransportMode, accessTags)) {
+                routable.add(way);
+            }
+        }
+        queue.addAll(routable);
+        // Expand the network with the routable ways connected to it, which may be outside of the downloaded area
+        for (Way way = queue.poll(); way != null; way = queue.poll()) {
+            for (Node node : way.getNodes()) {
+                for (OsmPrimitive referrer : node.getReferrers()) {
+                    if (referrer instanceof Way connected && seen.add(connected)
+                            && addToGraph(graph, connected, currentTransportMode, accessTags)) {
+                        queue.add(connected);
+                    }
+                }
+            }
         }
-        return expandNetwork(connected);
-    }
 
-    /**
-     * This test is run when there are known incoming/outgoing ways
-     *
-     * @param currentTransportMode The current transport mode
-     * @param potentialWays        The ways to check
-     * @param incomingWays         The incoming ways
-     * @param outgoingWays         The outgoing ways
-     */
-    private void runGenericTest(String currentTransportMode, Collection<Way> potentialWays,
-            Collection<Way> incomingWays, Collection<Way> outgoingWays) {
-        Set<Way> toIgnore = potentialWays.stream()
-                .filter(way -> incomingWays.contains(way) || outgoingWays.contains(way))
-                .filter(way -> !Access.getPositiveAccessValues().contains(
-                        getDefaultAccessTags(way).getOrDefault(currentTransportMode, Access.AccessTags.NO.getKey())))
-                .collect(Collectors.toSet());
-        incomingWays.removeAll(toIgnore);
-        outgoingWays.removeAll(toIgnore);
-
-        checkForUnconnectedWays(incomingWays, outgoingWays, currentTransportMode);
-        List<Pair<String, Set<Way>>> problematic = collectConnected(potentialWays.stream()
-                .filter(way -> !incomingWays.contains(way) || !outgoingWays.contains(way))
-                .filter(way -> Access.getPositiveAccessValues().contains(
-                        getDefaultAccessTags(way).getOrDefault(currentTransportMode, Access.AccessTags.NO.getKey())))
-                .collect(Collectors.toSet()))
-                        .stream()
-                        .map(way -> new Pair<>(
-                                (incomingWays.containsAll(way) ? marktr("outgoing") : marktr("incoming")), way))
-                        .toList();
-        createErrors(problematic, currentTransportMode);
+        final int[] components = graph.stronglyConnectedComponents();
+        final boolean[] reachable = graph.reachableFromOutside();
+        final int connectedComponent = components[RoutingGraph.OUTSIDE];
+        // Ways that can be reached but not left, and ways that cannot be reached
+        final var cannotLeave = new LinkedHashSet<Way>();
+        final var cannotReach = new LinkedHashSet<Way>();
+        for (Way way : routable) {
+            if (way.getNodes().stream().anyMatch(node -> components[graph.getVertex(node)] != connectedComponent)) {
+                if (way.getNodes().stream().allMatch(node -> reachable[graph.getVertex(node)])) {
+                    cannotLeave.add(way);
+                } else {
+                    cannotReach.add(way);
+                }
+            }
+        }
+        final var islands = new ArrayList<Pair<String, Set<Way>>>();
+        collectConnected(cannotLeave).forEach(ways -> islands.add(new Pair<>(marktr("outgoing"), ways)));
+        collectConnected(cannotReach).forEach(ways -> islands.add(new Pair<>(marktr("incoming"), ways)));
+        createErrors(islands, currentTransportMode);
     }
 
     /**
-     * Find ways that may be connected to the wider network
+     * Add a way to the routing graph, if the transport mode can use it
      *
-     * @param currentTransportMode The current mode of transport
-     * @param potentialWays        The ways to check for connections
-     * @param incomingWays         A collection that will have incoming ways after
-     *                             this method is called
-     * @param outgoingWays         A collection that will have outgoing ways after
-     *                             this method is called
+     * @param graph                The graph to add the way to
+     * @param way                  The way to add
+     * @param currentTransportMode The transport mode
+     * @param accessTags           The default access tags of the ways that have
+     *                             been looked at
+     * @return {@code true} if the way was added
      */
-    private static void findConnectedWays(String currentTransportMode, Collection<Way> potentialWays,
-            Collection<Way> incomingWays, Collection<Way> outgoingWays) {
-        potentialWays.stream().filter(Way::isUsable).filter(Way::isOutsideDownloadArea).forEach(way -> {
-            final var firstNode = firstNode(way, currentTransportMode);
-            final var lastNode = lastNode(way, currentTransportMode);
-            final var isOneway = isOneway(way, currentTransportMode);
-            if (firstNode != null && firstNode.isOutsideDownloadArea()) {
-                incomingWays.add(way);
-            }
-            if (lastNode != null && lastNode.isOutsideDownloadArea()) {
-                outgoingWays.add(way);
+    private static boolean addToGraph(RoutingGraph graph, Way way, String currentTransportMode,
+            Map<Way, TagMap> accessTags) {
+        if (!way.isUsable() || way.getNodesCount() < 2) {
+            return false;
+        }
+        final TagMap access = accessTags.computeIfAbsent(way, RoutingIslandsTest::getDefaultAccessTags);
+        final Integer oneway = isOneway(way, currentTransportMode);
+        if (oneway == null || !Access.getPositiveAccessValues()
+                .contains(access.getOrDefault(currentTransportMode, Access.AccessTags.NO.getKey()))) {
+            return false;
+        }
+        int previous = graph.addVertex(way.getNode(0));
+        for (int i = 1; i < way.getNodesCount(); i++) {
+            final int current = graph.addVertex(way.getNode(i));
+            if (oneway >= 0) {
+                graph.addEdge(previous, current);
             }
-            if (isOneway != null && isOneway == 0 && firstNode != null && lastNode != null
-                    && (firstNode.isOutsideDownloadArea() || lastNode.isOutsideDownloadArea())) {
-                incomingWays.add(way);
-                outgoingWays.add(way);
+            if (oneway <= 0) {
+                graph.addEdge(current, previous);
             }
-        });
+            previous = current;
+        }
+        return true;
     }
 
     /**
-     * Take a collection of ways and modify it so that it is a list of connected
-     * ways
+     * Split ways into groups of ways that share nodes
      *
-     * @param ways A collection of ways that may or may not be connected
-     * @return a list of sets of ways that are connected
+     * @param ways The ways to split
+     * @return The groups of connected ways
      */
     private static List<Set<Way>> collectConnected(Collection<Way> ways) {
         final var collected = new ArrayList<Set<Way>>();
-        final var listOfWays = new ArrayList<>(ways);
-        final var maxLoop = Config.getPref().getInt("validator.routingislands.maxrecursion", MAX_LOOPS);
-        for (var i = 0; i < listOfWays.size(); i++) {
-            final var initial = listOfWays.get(i);
-            Set<Way> connected = new HashSet<>();
+        final var remaining = new LinkedHashSet<>(ways);
+        final var queue = new ArrayDeque<Way>();
+        while (!remaining.isEmpty()) {
+            final var initial = remaining.iterator().next();
+            remaining.remove(initial);
+            final var connected = new HashSet<Way>();
             connected.add(initial);
-            var loopCounter = 0;
-            while (!getConnected(connected) && loopCounter < maxLoop) {
-                loopCounter++;
-            }
-            if (listOfWays.removeAll(connected)) {
-                /*
-                 * Not an issue -- this ensures that everything is accounted for, only triggers
-                 * when ways removed
-                 */
-                i--; // NOSONAR NOPMD
+            queue.add(initial);
+            for (Way way = queue.poll(); way != null; way = queue.poll()) {
+                for (Node node : way.getNodes()) {
+                    for (OsmPrimitive referrer : node.getReferrers()) {
+                        if (referrer instanceof Way connectedWay && remaining.remove(connectedWay)) {
+                            connected.add(connectedWay);
+                            queue.add(connectedWay);
+                        }
+                    }
+                }
             }
             collected.add(connected);
         }
         return collected;
     }
 
-    private static boolean getConnected(Collection<Way> ways) {
-        TagMap defaultAccess = getDefaultAccessTags(ways.iterator().next());
-        return ways.addAll(ways.stream().flatMap(way -> way.getNodes().stream())
-                .flatMap(node -> node.getReferrers().stream()).filter(Way.class::isInstance).map(Way.class::cast)
-                .filter(way -> getDefaultAccessTags(way).equals(defaultAccess)).collect(Collectors.toSet()));
-    }
-
     /**
      * Create errors for a problematic way
      *
@@ -0,0 +1,50 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.spi.cleanup;
+
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIInfo;
+
+/**
+ * The data that a {@link ICleanupStage} cleans up
+ *
+ * @param dataSet The dataset to clean up. This is locked for writing while the
+ *                stages run.
+ * @param bounds  The newly added bounds in the dataset. May be {@code null}.
+ * @param info    The source of the data. May be {@code null} if the data comes
+ *                from multiple (or unknown) sources.
+ * @author Taylor Smock
+ */
+public record CleanupContext(DataSet dataSet, Bounds bounds, MapWithAIInfo info) {
+    /**
+     * Create a new context
+     *
+     * @param dataSet The dataset to clean up
+     * @param bounds  The newly added bounds in the dataset. May be {@code null}.
+     * @param info    The source of the data. May be {@code null}.
+     */
+    public CleanupContext {
+        Objects.requireNonNull(dataSet, "DataSet cannot be null");
+    }
+
+    /**
+     * Get the bounds to clean up
+     *
+     * @return The newly added bounds, or all the data source bounds of the dataset
+     *         if there are no newly added bounds (a collapsed bounds at
+     *         {@code 0, 0} if there are no data sources)
+     */
+    public Bounds getCleanupBounds() {
+        if (bounds != null) {
+            return new Bounds(bounds);
+        }
+        if (!dataSet.getDataSourceBounds().isEmpty()) {
+            final var cleanupBounds = new Bounds(dataSet.getDataSourceBounds().get(0));
+            dataSet.getDataSourceBounds().forEach(cleanupBounds::extend);
+            return cleanupBounds;
+        }
+        return new Bounds(0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,152 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.spi.cleanup;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIInfo;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * The registered {@link ICleanupStage}s. Stages run in registration order,
+ * except that a stage always runs after the stages it depends upon. Stages
+ * that do not apply to the source of the data, or that have no input
+ * primitives in the dataset, are skipped.
+ * <p>
+ * Stages run one after another on the calling thread, since the dataset is
+ * locked for writing by that thread while it is cleaned up. Stages that want
+ * to use multiple threads must only read the dataset from those threads.
+ *
+ * @author Taylor Smock
+ */
+public final class CleanupPipeline {
+    private static final CleanupPipeline INSTANCE = new CleanupPipeline();
+
+    private final List<ICleanupStage> stages = new ArrayList<>();
+    private List<ICleanupStage> orderedStages;
+
+    /**
+     * Create a new pipeline without any stages. Downloaded data is cleaned up by
+     * the pipeline from {@link #getInstance()}.
+     */
+    public CleanupPipeline() {
+        // Stages are registered separately
+    }
+
+    /**
+     * Get the pipeline used for downloaded MapWithAI data
+     *
+     * @return The shared pipeline
+     */
+    public static CleanupPipeline getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register a stage
+     *
+     * @param stage The stage to register
+     * @throws IllegalArgumentException if a stage with the same name is already
+     *                                  registered
+     */
+    public synchronized void register(ICleanupStage stage) {
+        Objects.requireNonNull(stage, "Stage cannot be null");
+        if (stages.stream().anyMatch(registered -> registered.getName().equals(stage.getName()))) {
+            throw new IllegalArgumentException("A cleanup stage named " + stage.getName() + " is already registered");
+        }
+        stages.add(stage);
+        orderedStages = null;
+    }
+
+    /**
+     * Unregister a stage
+     *
+     * @param stage The stage to unregister
+     * @return {@code true} if the stage was registered
+     */
+    public synchronized boolean unregister(ICleanupStage stage) {
+        orderedStages = null;
+        return stages.remove(stage);
+    }
+
+    /**
+     * Get the registered stages in the order they run
+     *
+     * @return The ordered stages
+     * @throws IllegalStateException if the stage dependencies have a cycle
+     */
+    public synchronized List<ICleanupStage> getStages() {
+        if (orderedStages == null) {
+            orderedStages = order(stages);
+        }
+        return orderedStages;
+    }
+
+    /**
+     * Run the applicable stages
+     *
+     * @param context The data to clean up
+     * @param runner  Called with each stage that should run and the
+     *                {@link Runnable} that runs it (e.g. for metrics)
+     */
+    public void run(CleanupContext context, BiConsumer<ICleanupStage, Runnable> runner) {
+        final var present = new EnumMap<OsmPrimitiveType, Boolean>(OsmPrimitiveType.class);
+        for (var stage : getStages()) {
+            if (!isApplicable(stage, context.info()) || stage.getInputs().stream()
+                    .noneMatch(type -> present.computeIfAbsent(type, t -> hasPrimitives(context.dataSet(), t)))) {
+                Logging.trace("MapWithAI: skipping cleanup stage {0}", stage.getName());
+                continue;
+            }
+            runner.accept(stage, () -> stage.run(context));
+            stage.getOutputs().forEach(present::remove);
+        }
+    }
+
+    /**
+     * Check if a stage applies to a source
+     *
+     * @param stage The stage to check
+     * @param info  The source of the data, may be {@code null}
+     * @return {@code true} if the stage applies to the source (all stages apply
+     *         to unknown sources)
+     */
+    public static boolean isApplicable(ICleanupStage stage, MapWithAIInfo info) {
+        if (info == null) {
+            return true;
+        }
+        return (stage.getSourceTypes().isEmpty() || stage.getSourceTypes().contains(info.getSourceType()))
+                && (stage.getCategories().isEmpty() || stage.getCategories().contains(info.getCategory())
+                        || info.getAdditionalCategories().stream().anyMatch(stage.getCategories()::contains));
+    }
+
+    private static boolean hasPrimitives(DataSet dataSet, OsmPrimitiveType type) {
+        return dataSet.allNonDeletedPrimitives().stream()
+                .anyMatch(primitive -> primitive.getType() == type || primitive.getDisplayType() == type);
+    }
+
+    /**
+     * Order stages so that dependencies run first, otherwise keeping the
+     * registration order
+     */
+    private static List<ICleanupStage> order(List<ICleanupStage> stages) {
+        final var byName = new HashMap<String, ICleanupStage>(stages.size());
+        stages.forEach(stage -> byName.put(stage.getName(), stage));
+        final var ordered = new ArrayList<ICleanupStage>(stages.size());
+        final var remaining = new ArrayList<>(stages);
+        while (!remaining.isEmpty()) {
+            final var next = remaining.stream().filter(stage -> stage.getDependencies().stream().map(byName::get)
+                    .filter(Objects::nonNull).allMatch(ordered::contains)).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Cleanup stage dependencies have a cycle: "
+                            + remaining.stream().map(ICleanupStage::getName).toList()));
+            ordered.add(next);
+            remaining.remove(next);
+        }
+        return List.copyOf(ordered);
+    }
+}
@@ -0,0 +1,74 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.spi.cleanup;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAICategory;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIType;
+
+/**
+ * A stage that cleans up downloaded MapWithAI data. Stages are registered with
+ * {@link CleanupPipeline}.
+ *
+ * @author Taylor Smock
+ */
+public interface ICleanupStage {
+    /**
+     * Get the name of the stage. This is used for dependencies and metrics.
+     *
+     * @return The unique name of the stage
+     */
+    String getName();
+
+    /**
+     * Get the primitive types that the stage looks at. The stage is skipped if
+     * the dataset has no non-deleted primitives of these types.
+     *
+     * @return The types of primitives the stage reads
+     */
+    Set<OsmPrimitiveType> getInputs();
+
+    /**
+     * Get the primitive types that the stage may add, modify, or delete
+     *
+     * @return The types of primitives the stage writes
+     */
+    Set<OsmPrimitiveType> getOutputs();
+
+    /**
+     * Get the stages that must run before this stage (if they run at all)
+     *
+     * @return The names of the stages this stage depends upon
+     */
+    default Set<String> getDependencies() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Get the source types that this stage applies to
+     *
+     * @return The source types, or an empty set if the stage applies to all types
+     */
+    default Set<MapWithAIType> getSourceTypes() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Get the source categories that this stage applies to
+     *
+     * @return The categories, or an empty set if the stage applies to all
+     *         categories
+     */
+    default Set<MapWithAICategory> getCategories() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Clean up the data
+     *
+     * @param context The data to clean up
+     */
+    void run(CleanupContext context);
+}
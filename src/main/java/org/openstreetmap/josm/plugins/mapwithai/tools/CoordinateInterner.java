@@ -0,0 +1,117 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.tools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+
+/**
+ * Reuse one node per distinct coordinate while parsing data. Coordinates are
+ * snapped to a precision (in degrees) when comparing them; the first node at a
+ * coordinate keeps its exact location.
+ * <p>
+ * Only new, untagged nodes that are not relation members are shared, since
+ * tagged nodes and existing OSM nodes are separate features.
+ *
+ * @author Taylor Smock
+ */
+public final class CoordinateInterner {
+    /**
+     * A snapped coordinate
+     *
+     * @param lat The snapped latitude index
+     * @param lon The snapped longitude index
+     */
+    private record Key(long lat, long lon) {
+    }
+
+    private final double precision;
+    private final Map<Key, Node> nodes = new HashMap<>();
+
+    /**
+     * Create a new interner
+     *
+     * @param precision The precision to snap coordinates to, in degrees
+     * @throws IllegalArgumentException if the precision is not positive and finite
+     */
+    public CoordinateInterner(double precision) {
+        if (!(precision > 0) || !Double.isFinite(precision)) {
+            throw new IllegalArgumentException("Precision must be positive and finite: " + precision);
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * Get the untagged node for a coordinate, creating it if necessary. The
+     * returned node may already be in a dataset, so an interner should only be
+     * used for one dataset.
+     *
+     * @param coordinate The coordinate of the node
+     * @return The node for the coordinate
+     */
+    public Node intern(ILatLon coordinate) {
+        return nodes.computeIfAbsent(key(coordinate), k -> new Node(new LatLon(coordinate.lat(), coordinate.lon())));
+    }
+
+    /**
+     * Replace way nodes that share a coordinate with a single node, and remove
+     * the replaced nodes from the dataset. This should only be used on data that
+     * has just been parsed (the dataset is modified directly, without commands).
+     *
+     * @param dataSet The dataset to deduplicate
+     * @return The number of nodes that were removed
+     */
+    public int deduplicate(DataSet dataSet) {
+        final var replaced = new HashSet<Node>();
+        for (var way : dataSet.getWays()) {
+            if (way.isDeleted() || way.isIncomplete()) {
+                continue;
+            }
+            final var wayNodes = new ArrayList<Node>(way.getNodesCount());
+            var changed = false;
+            for (var node : way.getNodes()) {
+                final var interned = canShare(node) ? nodes.computeIfAbsent(key(node), k -> node) : node;
+                if (interned != node) {
+                    replaced.add(node);
+                    changed = true;
+                }
+                // Interning can put two copies of a node next to each other
+                if (wayNodes.isEmpty() || wayNodes.get(wayNodes.size() - 1) != interned) {
+                    wayNodes.add(interned);
+                } else {
+                    changed = true;
+                }
+            }
+            if (changed && wayNodes.size() > 1) {
+                way.setNodes(wayNodes);
+            } else if (changed) {
+                // Keep ways with a single distinct node as they were, for cleanup to remove
+                way.getNodes().forEach(replaced::remove);
+            }
+        }
+        var removed = 0;
+        for (var node : replaced) {
+            if (node.getReferrers().isEmpty()) {
+                dataSet.removePrimitive(node);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private boolean canShare(Node node) {
+        return node.isNew() && !node.isDeleted() && !node.hasKeys() && node.isLatLonKnown()
+                && node.referrers(Relation.class).findAny().isEmpty();
+    }
+
+    private Key key(ILatLon coordinate) {
+        return new Key(Math.round(coordinate.lat() / precision), Math.round(coordinate.lon() / precision));
+    }
+}
@@ -0,0 +1,141 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.tools;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.tools.Destroyable;
+
+/**
+ * The indexes of datasets, one per dataset. An index is a
+ * {@link DataSetListener} of its dataset, so the dataset keeps the index alive,
+ * and the index may keep the dataset alive. The indexes are only weakly
+ * referenced here, so an index and its dataset can be collected together, even
+ * if the dataset was never in a layer. Indexes for layers that are removed are
+ * destroyed right away.
+ * <p>
+ * An index must call {@link #remove(DataSet, DataSetListener)} when it is
+ * destroyed.
+ *
+ * @param <T> The index type
+ * @author Taylor Smock
+ */
+public final class DataSetIndexes<T extends DataSetListener & Destroyable> {
+    /**
+     * Destroy indexes for layers that are removed
+     */
+    private final class LayerRemovalListener implements LayerChangeListener {
+        @Override
+        public void layerAdded(LayerAddEvent e) {
+            // Indexes are created when needed
+        }
+
+        @Override
+        public void layerRemoving(LayerRemoveEvent e) {
+            if (e.getRemovedLayer() instanceof OsmDataLayer layer) {
+                final T index = getExisting(layer.getDataSet());
+                if (index != null) {
+                    index.destroy();
+                }
+            }
+        }
+
+        @Override
+        public void layerOrderChanged(LayerOrderChangeEvent e) {
+            // Layer order does not matter
+        }
+    }
+
+    private final Function<DataSet, T> factory;
+    private final Map<DataSet, WeakReference<T>> indexes = new WeakHashMap<>();
+    private final LayerRemovalListener layerRemovalListener = new LayerRemovalListener();
+    private boolean listening;
+
+    /**
+     * Create a new holder for indexes
+     *
+     * @param factory Create the index for a dataset. The index must register
+     *                itself as a listener of the dataset.
+     */
+    public DataSetIndexes(Function<DataSet, T> factory) {
+        this.factory = Objects.requireNonNull(factory);
+    }
+
+    /**
+     * Get the index for a dataset, creating it if necessary
+     *
+     * @param dataSet The dataset to get the index for
+     * @return The index for the dataset
+     */
+    public T get(DataSet dataSet) {
+        Objects.requireNonNull(dataSet, "DataSet cannot be null");
+        synchronized (indexes) {
+            T index = getExisting(dataSet);
+            if (index == null) {
+                index = factory.apply(dataSet);
+                indexes.put(dataSet, new WeakReference<>(index));
+                if (!listening) {
+                    MainApplication.getLayerManager().addLayerChangeListener(layerRemovalListener);
+                    listening = true;
+                }
+            }
+            return index;
+        }
+    }
+
+    private T getExisting(DataSet dataSet) {
+        synchronized (indexes) {
+            final var reference = indexes.get(dataSet);
+            return reference == null ? null : reference.get();
+        }
+    }
+
+    /**
+     * Forget the index of a dataset. This should be called when the index is
+     * destroyed.
+     *
+     * @param dataSet The dataset of the index
+     * @param index   The index
+     */
+    public void remove(DataSet dataSet, T index) {
+        synchronized (indexes) {
+            if (getExisting(dataSet) == index) {
+                indexes.remove(dataSet);
+            }
+            if (indexes.isEmpty() && listening) {
+                MainApplication.getLayerManager().removeLayerChangeListener(layerRemovalListener);
+                listening = false;
+            }
+        }
+    }
+
+    /**
+     * Destroy all indexes
+     */
+    public void destroyAll() {
+        final List<T> toDestroy;
+        synchronized (indexes) {
+            toDestroy = indexes.values().stream().map(WeakReference::get).filter(Objects::nonNull).toList();
+        }
+        toDestroy.forEach(Destroyable::destroy);
+        synchronized (indexes) {
+            indexes.clear();
+            if (listening) {
+                MainApplication.getLayerManager().removeLayerChangeListener(layerRemovalListener);
+                listening = false;
+            }
+        }
+    }
+}
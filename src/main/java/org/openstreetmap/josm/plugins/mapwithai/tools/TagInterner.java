@@ -0,0 +1,116 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.tools;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.Stream;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Tag;
+import org.openstreetmap.josm.data.osm.TagMap;
+
+/**
+ * Share one instance of each tag key and value between all MapWithAI data.
+ * Downloaded data has the same few keys and values on most primitives, and
+ * every reader creates new strings for them.
+ * <p>
+ * Strings are only weakly held, so strings that are no longer used by any
+ * primitive can be garbage collected. The strings are split into independently
+ * locked stripes by hash, so that tiles that are parsed in parallel rarely wait
+ * on each other.
+ *
+ * @author Taylor Smock
+ */
+public final class TagInterner {
+    /** The number of stripes, must be a power of two */
+    private static final int STRIPES = 32;
+    private static final List<Map<String, WeakReference<String>>> STRINGS = Stream
+            .<Map<String, WeakReference<String>>>generate(WeakHashMap::new).limit(STRIPES).toList();
+
+    private TagInterner() {
+        // Hide constructor
+    }
+
+    /**
+     * Get the shared instance of a string
+     *
+     * @param string The string to intern
+     * @return The shared instance, or {@code null} if the string was {@code null}
+     */
+    public static String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+        final int hash = string.hashCode();
+        final var stripe = STRINGS.get((hash ^ (hash >>> 16)) & (STRIPES - 1));
+        synchronized (stripe) {
+            final var reference = stripe.get(string);
+            final var interned = reference == null ? null : reference.get();
+            if (interned != null) {
+                return interned;
+            }
+            stripe.put(string, new WeakReference<>(string));
+            return string;
+        }
+    }
+
+    /**
+     * Get a tag with the shared instances of its key and value
+     *
+     * @param tag The tag to intern
+     * @return A tag with shared strings
+     */
+    public static Tag intern(Tag tag) {
+        final var key = intern(tag.getKey());
+        final var value = intern(tag.getValue());
+        // Only the instance matters
+        return key == tag.getKey() && value == tag.getValue() ? tag : new Tag(key, value);
+    }
+
+    /**
+     * Replace the tag keys and values of a primitive with their shared instances
+     *
+     * @param primitive The primitive to intern the tags of
+     * @return {@code true} if the tags of the primitive were replaced
+     */
+    public static boolean intern(OsmPrimitive primitive) {
+        if (!primitive.hasKeys()) {
+            return false;
+        }
+        final var keys = primitive.getKeys();
+        final var interned = new TagMap();
+        var changed = false;
+        for (var entry : keys.entrySet()) {
+            final var key = intern(entry.getKey());
+            final var value = intern(entry.getValue());
+            changed |= key != entry.getKey() || value != entry.getValue();
+            interned.put(key, value);
+        }
+        if (changed) {
+            primitive.setKeys(interned);
+        }
+        return changed;
+    }
+
+    /**
+     * Replace the tag keys and values of all primitives in a dataset with their
+     * shared instances. This should be used on data that has just been parsed by
+     * a reader that does not share strings itself (the OSM XML reader already
+     * does).
+     *
+     * @param dataSet The dataset to intern the tags of
+     * @return The number of primitives with replaced tags
+     */
+    public static int intern(DataSet dataSet) {
+        var changed = 0;
+        for (var primitive : dataSet.allPrimitives()) {
+            if (intern(primitive)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,233 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.tools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.IWaySegment;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * A uniform grid of way segments over {@link EastNorth} coordinates. This is
+ * built once for a set of ways, and then queried for the segments that are near
+ * a specific segment, instead of comparing every segment of one way against
+ * every segment of another way.
+ *
+ * @author Taylor Smock
+ */
+public final class WaySegmentIndex {
+    /**
+     * Segments that would be in more cells than this are stored separately, and
+     * are returned for every search
+     */
+    private static final int MAX_CELLS_PER_SEGMENT = 64;
+    /** The multiple of the average segment length to use for the cell size */
+    private static final double CELL_SIZE_FACTOR = 2;
+
+    private final double cellSize;
+    private final Map<Long, List<IWaySegment<Node, Way>>> cells = new HashMap<>();
+    private final Map<Way, List<IWaySegment<Node, Way>>> waySegments = new HashMap<>();
+    private final Map<Way, Set<Long>> wayCells = new HashMap<>();
+    private final Set<IWaySegment<Node, Way>> oversized = new LinkedHashSet<>();
+
+    /**
+     * Create a new index with a cell size derived from the average segment length
+     *
+     * @param ways The ways to index
+     */
+    public WaySegmentIndex(Collection<Way> ways) {
+        this(ways, getDefaultCellSize(ways));
+    }
+
+    /**
+     * Create a new index
+     *
+     * @param ways     The ways to index
+     * @param cellSize The size of a grid cell, in {@link EastNorth} units
+     */
+    public WaySegmentIndex(Collection<Way> ways, double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException("The cell size must be a positive number: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        ways.forEach(this::add);
+    }
+
+    /**
+     * Get a cell size for a collection of ways
+     *
+     * @param ways The ways to get the cell size for
+     * @return A cell size that is a small multiple of the average segment length
+     */
+    private static double getDefaultCellSize(Collection<Way> ways) {
+        double length = 0;
+        long count = 0;
+        for (Way way : ways) {
+            for (var i = 0; i < way.getNodesCount() - 1; i++) {
+                final EastNorth first = way.getNode(i).getEastNorth();
+                final EastNorth second = way.getNode(i + 1).getEastNorth();
+                if (first != null && second != null) {
+                    length += first.distance(second);
+                    count++;
+                }
+            }
+        }
+        final double cell = count == 0 ? 0 : CELL_SIZE_FACTOR * length / count;
+        return cell > 0 && !Double.isInfinite(cell) ? cell : 1;
+    }
+
+    /**
+     * Add a way to the index
+     *
+     * @param way The way to add
+     */
+    public void add(Way way) {
+        if (way.isDeleted() || waySegments.containsKey(way)) {
+            return;
+        }
+        final var segments = new ArrayList<IWaySegment<Node, Way>>(Math.max(0, way.getNodesCount() - 1));
+        final var keys = new LinkedHashSet<Long>();
+        for (var i = 0; i < way.getNodesCount() - 1; i++) {
+            final var segment = new IWaySegment<>(way, i);
+            final EastNorth first = segment.getFirstNode().getEastNorth();
+            final EastNorth second = segment.getSecondNode().getEastNorth();
+            if (first != null && second != null) {
+                segments.add(segment);
+                addToCells(segment, first, second, keys);
+            }
+        }
+        waySegments.put(way, segments);
+        wayCells.put(way, keys);
+    }
+
+    /**
+     * Remove a way from the index
+     *
+     * @param way The way to remove
+     */
+    public void remove(Way way) {
+        if (waySegments.remove(way) == null) {
+            return;
+        }
+        oversized.removeIf(segment -> way.equals(segment.getWay()));
+        // The nodes of the way may have changed, so use the cells from when it was added
+        for (var key : wayCells.remove(way)) {
+            final var cell = cells.get(key);
+            cell.removeIf(segment -> way.equals(segment.getWay()));
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Update the segments of a way after its nodes have changed
+     *
+     * @param way The way to update
+     */
+    public void update(Way way) {
+        remove(way);
+        add(way);
+    }
+
+    /**
+     * Search for segments that may be near a segment. This will always return
+     * segments that share a node with the searched segment.
+     *
+     * @param segment The segment to search around
+     * @return Segments whose cells overlap the searched segment (includes the
+     *         segment, if indexed)
+     */
+    public Collection<IWaySegment<Node, Way>> search(IWaySegment<Node, Way> segment) {
+        return search(segment, 0);
+    }
+
+    /**
+     * Search for segments that may be near a segment. This will always return
+     * segments that share a node with the searched segment, or that are within
+     * {@code buffer} of the searched segment.
+     *
+     * @param segment The segment to search around
+     * @param buffer  The distance to expand the search area by, in
+     *                {@link EastNorth} units
+     * @return Segments whose cells overlap the expanded searched segment
+     *         (includes the segment, if indexed)
+     */
+    public Collection<IWaySegment<Node, Way>> search(IWaySegment<Node, Way> segment, double buffer) {
+        final EastNorth first = segment.getFirstNode().getEastNorth();
+        final EastNorth second = segment.getSecondNode().getEastNorth();
+        if (first == null || second == null) {
+            return Collections.emptyList();
+        }
+        final var found = new LinkedHashSet<IWaySegment<Node, Way>>(oversized);
+        final long minX = cell(Math.min(first.east(), second.east()) - buffer);
+        final long maxX = cell(Math.max(first.east(), second.east()) + buffer);
+        final long minY = cell(Math.min(first.north(), second.north()) - buffer);
+        final long maxY = cell(Math.max(first.north(), second.north()) + buffer);
+        if ((maxX - minX + 1) * (maxY - minY + 1) > MAX_CELLS_PER_SEGMENT) {
+            // Long segments are rare, so just look through everything
+            waySegments.values().forEach(found::addAll);
+            return found;
+        }
+        for (var x = minX; x <= maxX; x++) {
+            for (var y = minY; y <= maxY; y++) {
+                final var cell = cells.get(key(x, y));
+                if (cell != null) {
+                    found.addAll(cell);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Search for ways that may be near a way. This will always return ways that
+     * share a node with the searched way.
+     *
+     * @param way The way to search around
+     * @return The ways with segments near the way (includes the way, if indexed)
+     */
+    public Set<Way> searchWays(Way way) {
+        final var ways = new LinkedHashSet<Way>();
+        for (var i = 0; i < way.getNodesCount() - 1; i++) {
+            for (var segment : search(new IWaySegment<>(way, i))) {
+                ways.add(segment.getWay());
+            }
+        }
+        return ways;
+    }
+
+    private void addToCells(IWaySegment<Node, Way> segment, EastNorth first, EastNorth second, Set<Long> keys) {
+        final long minX = cell(Math.min(first.east(), second.east()));
+        final long maxX = cell(Math.max(first.east(), second.east()));
+        final long minY = cell(Math.min(first.north(), second.north()));
+        final long maxY = cell(Math.max(first.north(), second.north()));
+        if ((maxX - minX + 1) * (maxY - minY + 1) > MAX_CELLS_PER_SEGMENT) {
+            oversized.add(segment);
+            return;
+        }
+        for (var x = minX; x <= maxX; x++) {
+            for (var y = minY; y <= maxY; y++) {
+                final long key = key(x, y);
+                cells.computeIfAbsent(key, ignored -> new ArrayList<>(2)).add(segment);
+                keys.add(key);
+            }
+        }
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(long x, long y) {
+        return (x << 32) ^ (y & 0xffff_ffffL);
+    }
+}
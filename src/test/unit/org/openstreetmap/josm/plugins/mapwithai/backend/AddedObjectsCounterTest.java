@@ -0,0 +1,103 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.command.DeleteCommand;
+import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.mapwithai.commands.MapWithAIAddCommand;
+import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.Command;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link AddedObjectsCounter}
+ *
+ * @author Taylor Smock
+ */
+@BasicPreferences
+@Command
+@Projection
+class AddedObjectsCounterTest {
+    private DataSet mapWithAIData;
+    private DataSet osmData;
+    private List<Way> ways;
+
+    @BeforeEach
+    void setUp() {
+        UndoRedoHandler.getInstance().clean();
+        mapWithAIData = new DataSet();
+        osmData = new DataSet();
+        ways = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final Way way = TestUtils.newWay("building=yes", new Node(new LatLon(i, 0)),
+                    new Node(new LatLon(i, 0.001)), new Node(new LatLon(i + 0.001, 0.001)));
+            way.getNodes().forEach(mapWithAIData::addPrimitive);
+            mapWithAIData.addPrimitive(way);
+            way.addNode(way.firstNode());
+            ways.add(way);
+        }
+    }
+
+    @Test
+    void testUndoRedo() {
+        final AddedObjectsCounter counter = AddedObjectsCounter.getInstance();
+        assertEquals(0, counter.getCount());
+
+        UndoRedoHandler.getInstance().add(new MapWithAIAddCommand(mapWithAIData, osmData, ways.subList(0, 2)));
+        assertEquals(2, counter.getCount());
+        UndoRedoHandler.getInstance().add(new MapWithAIAddCommand(mapWithAIData, osmData, ways.subList(2, 3)));
+        assertEquals(3, counter.getCount());
+        assertEquals(3, MapWithAIDataUtils.getAddedObjects());
+
+        UndoRedoHandler.getInstance().undo();
+        assertEquals(2, counter.getCount());
+        UndoRedoHandler.getInstance().undo();
+        assertEquals(0, counter.getCount());
+        UndoRedoHandler.getInstance().redo();
+        assertEquals(2, counter.getCount());
+
+        // Adding a new command drops the redo stack
+        UndoRedoHandler.getInstance().add(new MapWithAIAddCommand(mapWithAIData, osmData, ways.subList(2, 3)));
+        assertEquals(3, counter.getCount());
+        assertEquals(0, UndoRedoHandler.getInstance().getRedoCommands().size());
+
+        UndoRedoHandler.getInstance().clean();
+        assertEquals(0, counter.getCount());
+    }
+
+    @Test
+    void testDeleteAddedObject() {
+        final AddedObjectsCounter counter = AddedObjectsCounter.getInstance();
+        final var command = new MapWithAIAddCommand(mapWithAIData, osmData, ways);
+        UndoRedoHandler.getInstance().add(command);
+        assertEquals(3, counter.getCount());
+        assertEquals(3, command.getAddedObjects());
+
+        final Way added = (Way) osmData.getPrimitiveById(ways.get(0));
+        UndoRedoHandler.getInstance().add(DeleteCommand.delete(Collections.singleton(added), true, true));
+        // The command is no longer the last command, but the counts must still agree
+        assertEquals(2, counter.getCount());
+        assertEquals(2, command.getAddedObjects());
+        UndoRedoHandler.getInstance().undo();
+        assertEquals(3, counter.getCount());
+        assertEquals(3, command.getAddedObjects());
+        UndoRedoHandler.getInstance().redo();
+        assertEquals(2, counter.getCount());
+
+        UndoRedoHandler.getInstance().undo();
+        UndoRedoHandler.getInstance().undo();
+        assertEquals(0, command.getAddedObjects());
+    }
+}
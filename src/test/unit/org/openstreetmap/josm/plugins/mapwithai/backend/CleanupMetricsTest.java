@@ -0,0 +1,143 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link CleanupMetrics}
+ */
+@BasicPreferences
+@Projection
+class CleanupMetricsTest {
+    private final CleanupMetrics.History history = new CleanupMetrics.History();
+    private final DataSet dataSet = new DataSet();
+
+    @BeforeEach
+    void setUp() {
+        CleanupMetrics.addHistory(dataSet, history);
+    }
+
+    @AfterEach
+    void tearDown() {
+        CleanupMetrics.removeHistory(dataSet);
+        MapWithAIPreferenceHelper.setDetailedMetrics(false);
+    }
+
+    @Test
+    void testMeasureModification() {
+        MapWithAIPreferenceHelper.setDetailedMetrics(true);
+        final Way way = TestUtils.newWay("highway=residential", new Node(new LatLon(0, 0)),
+                new Node(new LatLon(0, 1)));
+        way.getNodes().forEach(dataSet::addPrimitive);
+        dataSet.addPrimitive(way);
+        final var untouched = new Node(new LatLon(1, 1));
+        dataSet.addPrimitive(untouched);
+
+        CleanupMetrics.measure(CleanupMetrics.CLEANUP, "test", dataSet, () -> {
+            way.put("highway", "service");
+            way.firstNode().setCoor(new LatLon(0.5, 0));
+            way.lastNode().setDeleted(true);
+            dataSet.addPrimitive(new Node(new LatLon(2, 2)));
+        });
+
+        final var measurements = history.getMeasurements();
+        assertEquals(1, measurements.size());
+        final var measurement = measurements.get(0);
+        assertAll(() -> assertEquals(CleanupMetrics.CLEANUP, measurement.phase()),
+                () -> assertEquals("test", measurement.stage()),
+                () -> assertEquals(4, measurement.primitivesIn()),
+                () -> assertEquals(4, measurement.primitivesOut()),
+                () -> assertEquals(4, measurement.primitivesChanged()),
+                () -> assertTrue(measurement.nanos() >= 0));
+    }
+
+    /**
+     * Only the timings should be recorded when nobody asked for the primitive
+     * counters
+     */
+    @Test
+    void testTimingOnly() {
+        dataSet.addPrimitive(new Node(new LatLon(0, 0)));
+        CleanupMetrics.measure(CleanupMetrics.CLEANUP, "test", dataSet,
+                () -> dataSet.addPrimitive(new Node(new LatLon(1, 1))));
+        final var measurement = history.getMeasurements().get(0);
+        assertAll(() -> assertEquals(-1, measurement.primitivesIn()),
+                () -> assertEquals(-1, measurement.primitivesOut()),
+                () -> assertEquals(-1, measurement.primitivesChanged()),
+                () -> assertTrue(measurement.nanos() >= 0));
+    }
+
+    @Test
+    void testMeasureDownload() {
+        MapWithAIPreferenceHelper.setDetailedMetrics(true);
+        dataSet.addPrimitive(new Node(new LatLon(0, 0)));
+        dataSet.addPrimitive(new Node(new LatLon(1, 1)));
+        assertSame(dataSet, CleanupMetrics.measure(CleanupMetrics.DOWNLOAD, "source", () -> dataSet));
+        final var measurement = history.getMeasurements().get(0);
+        assertAll(() -> assertEquals(0, measurement.primitivesIn()),
+                () -> assertEquals(2, measurement.primitivesOut()));
+        final var report = history.getReport().split("\n", -1);
+        assertEquals(2, report.length);
+        assertTrue(report[1].startsWith("download\tsource\t"));
+    }
+
+    @Test
+    void testBoundedHistory() {
+        for (var i = 0; i < CleanupMetrics.History.MAX_MEASUREMENTS + 10; i++) {
+            CleanupMetrics.measure(CleanupMetrics.CLEANUP, Integer.toString(i), dataSet, () -> {
+                // Nothing to do
+            });
+        }
+        final var measurements = history.getMeasurements();
+        assertEquals(CleanupMetrics.History.MAX_MEASUREMENTS, measurements.size());
+        assertEquals("10", measurements.get(0).stage());
+    }
+
+    /**
+     * Each layer should only get the measurements of its own data
+     */
+    @Test
+    void testHistoriesPerDataSet() {
+        final var otherDataSet = new DataSet();
+        final var otherHistory = new CleanupMetrics.History();
+        CleanupMetrics.addHistory(otherDataSet, otherHistory);
+        try {
+            final var download = new DataSet();
+            CleanupMetrics.measure(CleanupMetrics.DOWNLOAD, "source", () -> download);
+            CleanupMetrics.measure(CleanupMetrics.CLEANUP, "other", otherDataSet, () -> {
+                // Nothing to do
+            });
+            assertTrue(history.getMeasurements().isEmpty());
+            assertEquals(List.of("other"),
+                    otherHistory.getMeasurements().stream().map(CleanupMetrics.Measurement::stage).toList());
+
+            // The download measurements follow the data
+            dataSet.mergeFrom(download);
+            CleanupMetrics.transfer(download, dataSet);
+            CleanupMetrics.measure(CleanupMetrics.CLEANUP, "this", dataSet, () -> {
+                // Nothing to do
+            });
+            assertEquals(List.of("source", "this"),
+                    history.getMeasurements().stream().map(CleanupMetrics.Measurement::stage).toList());
+            assertEquals(1, otherHistory.getMeasurements().size());
+        } finally {
+            CleanupMetrics.removeHistory(otherDataSet);
+        }
+    }
+}
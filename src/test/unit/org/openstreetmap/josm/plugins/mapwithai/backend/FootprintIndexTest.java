@@ -0,0 +1,125 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link FootprintIndex}
+ */
+@BasicPreferences
+@Projection
+class FootprintIndexTest {
+    private static final SourcePriorityPolicy POLICY = new SourcePriorityPolicy(List.of("high", "low"));
+
+    @Test
+    void testArea() {
+        assertEquals(6, FootprintIndex.area(new Rectangle2D.Double(1, 1, 2, 3)), 1e-9);
+    }
+
+    @Test
+    void testLowerPriorityDuplicateDropped() {
+        final var dataSet = new DataSet();
+        final var existing = addBuilding(dataSet, "high", 0, 0);
+        final var index = new FootprintIndex(dataSet);
+
+        final var incoming = new DataSet();
+        final var duplicate = addBuilding(incoming, "low", 0.000_01, 0);
+        final var separate = addBuilding(incoming, "low", 0.01, 0.01);
+
+        assertEquals(1, index.merge(incoming, POLICY));
+        assertAll(() -> assertSame(dataSet, existing.getDataSet()), () -> assertNull(duplicate.getDataSet()),
+                () -> assertSame(dataSet, separate.getDataSet()), () -> assertEquals(2, dataSet.getWays().size()),
+                () -> assertEquals(8, dataSet.getNodes().size()));
+    }
+
+    @Test
+    void testHigherPriorityAndSameSourceKept() {
+        final var dataSet = new DataSet();
+        addBuilding(dataSet, "low", 0, 0);
+        addBuilding(dataSet, "high", 0.01, 0.01);
+        final var index = new FootprintIndex(dataSet);
+
+        final var incoming = new DataSet();
+        final var higher = addBuilding(incoming, "high", 0, 0);
+        final var sameSource = addBuilding(incoming, "high", 0.01, 0.01);
+
+        assertEquals(0, index.merge(incoming, POLICY));
+        assertAll(() -> assertSame(dataSet, higher.getDataSet()), () -> assertSame(dataSet, sameSource.getDataSet()));
+    }
+
+    /**
+     * Sources that are not in the policy have the same (unknown) priority, so
+     * overlapping areas from them should all be kept
+     */
+    @Test
+    void testUnknownSourcesKept() {
+        final var dataSet = new DataSet();
+        addBuilding(dataSet, null, 0, 0);
+        final var index = new FootprintIndex(dataSet);
+
+        final var incoming = new DataSet();
+        final var unknown = addBuilding(incoming, "unknown", 0.000_01, 0);
+
+        assertEquals(0, index.merge(incoming, POLICY));
+        assertSame(dataSet, unknown.getDataSet());
+    }
+
+    @Test
+    void testMergeOrder() {
+        final var dataSet = new DataSet();
+        final var index = new FootprintIndex(dataSet);
+        final var high = new DataSet();
+        final var highBuilding = addBuilding(high, "high", 0, 0);
+        final var low = new DataSet();
+        final var lowBuilding = addBuilding(low, "low", 0.000_01, 0.000_01);
+        final var unknown = new DataSet();
+        final var unknownBuilding = addBuilding(unknown, null, 0, 0);
+
+        index.merge(high, POLICY);
+        assertAll(() -> assertEquals(1, index.merge(low, POLICY)), () -> assertEquals(1, index.merge(unknown, POLICY)),
+                () -> assertSame(dataSet, highBuilding.getDataSet()), () -> assertNull(lowBuilding.getDataSet()),
+                () -> assertNull(unknownBuilding.getDataSet()));
+    }
+
+    @Test
+    void testSmallOverlapKept() {
+        final var dataSet = new DataSet();
+        addBuilding(dataSet, "high", 0, 0);
+        final var index = new FootprintIndex(dataSet);
+
+        final var incoming = new DataSet();
+        // Half of the building overlaps, so the intersection over union is 1/3
+        final var neighbor = addBuilding(incoming, "low", 0.000_05, 0);
+
+        assertEquals(0, index.merge(incoming, POLICY));
+        assertSame(dataSet, neighbor.getDataSet());
+    }
+
+    private static Way addBuilding(DataSet dataSet, String source, double lat, double lon) {
+        final var size = 0.000_1;
+        final var first = new Node(new LatLon(lat, lon));
+        final Way way = TestUtils.newWay("building=yes", first, new Node(new LatLon(lat, lon + size)),
+                new Node(new LatLon(lat + size, lon + size)), new Node(new LatLon(lat + size, lon)), first);
+        if (source != null) {
+            way.put(GetDataRunnable.MAPWITHAI_SOURCE_TAG_KEY, source);
+        }
+        way.getNodes().stream().distinct().forEach(dataSet::addPrimitive);
+        dataSet.addPrimitive(way);
+        return way;
+    }
+}
@@ -15,6 +15,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
@@ -23,6 +24,7 @@ import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.IWaySegment;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.gui.MainApplication;
@@ -161,4 +163,91 @@ class GetDataRunnableTest {
         assertAll(() -> assertFalse(emptyNode.isDeleted()), () -> assertFalse(taggedNode.isDeleted()),
                 () -> assertTrue(ds.containsNode(emptyNode)), () -> assertTrue(ds.containsNode(taggedNode)));
     }
+
+    /**
+     * Cleanup in parallel partitions must give the same result as a single
+     * threaded cleanup
+     */
+    @Test
+    void testParallelCleanupMatchesSerial() {
+        final var osm = new DataSet();
+        for (var i = 0; i < 100; i += 2) {
+            addBuilding(osm, i);
+        }
+        final var layer = new OsmDataLayer(osm, "OSM Layer", null);
+        MainApplication.getLayerManager().addLayer(layer);
+        try {
+            final var serial = createCleanupDataSet();
+            final var parallel = createCleanupDataSet();
+            assertTrue(serial.getWays().size() > PartitionedCleanup.MINIMUM_PARTITION_SIZE);
+            MapWithAIPreferenceHelper.setParallelCleanup(false);
+            GetDataRunnable.cleanup(serial, null, null);
+            MapWithAIPreferenceHelper.setParallelCleanup(true);
+            GetDataRunnable.cleanup(parallel, null, null);
+            assertFalse(serial.getWays().stream().noneMatch(Way::isDeleted));
+            assertEquals(describe(serial), describe(parallel));
+        } finally {
+            MainApplication.getLayerManager().removeLayer(layer);
+        }
+    }
+
+    /**
+     * Create a dataset with long ways, two node ways on top of the long ways and
+     * on top of each other, and buildings
+     *
+     * @return The dataset
+     */
+    private static DataSet createCleanupDataSet() {
+        final var dataSet = new DataSet();
+        for (var i = 0; i < 20; i++) {
+            final double lat = i * 0.01;
+            final var longWay = new Way();
+            for (var j = 0; j < 30; j++) {
+                final var node = new Node(new LatLon(lat, j * 0.01));
+                dataSet.addPrimitive(node);
+                longWay.addNode(node);
+            }
+            dataSet.addPrimitive(longWay);
+            for (var j = 0; j < 29; j++) {
+                final double shortLat = j % 3 == 0 ? lat + 0.005 : lat;
+                // The artifacts at shortLat + 0.005 only duplicate each other
+                for (var k = 0; k < (j % 3 == 0 ? 2 : 1); k++) {
+                    final Way shortWay = TestUtils.newWay("", new Node(new LatLon(shortLat, j * 0.01 + 0.002)),
+                            new Node(new LatLon(shortLat + k * 0.000_002, j * 0.01 + 0.007)));
+                    shortWay.getNodes().forEach(dataSet::addPrimitive);
+                    dataSet.addPrimitive(shortWay);
+                }
+            }
+        }
+        for (var i = 0; i < 100; i++) {
+            addBuilding(dataSet, i);
+        }
+        return dataSet;
+    }
+
+    private static void addBuilding(DataSet dataSet, int i) {
+        final double lat = -0.01 - (i / 10) * 0.001;
+        final double lon = (i % 10) * 0.001;
+        final Way building = TestUtils.newWay("building=yes", new Node(new LatLon(lat, lon)),
+                new Node(new LatLon(lat, lon + 0.0005)), new Node(new LatLon(lat - 0.0005, lon + 0.0005)),
+                new Node(new LatLon(lat - 0.0005, lon)));
+        building.addNode(building.firstNode());
+        building.getNodes().stream().distinct().forEach(dataSet::addPrimitive);
+        dataSet.addPrimitive(building);
+    }
+
+    private static List<String> describe(DataSet dataSet) {
+        return dataSet.allNonDeletedPrimitives().stream().map(GetDataRunnableTest::describe).sorted().toList();
+    }
+
+    private static String describe(OsmPrimitive primitive) {
+        final var description = new StringBuilder(primitive.getType().getAPIName())
+                .append(new TreeMap<>(primitive.getKeys()));
+        if (primitive instanceof Node node) {
+            description.append(node.lat()).append(',').append(node.lon());
+        } else if (primitive instanceof Way way) {
+            way.getNodes().forEach(node -> description.append(' ').append(node.lat()).append(',').append(node.lon()));
+        }
+        return description.toString();
+    }
 }
@@ -159,6 +159,35 @@ class MapWithAILayerTest {
         }
     }
 
+    /**
+     * The info of a layer should only report the cleanup of its own data
+     */
+    @Test
+    void testInfoComponentMetricsPerLayer() {
+        final var other = new MapWithAILayer(new DataSet(), "other", null);
+        try {
+            CleanupMetrics.measure(CleanupMetrics.CLEANUP, "test", layer.getDataSet(), () -> {
+                // Nothing to do
+            });
+            CleanupMetrics.measure(CleanupMetrics.CLEANUP, "test", layer.getDataSet(), () -> {
+                // Nothing to do
+            });
+            CleanupMetrics.measure(CleanupMetrics.CLEANUP, "test", other.getDataSet(), () -> {
+                // Nothing to do
+            });
+            assertTrue(getMetricsLabel(layer).contains("(2 measurements)"), getMetricsLabel(layer));
+            assertTrue(getMetricsLabel(other).contains("(1 measurements)"), getMetricsLabel(other));
+        } finally {
+            other.destroy();
+        }
+    }
+
+    private static String getMetricsLabel(MapWithAILayer layer) {
+        final JPanel panel = (JPanel) layer.getInfoComponent();
+        return Stream.of(panel.getComponents()).filter(JLabel.class::isInstance).map(JLabel.class::cast)
+                .map(JLabel::getText).filter(text -> text.contains("measurements)")).findFirst().orElse("");
+    }
+
     @Test
     void testGetLayer() {
         Layer mapWithAILayer = MapWithAIDataUtils.getLayer(false);
@@ -9,15 +9,22 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.awaitility.Awaitility;
 import org.awaitility.Durations;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.actions.ExpertToggleAction;
 import org.openstreetmap.josm.command.DeleteCommand;
 import org.openstreetmap.josm.data.UndoRedoHandler;
 import org.openstreetmap.josm.data.coor.LatLon;
@@ -30,6 +37,7 @@ import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.Notification;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.plugins.mapwithai.commands.ConflationDecisionReport;
 import org.openstreetmap.josm.plugins.mapwithai.commands.ConnectedCommand;
 import org.openstreetmap.josm.plugins.mapwithai.commands.DuplicateCommand;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.MapWithAIPluginMock;
@@ -223,6 +231,12 @@ class MapWithAIMoveActionTest {
         ds.setSelected(building);
         ds.addSelected(address);
         GuiHelper.runInEDTAndWaitWithException(() -> moveAction.actionPerformed(null));
+        // The command is planned in the worker when the action is performed on the EDT
+        final Future<?> workerQueue = MainApplication.worker.submit(() -> {
+            /* Sync worker thread */
+        });
+        Awaitility.await().atMost(Durations.FIVE_SECONDS).until(workerQueue::isDone);
+        assertTrue(UndoRedoHandler.getInstance().hasUndoCommands());
         while (UndoRedoHandler.getInstance().hasUndoCommands()) {
             assertDoesNotThrow(() -> UndoRedoHandler.getInstance().undo());
         }
@@ -353,4 +367,72 @@ class MapWithAIMoveActionTest {
         assertEquals("1", addr.get("addr:housenumber"));
         assertEquals("Test", addr.get("addr:street"));
     }
+
+    /**
+     * Adding a large selection should stay within the latency budget of 500 ms,
+     * plus 250 ms for every thousand primitives. This covers the move, the
+     * conflation, getting the source tags for the changeset, and removing the
+     * primitives from the MapWithAI layer. Undoing the addition has the same
+     * budget.
+     *
+     * @param primitives The number of primitives to add
+     */
+    @ParameterizedTest
+    @ValueSource(ints = { 1_000, 10_000, 50_000 })
+    @Tag("slow")
+    void testBulkAddThroughput(int primitives) {
+        final DataSet osm = this.osmLayer.getDataSet();
+        final DataSet mwai = this.mapWithAIData;
+        osm.clear();
+        mwai.clear();
+        // Each group is a building (5 primitives) and a highway (3 primitives)
+        final var ways = new ArrayList<Way>();
+        for (int i = 0; i < primitives / 8; i++) {
+            final double lat = 10 + (i / 100) * 0.001;
+            final double lon = 10 + (i % 100) * 0.001;
+            final Way building = TestUtils.newWay("building=yes mapwithai:source=Synthetic",
+                    new Node(new LatLon(lat, lon)), new Node(new LatLon(lat, lon + 0.0005)),
+                    new Node(new LatLon(lat + 0.0005, lon + 0.0005)), new Node(new LatLon(lat + 0.0005, lon)));
+            building.addNode(building.firstNode());
+            final Way highway = TestUtils.newWay("highway=residential mapwithai:source=Synthetic",
+                    new Node(new LatLon(lat + 0.0007, lon)), new Node(new LatLon(lat + 0.0007, lon + 0.0008)));
+            mwai.addPrimitiveRecursive(building);
+            mwai.addPrimitiveRecursive(highway);
+            ways.add(building);
+            ways.add(highway);
+        }
+        assertEquals(primitives, mwai.allPrimitives().size());
+        GuiHelper.runInEDTAndWait(() -> mwai.setSelected(ways));
+        final long budget = 500 + primitives / 4;
+
+        MapWithAIPreferenceHelper.setMaximumAddition(0, false);
+        ExpertToggleAction.getInstance().setExpert(true);
+        MapWithAIPreferenceHelper.setInteractiveConflation(false);
+        try {
+            final long addStart = System.nanoTime();
+            this.moveAction.actionPerformed(null);
+            final String source = MapWithAIDataUtils.getLayer(false).getChangesetSourceTag();
+            final long added = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - addStart);
+            assertEquals(primitives, osm.allNonDeletedPrimitives().size());
+            assertTrue(mwai.allNonDeletedPrimitives().isEmpty());
+            assertEquals("MapWithAI; Synthetic", source);
+
+            final long undoStart = System.nanoTime();
+            while (UndoRedoHandler.getInstance().hasUndoCommands()) {
+                UndoRedoHandler.getInstance().undo();
+            }
+            final long undone = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - undoStart);
+            assertTrue(osm.allNonDeletedPrimitives().isEmpty());
+            assertEquals(primitives, mwai.allNonDeletedPrimitives().size());
+
+            Logging.info("Adding {0} primitives took {1} ms, undoing took {2} ms (budget {3} ms)", primitives, added,
+                    undone, budget);
+            assertTrue(added < budget, "Adding " + primitives + " primitives took " + added + " ms");
+            assertTrue(undone < budget, "Undoing the addition of " + primitives + " primitives took " + undone + " ms");
+        } finally {
+            MapWithAIPreferenceHelper.setInteractiveConflation(true);
+            ConflationDecisionReport.getInstance(osm).clear();
+            ExpertToggleAction.getInstance().setExpert(false);
+        }
+    }
 }
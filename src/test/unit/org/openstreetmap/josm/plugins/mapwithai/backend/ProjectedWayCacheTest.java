@@ -0,0 +1,167 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import static java.util.function.Predicate.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.SlowTest;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+import org.openstreetmap.josm.tools.Geometry;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Test class for {@link ProjectedWayCache}
+ */
+@BasicPreferences
+@Projection
+class ProjectedWayCacheTest {
+    @Test
+    void testCachedUntilModified() {
+        final Way way = TestUtils.newWay("", new Node(new LatLon(0, 0)), new Node(new LatLon(1, 1)));
+        final var cache = new ProjectedWayCache();
+        final double[] coordinates = cache.get(way);
+        assertSame(coordinates, cache.get(way));
+        assertArrayEquals(new double[] { way.firstNode().getEastNorth().east(),
+                way.firstNode().getEastNorth().north(), way.lastNode().getEastNorth().east(),
+                way.lastNode().getEastNorth().north() }, coordinates);
+
+        way.addNode(new Node(new LatLon(2, 2)));
+        final double[] modified = cache.get(way);
+        assertNotSame(coordinates, modified);
+        assertEquals(6, modified.length);
+    }
+
+    @Test
+    void testUnknownCoordinates() {
+        final Way way = TestUtils.newWay("", new Node(new LatLon(0, 0)), new Node(1));
+        assertNull(new ProjectedWayCache().get(way));
+    }
+
+    @Test
+    void testDistance() {
+        final Way way = TestUtils.newWay("", new Node(new LatLon(0, 0)), new Node(new LatLon(0, 1)),
+                new Node(new LatLon(1, 1)));
+        final double[] coordinates = new ProjectedWayCache().get(way);
+        for (var node : new Node[] { new Node(new LatLon(0.5, 0.5)), new Node(new LatLon(-1, -1)),
+                new Node(new LatLon(2, 1)), way.getNode(1) }) {
+            assertEquals(Geometry.getDistance(node, way),
+                    ProjectedWayCache.distance(node.getEastNorth().east(), node.getEastNorth().north(), coordinates),
+                    1e-6);
+        }
+        assertTrue(Double.isNaN(ProjectedWayCache.distance(0, 0, new double[2])));
+    }
+
+    /**
+     * Artifact cleanup on a large layer should be faster than the implementation
+     * that did not use projected coordinate arrays, and remove the same ways
+     */
+    @SlowTest
+    void testCleanupArtifactsBenchmark() {
+        // Warm up both implementations, so that neither pays for the JIT alone
+        createArtifactDataSet().getWays().stream().limit(2_000)
+                .forEach(ProjectedWayCacheTest::previousCleanupArtifacts);
+        final var warmUpCache = new ProjectedWayCache();
+        createArtifactDataSet().getWays().stream().limit(2_000)
+                .forEach(way -> GetDataRunnable.cleanupArtifacts(way, warmUpCache));
+
+        final var previous = createArtifactDataSet();
+        final long previousStart = System.nanoTime();
+        assertTimeout(Duration.ofSeconds(60),
+                () -> previous.getWays().forEach(ProjectedWayCacheTest::previousCleanupArtifacts));
+        final long previousTime = System.nanoTime() - previousStart;
+
+        final var current = createArtifactDataSet();
+        final var cache = new ProjectedWayCache();
+        final long currentStart = System.nanoTime();
+        assertTimeout(Duration.ofSeconds(30),
+                () -> current.getWays().forEach(way -> GetDataRunnable.cleanupArtifacts(way, cache)));
+        final long currentTime = System.nanoTime() - currentStart;
+
+        Logging.info("cleanupArtifacts: {0} ms, {1} ms with the previous implementation", currentTime / 1_000_000,
+                previousTime / 1_000_000);
+        assertEquals(previous.getWays().stream().filter(Way::isDeleted).count(),
+                current.getWays().stream().filter(Way::isDeleted).count());
+        assertFalse(current.getWays().stream().noneMatch(Way::isDeleted));
+        assertTrue(currentTime < previousTime,
+                "cleanupArtifacts took " + currentTime + " ns, the previous implementation took " + previousTime
+                        + " ns");
+    }
+
+    /**
+     * The implementation of {@link GetDataRunnable#cleanupArtifacts(Way)} before
+     * {@link ProjectedWayCache}, for comparison
+     *
+     * @param way The way to check
+     */
+    private static void previousCleanupArtifacts(Way way) {
+        for (var i = 0; i < (way.getNodesCount() - 2); i++) {
+            final var node0 = way.getNode(i);
+            final var node1 = way.getNode(i + 1);
+            final var node2 = way.getNode(i + 2);
+            final double angle = Geometry.getCornerAngle(node0.getEastNorth(), node1.getEastNorth(),
+                    node2.getEastNorth());
+            if (angle < 0.1745) {
+                final List<Node> nodes = way.getNodes();
+                nodes.remove(i + 1);
+                nodes.add(i + 2, node1);
+            }
+        }
+        if ((way.getNodesCount() == 2) && (way.getDataSet() != null)) {
+            final var tBBox = new BBox();
+            tBBox.addPrimitive(way, 0.001f);
+            if (way.getDataSet().searchWays(tBBox).stream().filter(not(IPrimitive::isDeleted)).filter(not(way::equals))
+                    .anyMatch(tWay -> way.getNodes().stream().filter(
+                            tNode -> Geometry.getDistance(tNode, tWay) < MapWithAIPreferenceHelper.getMaxNodeDistance())
+                            .count() == way.getNodesCount())) {
+                way.setDeleted(true);
+            }
+        }
+    }
+
+    /**
+     * Create a dataset with long parallel ways and many short ways, where every
+     * other short way lies on top of a long way
+     *
+     * @return The dataset
+     */
+    private static DataSet createArtifactDataSet() {
+        final var dataSet = new DataSet();
+        for (var i = 0; i < 100; i++) {
+            final double lat = i * 0.001;
+            final var longWay = new Way();
+            for (var j = 0; j < 200; j++) {
+                final var node = new Node(new LatLon(lat, j * 0.001));
+                dataSet.addPrimitive(node);
+                longWay.addNode(node);
+            }
+            dataSet.addPrimitive(longWay);
+            for (var j = 0; j < 199; j++) {
+                final double shortLat = j % 2 == 0 ? lat : lat + 0.0005;
+                final Way shortWay = TestUtils.newWay("", new Node(new LatLon(shortLat, j * 0.001 + 0.0002)),
+                        new Node(new LatLon(shortLat, j * 0.001 + 0.0007)));
+                shortWay.getNodes().forEach(dataSet::addPrimitive);
+                dataSet.addPrimitive(shortWay);
+            }
+        }
+        return dataSet;
+    }
+}
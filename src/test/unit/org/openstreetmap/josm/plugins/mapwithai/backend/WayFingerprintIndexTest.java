@@ -0,0 +1,140 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.backend;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.awaitility.Awaitility;
+import org.awaitility.Durations;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Test class for {@link WayFingerprintIndex}
+ */
+@BasicPreferences
+class WayFingerprintIndexTest {
+    @AfterEach
+    void tearDown() {
+        WayFingerprintIndex.destroyAll();
+    }
+
+    private static Way addWay(DataSet dataSet, String tags, LatLon... coordinates) {
+        final var way = TestUtils.newWay(tags, Arrays.stream(coordinates).map(Node::new).toArray(Node[]::new));
+        way.getNodes().forEach(dataSet::addPrimitive);
+        dataSet.addPrimitive(way);
+        return way;
+    }
+
+    @Test
+    void testCandidates() {
+        final var osm = new DataSet();
+        final var building = addWay(osm, "building=yes", new LatLon(0, 0), new LatLon(0, 0.001),
+                new LatLon(0.001, 0.001));
+        addWay(osm, "building=house", new LatLon(0, 0), new LatLon(0, 0.001), new LatLon(0.001, 0.001));
+        addWay(osm, "building=yes", new LatLon(1, 1), new LatLon(1, 1.001), new LatLon(1.001, 1.001));
+        final var index = WayFingerprintIndex.getIndex(osm);
+        assertSame(index, WayFingerprintIndex.getIndex(osm));
+
+        final var mapWithAI = new DataSet();
+        final var incoming = addWay(mapWithAI, "building=yes mapwithai:source=test", new LatLon(0, 0),
+                new LatLon(0, 0.001), new LatLon(0.001, 0.001));
+        final var fewerNodes = addWay(mapWithAI, "building=yes", new LatLon(0, 0), new LatLon(0, 0.001));
+        assertAll(() -> assertEquals(Collections.singletonList(building), index.getCandidates(incoming, 0.001)),
+                () -> assertTrue(index.getCandidates(fewerNodes, 0.001).isEmpty()));
+    }
+
+    @Test
+    void testSnapshot() {
+        final var osm = new DataSet();
+        final var building = addWay(osm, "building=yes", new LatLon(0, 0), new LatLon(0, 0.001),
+                new LatLon(0.001, 0.001));
+        // Crosses several grid cells
+        final var road = addWay(osm, "highway=residential", new LatLon(-0.5, -0.5), new LatLon(0.5, 0.5));
+        final var snapshot = WayFingerprintIndex.getIndex(osm).snapshot();
+        // Not in the snapshot
+        addWay(osm, "building=yes", new LatLon(0, 0), new LatLon(0, 0.001), new LatLon(0.001, 0.001));
+
+        final var mapWithAI = new DataSet();
+        final var incoming = addWay(mapWithAI, "building=yes mapwithai:source=test", new LatLon(0, 0),
+                new LatLon(0, 0.001), new LatLon(0.001, 0.001));
+        final var incomingRoad = addWay(mapWithAI, "highway=residential", new LatLon(-0.5, -0.5),
+                new LatLon(0.5, 0.5));
+        assertAll(() -> assertEquals(List.of(building), snapshot.getCandidates(incoming, 0.001)),
+                () -> assertEquals(List.of(road), snapshot.getCandidates(incomingRoad, 0.001)));
+
+        building.setDeleted(true);
+        assertTrue(snapshot.getCandidates(incoming, 0.001).isEmpty());
+    }
+
+    @Test
+    void testIncrementalUpdates() {
+        final var osm = new DataSet();
+        final var building = addWay(osm, "building=yes", new LatLon(0, 0), new LatLon(0, 0.001),
+                new LatLon(0.001, 0.001));
+        final var index = WayFingerprintIndex.getIndex(osm);
+        final var mapWithAI = new DataSet();
+        final var incoming = addWay(mapWithAI, "building=house", new LatLon(0, 0), new LatLon(0, 0.001),
+                new LatLon(0.001, 0.001));
+        assertTrue(index.getCandidates(incoming, 0.001).isEmpty());
+
+        building.put("building", "house");
+        assertEquals(List.of(building), index.getCandidates(incoming, 0.001));
+
+        building.firstNode().setCoor(new LatLon(1, 1));
+        assertTrue(index.getCandidates(incoming, 0.001).isEmpty());
+        building.firstNode().setCoor(new LatLon(0, 0));
+        assertEquals(List.of(building), index.getCandidates(incoming, 0.001));
+
+        final var added = addWay(osm, "building=house", new LatLon(0, 0), new LatLon(0, 0.001),
+                new LatLon(0.001, 0.001));
+        assertEquals(2, index.getCandidates(incoming, 0.001).size());
+
+        added.setDeleted(true);
+        building.setDeleted(true);
+        assertTrue(index.getCandidates(incoming, 0.001).isEmpty());
+    }
+
+    @Test
+    void testLayerRemoval() {
+        final var osm = new DataSet();
+        final var layer = new OsmDataLayer(osm, "OSM Layer", null);
+        MainApplication.getLayerManager().addLayer(layer);
+        final var index = WayFingerprintIndex.getIndex(osm);
+        MainApplication.getLayerManager().removeLayer(layer);
+        assertNotSame(index, WayFingerprintIndex.getIndex(osm));
+    }
+
+    /**
+     * An index for a dataset that was never in a layer should not keep the
+     * dataset alive
+     */
+    @Test
+    void testUnusedDataSetCollected() {
+        var osm = new DataSet();
+        addWay(osm, "building=yes", new LatLon(0, 0), new LatLon(0, 0.001), new LatLon(0.001, 0.001));
+        WayFingerprintIndex.getIndex(osm);
+        final var reference = new WeakReference<>(osm);
+        osm = null;
+        Awaitility.await().atMost(Durations.FIVE_SECONDS).until(() -> {
+            System.gc();
+            return reference.get() == null;
+        });
+    }
+}
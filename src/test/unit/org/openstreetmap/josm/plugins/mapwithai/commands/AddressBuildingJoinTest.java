@@ -0,0 +1,93 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link AddressBuildingJoin}
+ *
+ * @author Taylor Smock
+ */
+@Projection
+class AddressBuildingJoinTest {
+    private static Way addSquare(DataSet dataSet, LatLon center, double size) {
+        final Way way = TestUtils.newWay("building=yes",
+                new Node(new LatLon(center.lat() - size, center.lon() - size)),
+                new Node(new LatLon(center.lat() - size, center.lon() + size)),
+                new Node(new LatLon(center.lat() + size, center.lon() + size)),
+                new Node(new LatLon(center.lat() + size, center.lon() - size)));
+        way.getNodes().forEach(dataSet::addPrimitive);
+        dataSet.addPrimitive(way);
+        way.addNode(way.firstNode());
+        return way;
+    }
+
+    @Test
+    void testJoin() {
+        final DataSet dataSet = new DataSet();
+        final List<Way> buildings = new ArrayList<>();
+        final List<Node> addresses = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final LatLon center = new LatLon(0, i * 0.001);
+            buildings.add(addSquare(dataSet, center, 0.0001));
+            final Node address = new Node(center);
+            address.put("addr:housenumber", Integer.toString(i));
+            dataSet.addPrimitive(address);
+            addresses.add(address);
+        }
+        final Node outside = new Node(new LatLon(0.001, 0));
+        dataSet.addPrimitive(outside);
+
+        final AddressBuildingJoin join = new AddressBuildingJoin(dataSet);
+        join.read(j -> {
+            j.prepareAll(buildings);
+            for (int i = 0; i < buildings.size(); i++) {
+                assertEquals(List.of(buildings.get(i)), j.getContaining(addresses.get(i)));
+                assertEquals(List.of(addresses.get(i)), j.getNodesInside(buildings.get(i)));
+            }
+            assertTrue(j.getContaining(outside).isEmpty());
+            return null;
+        });
+    }
+
+    @Test
+    void testMultipolygon() {
+        final DataSet dataSet = new DataSet();
+        final Way outer = addSquare(dataSet, LatLon.ZERO, 0.001);
+        final Way inner = addSquare(dataSet, LatLon.ZERO, 0.0005);
+        outer.remove("building");
+        inner.remove("building");
+        final Relation multipolygon = TestUtils.newRelation("type=multipolygon building=yes",
+                new RelationMember("outer", outer), new RelationMember("inner", inner));
+        dataSet.addPrimitive(multipolygon);
+        final Node inHole = new Node(LatLon.ZERO);
+        final Node inside = new Node(new LatLon(0.00075, 0));
+        dataSet.addPrimitive(inHole);
+        dataSet.addPrimitive(inside);
+
+        final AddressBuildingJoin join = new AddressBuildingJoin(dataSet);
+        final List<OsmPrimitive> containing = join.read(j -> {
+            j.prepareAll(List.of(multipolygon));
+            return j.getContaining(inside);
+        });
+        assertAll(() -> assertEquals(List.of(multipolygon), containing),
+                () -> assertTrue(join.read(j -> j.getContaining(inHole)).isEmpty()),
+                () -> assertEquals(List.of(inside), join.read(j -> j.getNodesInside(multipolygon))));
+    }
+}
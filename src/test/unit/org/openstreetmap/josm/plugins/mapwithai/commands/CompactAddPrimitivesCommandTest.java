@@ -0,0 +1,150 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.testutils.HeapUtils.usedHeap;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.command.AddPrimitivesCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.SlowTest;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Test class for {@link CompactAddPrimitivesCommand}
+ *
+ * @author Taylor Smock
+ */
+@Projection
+class CompactAddPrimitivesCommandTest {
+    /**
+     * Create the data for buildings
+     *
+     * @param buildings The number of buildings
+     * @return The data, with five primitives per building
+     */
+    private static List<PrimitiveData> createBuildings(int buildings) {
+        final var data = new ArrayList<PrimitiveData>(buildings * 5);
+        for (int i = 0; i < buildings; i++) {
+            final double lat = (i / 100) * 0.001;
+            final double lon = (i % 100) * 0.001;
+            final Way building = TestUtils.newWay("building=yes", new Node(new LatLon(lat, lon)),
+                    new Node(new LatLon(lat, lon + 0.0005)), new Node(new LatLon(lat + 0.0005, lon + 0.0005)),
+                    new Node(new LatLon(lat + 0.0005, lon)));
+            building.addNode(building.firstNode());
+            building.getNodes().stream().distinct().map(Node::save).forEach(data::add);
+            data.add(building.save());
+        }
+        return data;
+    }
+
+    @Test
+    void testUndoRedo() {
+        final DataSet ds = new DataSet();
+        final List<PrimitiveData> data = createBuildings(2);
+        final PrimitiveData way = data.get(4);
+        final var command = new CompactAddPrimitivesCommand(data, Collections.singleton(way), ds);
+        command.executeCommand();
+        assertEquals(10, ds.allPrimitives().size());
+        final OsmPrimitive added = ds.getPrimitiveById(way);
+        assertEquals(5, ((Way) added).getNodesCount());
+        assertEquals("yes", added.get("building"));
+        assertEquals(List.of(added), new ArrayList<>(ds.getAllSelected()));
+        assertEquals(10, command.getParticipatingPrimitives().size());
+
+        command.undoCommand();
+        assertTrue(ds.isEmpty());
+        assertNull(added.getDataSet());
+        assertEquals(10, command.getParticipatingPrimitives().size());
+
+        command.executeCommand();
+        assertSame(added, ds.getPrimitiveById(way), "Redo must add the same objects");
+        assertEquals(10, ds.allPrimitives().size());
+        assertTrue(((Way) added).getNodes().stream().allMatch(node -> node.getDataSet() == ds));
+    }
+
+    @Test
+    void testModified() {
+        final DataSet ds = new DataSet();
+        final List<PrimitiveData> data = createBuildings(1);
+        data.forEach(pd -> pd.setModified(false));
+        final var command = new CompactAddPrimitivesCommand(data, Collections.emptyList(), ds);
+        command.executeCommand();
+        assertEquals(5, ds.allPrimitives().size());
+        assertTrue(ds.allPrimitives().stream().allMatch(OsmPrimitive::isModified),
+                "Added primitives must be modified, like AddPrimitivesCommand");
+        assertTrue(ds.getNodes().stream().allMatch(node -> node.getCoor() != null));
+        assertEquals(1, ds.searchNodes(new BBox(0, 0, 0.0001, 0.0001)).size(),
+                "Nodes must be indexed with their coordinates");
+    }
+
+    @Test
+    void testExistingPrimitives() {
+        final DataSet ds = new DataSet();
+        final List<PrimitiveData> data = createBuildings(1);
+        final OsmPrimitive existing = OsmPrimitiveType.NODE.newInstance(data.get(0).getUniqueId(), true);
+        ds.addPrimitive(existing);
+        final var command = new CompactAddPrimitivesCommand(data, Collections.emptyList(), ds);
+        command.executeCommand();
+        assertSame(existing, ds.getPrimitiveById(data.get(0)));
+        assertEquals(5, ds.allPrimitives().size());
+        command.undoCommand();
+        assertEquals(Collections.singletonList(existing), new ArrayList<>(ds.allPrimitives()));
+    }
+
+    /**
+     * The command should retain much less memory on the undo stack than
+     * {@link AddPrimitivesCommand}
+     */
+    @SlowTest
+    void testRetainedHeap() {
+        final long compact = retainedHeap(data -> new CompactAddPrimitivesCommand(data,
+                data.stream().filter(WayData.class::isInstance).toList(), new DataSet()));
+        final long original = retainedHeap(data -> new AddPrimitivesCommand(data,
+                data.stream().filter(WayData.class::isInstance).toList(), new DataSet()));
+        Logging.info("Retained heap for 50000 primitives: {0} bytes (compact), {1} bytes (AddPrimitivesCommand)",
+                compact, original);
+        assertTrue(compact * 2 < original, "The compact command retained " + compact + " bytes, compared to "
+                + original + " bytes for AddPrimitivesCommand");
+    }
+
+    /**
+     * Get the heap retained by an executed command, not counting the dataset
+     *
+     * @param creator Create the command
+     * @return The retained heap
+     */
+    private static long retainedHeap(Function<List<PrimitiveData>, Command> creator) {
+        // Only the holder references the command, so that it can be collected
+        final var holder = new AtomicReference<>(creator.apply(createBuildings(10_000)));
+        holder.get().executeCommand();
+        final DataSet ds = holder.get().getAffectedDataSet();
+        assertEquals(50_000, ds.allPrimitives().size());
+        final long withCommand = usedHeap();
+        holder.set(null);
+        final long withoutCommand = usedHeap();
+        Reference.reachabilityFence(ds);
+        return withCommand - withoutCommand;
+    }
+}
@@ -0,0 +1,101 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.command.DeleteCommand;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link CompactDeletePrimitivesCommand}
+ *
+ * @author Taylor Smock
+ */
+@Projection
+class CompactDeletePrimitivesCommandTest {
+    @Test
+    void testUndoRedo() {
+        final DataSet ds = new DataSet();
+        final Way way = TestUtils.newWay("highway=residential", new Node(new LatLon(0, 0)),
+                new Node(new LatLon(0, 1)));
+        way.getNodes().forEach(ds::addPrimitive);
+        ds.addPrimitive(way);
+        final List<Node> nodes = way.getNodes();
+        final var toDelete = new ArrayList<OsmPrimitive>(nodes);
+        toDelete.add(way);
+        final boolean modified = way.isModified();
+
+        final var command = CompactDeletePrimitivesCommand.delete(toDelete);
+        assertInstanceOf(CompactDeletePrimitivesCommand.class, command);
+        command.executeCommand();
+        assertTrue(ds.allNonDeletedPrimitives().isEmpty());
+        assertTrue(nodes.get(0).getReferrers().isEmpty());
+
+        command.undoCommand();
+        assertEquals(3, ds.allNonDeletedPrimitives().size());
+        assertEquals(nodes, way.getNodes(), "The way should keep its nodes");
+        assertEquals(List.of(way), nodes.get(0).getReferrers());
+        assertEquals(modified, way.isModified());
+        assertFalse(way.isDeleted());
+    }
+
+    @Test
+    void testReferrerOutsideDeletion() {
+        final DataSet ds = new DataSet();
+        final Way way = TestUtils.newWay("highway=residential", new Node(new LatLon(0, 0)),
+                new Node(new LatLon(0, 1)), new Node(new LatLon(0, 2)));
+        way.getNodes().forEach(ds::addPrimitive);
+        ds.addPrimitive(way);
+        assertInstanceOf(DeleteCommand.class,
+                CompactDeletePrimitivesCommand.delete(Collections.singletonList(way.getNode(1))));
+        assertNull(CompactDeletePrimitivesCommand.delete(Collections.emptyList()));
+    }
+
+    @Test
+    void testReferrerAddedBeforeExecution() {
+        final DataSet ds = new DataSet();
+        final Way way = TestUtils.newWay("highway=residential", new Node(new LatLon(0, 0)),
+                new Node(new LatLon(0, 1)));
+        way.getNodes().forEach(ds::addPrimitive);
+        ds.addPrimitive(way);
+        final var toDelete = new ArrayList<OsmPrimitive>(way.getNodes());
+        toDelete.add(way);
+        final var command = CompactDeletePrimitivesCommand.delete(toDelete);
+        assertInstanceOf(CompactDeletePrimitivesCommand.class, command);
+
+        // e.g. a download merged a way using one of the nodes
+        final Node shared = way.firstNode();
+        final Way other = TestUtils.newWay("highway=residential", new Node(new LatLon(1, 0)), shared,
+                new Node(new LatLon(1, 1)));
+        ds.addPrimitive(other.firstNode());
+        ds.addPrimitive(other.lastNode());
+        ds.addPrimitive(other);
+        final List<Node> otherNodes = other.getNodes();
+
+        command.executeCommand();
+        assertTrue(way.isDeleted());
+        assertTrue(shared.isDeleted());
+        assertFalse(other.isDeleted());
+        assertFalse(other.containsNode(shared), "A deleted node must not be left in another way");
+
+        command.undoCommand();
+        assertFalse(way.isDeleted());
+        assertFalse(shared.isDeleted());
+        assertEquals(otherNodes, other.getNodes());
+    }
+}
@@ -0,0 +1,196 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.plugins.mapwithai.commands.cleanup.MissingConnectionTags;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link ConflationCommandRegistry}
+ *
+ * @author Taylor Smock
+ */
+@BasicPreferences
+@Projection
+class ConflationCommandRegistryTest {
+    /**
+     * A command that counts how often it is created
+     */
+    public static final class CountingCommand extends AbstractConflationCommand {
+        static final AtomicInteger CREATED = new AtomicInteger();
+
+        /**
+         * Create a new command
+         *
+         * @param data The dataset
+         */
+        public CountingCommand(DataSet data) {
+            super(data);
+            CREATED.incrementAndGet();
+        }
+
+        @Override
+        public String getDescriptionText() {
+            return "Counting command";
+        }
+
+        @Override
+        public Collection<Class<? extends OsmPrimitive>> getInterestedTypes() {
+            return List.of(Node.class);
+        }
+
+        @Override
+        public String getKey() {
+            return "counting";
+        }
+
+        @Override
+        public Command getRealCommand() {
+            return null;
+        }
+
+        @Override
+        public boolean allowUndo() {
+            return false;
+        }
+
+        @Override
+        public boolean keyShouldNotExistInOSM() {
+            return true;
+        }
+    }
+
+    /**
+     * A command without a {@code (DataSet)} constructor
+     */
+    public static final class NoDataSetCommand extends AbstractConflationCommand {
+        /**
+         * Create a new command
+         */
+        public NoDataSetCommand() {
+            super(new DataSet());
+        }
+
+        @Override
+        public String getDescriptionText() {
+            return "No dataset command";
+        }
+
+        @Override
+        public Collection<Class<? extends OsmPrimitive>> getInterestedTypes() {
+            return List.of(Node.class);
+        }
+
+        @Override
+        public String getKey() {
+            return "nodataset";
+        }
+
+        @Override
+        public Command getRealCommand() {
+            return null;
+        }
+
+        @Override
+        public boolean allowUndo() {
+            return false;
+        }
+
+        @Override
+        public boolean keyShouldNotExistInOSM() {
+            return false;
+        }
+    }
+
+    @Test
+    void testBuiltInCommands() {
+        final var types = ConflationCommandRegistry.getEntries().stream().map(ConflationCommandRegistry.Entry::type)
+                .toList();
+        assertAll(() -> assertEquals(MissingConnectionTags.class, types.get(0)),
+                () -> assertEquals(AlreadyConflatedCommand.class, types.get(types.size() - 1)),
+                () -> assertEquals(List.copyOf(CreateConnectionsCommand.getConflationCommands()), types),
+                () -> assertTrue(ConflationCommandRegistry.getKeys().contains(ConnectedCommand.KEY)),
+                () -> assertTrue(ConflationCommandRegistry.getKeys().contains(DuplicateCommand.KEY)));
+        final var mergeAddressBuildings = ConflationCommandRegistry.getEntries().stream()
+                .filter(entry -> MergeAddressBuildings.class.equals(entry.type())).findFirst().orElseThrow();
+        assertAll(() -> assertEquals(List.of(MergeBuildingAddress.class), mergeAddressBuildings.conflictedCommands()),
+                () -> assertInstanceOf(MergeAddressBuildings.class, mergeAddressBuildings.create(new DataSet())));
+    }
+
+    @Test
+    void testIsApplicable() {
+        final var entry = ConflationCommandRegistry.getEntries().stream()
+                .filter(e -> DuplicateCommand.class.equals(e.type())).findFirst().orElseThrow();
+        final var node = TestUtils.newNode(DuplicateCommand.KEY + "=n1");
+        final var deleted = TestUtils.newNode(DuplicateCommand.KEY + "=n1");
+        final var way = TestUtils.newWay(DuplicateCommand.KEY + "=n1", new Node(LatLon.ZERO),
+                new Node(LatLon.NORTH_POLE));
+        new DataSet(node, deleted);
+        deleted.setDeleted(true);
+        assertAll(() -> assertTrue(entry.isApplicable(node)), () -> assertFalse(entry.isApplicable(deleted)),
+                () -> assertFalse(entry.isApplicable(way)),
+                () -> assertFalse(entry.isApplicable(TestUtils.newNode("highway=crossing"))),
+                () -> assertTrue(ConflationCommandRegistry.hasConflationKey(node)),
+                () -> assertTrue(ConflationCommandRegistry.hasConflationKey(way)),
+                () -> assertFalse(ConflationCommandRegistry.hasConflationKey(TestUtils.newNode("building=yes"))));
+    }
+
+    @Test
+    void testRegister() {
+        try {
+            assertTrue(CreateConnectionsCommand.getConflationCommands().stream()
+                    .noneMatch(CountingCommand.class::equals));
+            CountingCommand.CREATED.set(0);
+            assertTrue(ConflationCommandRegistry.register(CountingCommand.class));
+            assertFalse(ConflationCommandRegistry.register(CountingCommand.class, CountingCommand::new));
+            // Only the probe instance is created when registering
+            assertEquals(1, CountingCommand.CREATED.get());
+            final var entries = ConflationCommandRegistry.getEntries();
+            final var entry = entries.get(entries.size() - 1);
+            assertAll(() -> assertSame(CountingCommand.class, entry.type()),
+                    () -> assertEquals("counting", entry.key()), () -> assertTrue(entry.keyShouldNotExistInOSM()),
+                    () -> assertTrue(ConflationCommandRegistry.getKeys().contains("counting")));
+
+            // The command is not created when there is nothing for it to do
+            final var node = new Node(new LatLon(0, 0));
+            final var dataSet = new DataSet(node);
+            CreateConnectionsCommand.createConnections(dataSet, List.of(node.save()));
+            assertEquals(1, CountingCommand.CREATED.get());
+            node.put("counting", "yes");
+            CreateConnectionsCommand.createConnections(dataSet, List.of(node.save()));
+            assertEquals(2, CountingCommand.CREATED.get());
+        } finally {
+            assertTrue(CreateConnectionsCommand.removeConflationCommand(CountingCommand.class));
+        }
+        assertAll(() -> assertFalse(ConflationCommandRegistry.getKeys().contains("counting")),
+                () -> assertFalse(ConflationCommandRegistry.unregister(CountingCommand.class)));
+    }
+
+    @Test
+    void testRegisterWithoutDataSetConstructor() {
+        final var types = CreateConnectionsCommand.getConflationCommands();
+        assertDoesNotThrow(() -> CreateConnectionsCommand.addConflationCommand(NoDataSetCommand.class));
+        assertAll(() -> assertFalse(ConflationCommandRegistry.register(NoDataSetCommand.class)),
+                () -> assertEquals(types, CreateConnectionsCommand.getConflationCommands()),
+                () -> assertFalse(ConflationCommandRegistry.getKeys().contains("nodataset")));
+    }
+}
@@ -0,0 +1,52 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.plugins.mapwithai.commands.cleanup.MissingConnectionTags;
+
+/**
+ * Test class for {@link ConflationDecisionReport}
+ *
+ * @author Taylor Smock
+ */
+class ConflationDecisionReportTest {
+    @Test
+    void testReportPerDataSet() {
+        final var first = new DataSet();
+        final var second = new DataSet();
+        final var report = ConflationDecisionReport.getInstance(first);
+        assertSame(report, ConflationDecisionReport.getInstance(first));
+        assertNotSame(report, ConflationDecisionReport.getInstance(second));
+
+        report.defer(MissingConnectionTags.class, "Set dupe=n1", Collections.singleton(new Node(LatLon.ZERO)));
+        assertEquals(1, report.getDecisionCount());
+        assertEquals(0, ConflationDecisionReport.getInstance(second).getDecisionCount());
+    }
+
+    @Test
+    void testMaximumDecisions() {
+        final var report = ConflationDecisionReport.getInstance(new DataSet());
+        final int count = ConflationDecisionReport.MAX_DECISIONS + 10;
+        for (int i = 0; i < count; i++) {
+            report.defer(MissingConnectionTags.class, "Decision " + i, Collections.emptyList());
+        }
+        assertEquals(ConflationDecisionReport.MAX_DECISIONS, report.getDecisionCount());
+        assertEquals(count, report.getDeferredCount());
+        assertEquals("Decision 10", report.getDecisions().get(0).description());
+        assertTrue(report.getReport().endsWith("Decision " + (count - 1) + '\t'));
+
+        report.clear();
+        assertEquals(0, report.getDecisionCount());
+        assertEquals(0, report.getDeferredCount());
+    }
+}
@@ -8,8 +8,11 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import org.junit.jupiter.api.Test;
@@ -30,6 +33,11 @@ import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.MapWithAIS
 import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.Wiremock;
 import org.openstreetmap.josm.testutils.annotations.Projection;
 
+import com.github.tomakehurst.wiremock.admin.model.ServeEventQuery;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+
 /**
  * Tests for {@link CreateConnectionsCommand}
  *
@@ -227,4 +235,90 @@ class CreateConnectionsCommandTest {
         assertNotNull(text, "There should be a description for the command");
         assertFalse(text.isEmpty(), "The description should not be an empty string");
     }
+
+    /**
+     * Test method for
+     * {@link CreateConnectionsCommand#classify(DataSet, Collection, Collection)}.
+     */
+    @Test
+    void testClassify() {
+        final Node conn = TestUtils.newNode("conn=w1,n1,n2");
+        final Node dupe = TestUtils.newNode("dupe=n3");
+        final Node both = TestUtils.newNode("conn=w1,n1,n2 dupe=n3");
+        final Node untagged = new Node(new LatLon(0, 0));
+        final Node missing = new Node(new LatLon(1, 1));
+        final DataSet dataSet = new DataSet(conn, dupe, both, untagged);
+
+        final Map<String, List<OsmPrimitive>> buckets = CreateConnectionsCommand.classify(dataSet,
+                Arrays.asList(conn.save(), dupe.save(), both.save(), untagged.save(), missing.save(), conn.save()),
+                ConflationCommandRegistry.getKeys());
+        assertEquals(List.of(conn, both), buckets.get(ConnectedCommand.KEY));
+        assertEquals(List.of(dupe, both), buckets.get(DuplicateCommand.KEY));
+        assertFalse(buckets.containsKey("highway"), "Keys without primitives should not have a bucket");
+    }
+
+    /**
+     * Test method for
+     * {@link AbstractConflationCommand#prefetchMissingPrimitives(DataSet, Collection, String)}.
+     * Missing primitives should be downloaded in one call, not one call per tag.
+     *
+     * @param wireMockRuntimeInfo The wiremock server to use
+     */
+    @Test
+    void testPrefetchMissingPrimitives(WireMockRuntimeInfo wireMockRuntimeInfo) {
+        final StubMapping stub = wireMockRuntimeInfo.getWireMock()
+                .register(WireMock.get(WireMock.urlPathEqualTo("/0.6/nodes"))
+                        .withQueryParam("nodes", WireMock.matching("1001,1002|1002,1001"))
+                        .willReturn(WireMock.aResponse().withHeader("Content-Type", "text/xml; charset=utf-8")
+                                .withBody("<?xml version=\"1.0\" encoding=\"UTF-8\"?><osm version=\"0.6\">"
+                                        + "<node id=\"1001\" visible=\"true\" version=\"1\" lat=\"1\" lon=\"1\"/>"
+                                        + "<node id=\"1002\" visible=\"true\" version=\"1\" lat=\"2\" lon=\"2\"/>"
+                                        + "</osm>")));
+        final Node node1 = TestUtils.newNode("dupe=n1001");
+        final Node node2 = TestUtils.newNode("dupe=n1002");
+        final Node node3 = TestUtils.newNode("dupe=n1001,n1002");
+        final DataSet dataSet = new DataSet(node1, node2, node3);
+
+        assertEquals(2, AbstractConflationCommand.prefetchMissingPrimitives(dataSet,
+                Arrays.asList(node1, node2, node3), DuplicateCommand.KEY));
+        assertEquals(1, wireMockRuntimeInfo.getWireMock().getServeEvents(ServeEventQuery.forStubMapping(stub)).size(),
+                "All missing primitives should be downloaded in one call");
+        assertNotNull(dataSet.getPrimitiveById(1001, OsmPrimitiveType.NODE));
+        assertNotNull(dataSet.getPrimitiveById(1002, OsmPrimitiveType.NODE));
+
+        // Nothing is missing anymore, so nothing should be downloaded
+        assertEquals(0, AbstractConflationCommand.prefetchMissingPrimitives(dataSet,
+                Arrays.asList(node1, node2, node3), DuplicateCommand.KEY));
+        CreateConnectionsCommand.createConnections(dataSet, Arrays.asList(node1.save(), node2.save(), node3.save()));
+        assertEquals(1, wireMockRuntimeInfo.getWireMock().getServeEvents(ServeEventQuery.forStubMapping(stub)).size());
+    }
+
+    /**
+     * Test method for
+     * {@link AbstractConflationCommand#prefetchMissingPrimitives(DataSet, Collection, String...)}.
+     * The primitives for all keys should be downloaded together.
+     *
+     * @param wireMockRuntimeInfo The wiremock server to use
+     */
+    @Test
+    void testPrefetchMissingPrimitivesForAllKeys(WireMockRuntimeInfo wireMockRuntimeInfo) {
+        final StubMapping stub = wireMockRuntimeInfo.getWireMock()
+                .register(WireMock.get(WireMock.urlPathEqualTo("/0.6/nodes"))
+                        .withQueryParam("nodes", WireMock.matching("(100[123],?){3}"))
+                        .willReturn(WireMock.aResponse().withHeader("Content-Type", "text/xml; charset=utf-8")
+                                .withBody("<?xml version=\"1.0\" encoding=\"UTF-8\"?><osm version=\"0.6\">"
+                                        + "<node id=\"1001\" visible=\"true\" version=\"1\" lat=\"1\" lon=\"1\"/>"
+                                        + "<node id=\"1002\" visible=\"true\" version=\"1\" lat=\"2\" lon=\"2\"/>"
+                                        + "<node id=\"1003\" visible=\"true\" version=\"1\" lat=\"3\" lon=\"3\"/>"
+                                        + "</osm>")));
+        final Node connected = TestUtils.newNode("conn=n1001,n1002");
+        final Node duplicate = TestUtils.newNode("dupe=n1003");
+        final DataSet dataSet = new DataSet(connected, duplicate);
+
+        assertEquals(3, AbstractConflationCommand.prefetchMissingPrimitives(dataSet,
+                Arrays.asList(connected.save(), duplicate.save()), ConnectedCommand.KEY, DuplicateCommand.KEY));
+        assertEquals(1, wireMockRuntimeInfo.getWireMock().getServeEvents(ServeEventQuery.forStubMapping(stub)).size(),
+                "The primitives for both keys should be downloaded in one call");
+        assertNotNull(dataSet.getPrimitiveById(1003, OsmPrimitiveType.NODE));
+    }
 }
@@ -5,15 +5,20 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.testutils.HeapUtils.usedHeap;
 
 import java.io.File;
+import java.lang.ref.Reference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.awaitility.Awaitility;
 import org.awaitility.Durations;
@@ -27,19 +32,24 @@ import org.openstreetmap.josm.data.UndoRedoHandler;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.Tag;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.validation.tests.SharpAngles;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.MissingConnectionTagsMocker;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.PleaseWaitDialogMocker;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.SwingUtilitiesMocker;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.BleedTest;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.Command;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.MapWithAISources;
+import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.SlowTest;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.Wiremock;
 import org.openstreetmap.josm.testutils.annotations.AssertionsInEDT;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
@@ -329,4 +339,190 @@ class MapWithAIAddCommandTest {
         SaveActionBase.doSave(layer, new File("post_command2.osm"), false);
     }
 
+    /**
+     * Create roads in the OSM data, and MapWithAI roads that connect to them
+     * ({@code conn}) and end on an existing node ({@code dupe})
+     *
+     * @param roads         The number of roads
+     * @param mapWithAIData The MapWithAI dataset
+     * @param osmData       The OSM dataset
+     * @return The OSM roads
+     */
+    private static List<Way> createConflatedRoads(int roads, DataSet mapWithAIData, DataSet osmData) {
+        final List<Way> osmRoads = new ArrayList<>(roads);
+        for (int i = 0; i < roads; i++) {
+            final double lat = i * 0.001;
+            final Way road = TestUtils.newWay(HIGHWAY_RESIDENTIAL, new Node(new LatLon(lat, 0)),
+                    new Node(new LatLon(lat, 0.001)));
+            // SimplePrimitiveId doesn't understand negative ids
+            road.setOsmId(i + 1L, 1);
+            road.firstNode().setOsmId(3L * i + 1, 1);
+            road.lastNode().setOsmId(3L * i + 2, 1);
+            final Node end = new Node(new LatLon(lat + 0.0004, 0.0005));
+            end.setOsmId(3L * i + 3, 1);
+            road.getNodes().forEach(osmData::addPrimitive);
+            osmData.addPrimitive(road);
+            osmData.addPrimitive(end);
+            osmRoads.add(road);
+
+            final Node connected = new Node(new LatLon(lat, 0.0005));
+            connected.put(ConnectedCommand.KEY, "w" + road.getUniqueId() + ",n" + road.firstNode().getUniqueId()
+                    + ",n" + road.lastNode().getUniqueId());
+            final Node duplicate = new Node(new LatLon(lat + 0.0004, 0.0005));
+            duplicate.put(DuplicateCommand.KEY, "n" + end.getUniqueId());
+            final Way added = TestUtils.newWay("highway=service", connected, duplicate);
+            added.getNodes().forEach(mapWithAIData::addPrimitive);
+            mapWithAIData.addPrimitive(added);
+        }
+        return osmRoads;
+    }
+
+    /**
+     * Planning should not change anything, and applying the plan on the EDT should
+     * apply the conflation. The time the EDT is blocked is only logged, since
+     * timings are not reliable on CI.
+     */
+    @Test
+    void testApplyPlanned() {
+        new MissingConnectionTagsMocker();
+        MapWithAIPreferenceHelper.setInteractiveConflation(false);
+        try {
+            final DataSet mapWithAIData = new DataSet();
+            final DataSet osmData = new DataSet();
+            final List<Way> roads = createConflatedRoads(250, mapWithAIData, osmData);
+            final MapWithAIAddCommand command = new MapWithAIAddCommand(mapWithAIData, osmData,
+                    new ArrayList<>(mapWithAIData.getWays()));
+            command.plan();
+            assertTrue(mapWithAIData.getWays().stream().noneMatch(Way::isDeleted), "Planning should not move anything");
+            assertEquals(1000, osmData.allPrimitives().size(), "Planning should not move anything");
+
+            final long[] blocked = new long[1];
+            GuiHelper.runInEDTAndWait(() -> {
+                final long start = System.nanoTime();
+                UndoRedoHandler.getInstance().add(command);
+                blocked[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            });
+            Logging.info("Applying the plan for 250 roads blocked the EDT for {0} ms", blocked[0]);
+            assertTrue(roads.stream().allMatch(road -> road.getNodesCount() == 3), "All roads should be connected");
+            assertEquals(250, osmData.getWays().stream().filter(way -> way.hasTag("highway", "service")).count());
+            assertTrue(osmData.allNonDeletedPrimitives().stream()
+                    .noneMatch(p -> p.hasKey(ConnectedCommand.KEY) || p.hasKey(DuplicateCommand.KEY)),
+                    "All conflation tags should be applied");
+        } finally {
+            MapWithAIPreferenceHelper.setInteractiveConflation(true);
+        }
+    }
+
+    /**
+     * Primitives that the conflation tags point to are downloaded while planning,
+     * but they should only be merged into the OSM data when the plan is applied
+     */
+    @Test
+    void testPlanDownloadsMissingPrimitivesSeparately() {
+        TestUtils.assumeWorkingJMockit();
+        new WindowMocker();
+        new PleaseWaitDialogMocker();
+        new MissingConnectionTagsMocker();
+        MapWithAIPreferenceHelper.setInteractiveConflation(false);
+        try {
+            final Node duplicate = new Node(new LatLon(39.0339521, -108.4874581));
+            duplicate.put(DuplicateCommand.KEY, "n176220609");
+            final Way way = TestUtils.newWay(HIGHWAY_RESIDENTIAL, duplicate,
+                    new Node(new LatLon(39.0292629, -108.4875117)));
+            final DataSet mapWithAIData = new DataSet();
+            final DataSet osmData = new DataSet();
+            way.getNodes().forEach(mapWithAIData::addPrimitive);
+            mapWithAIData.addPrimitive(way);
+
+            final MapWithAIAddCommand command = new MapWithAIAddCommand(mapWithAIData, osmData,
+                    Collections.singleton(way));
+            command.plan();
+            assertTrue(osmData.isEmpty(), "Planning should not download into the OSM data");
+
+            UndoRedoHandler.getInstance().add(command);
+            assertNotNull(osmData.getPrimitiveById(176220609, OsmPrimitiveType.NODE),
+                    "The downloaded node should be merged when the plan is applied");
+            assertNotNull(osmData.getPrimitiveById(way));
+        } finally {
+            MapWithAIPreferenceHelper.setInteractiveConflation(true);
+        }
+    }
+
+    /**
+     * If the MapWithAI data changes between planning and applying, the command
+     * should be planned again
+     */
+    @Test
+    void testPlanInvalidated() {
+        final DataSet mapWithAIData = new DataSet();
+        final DataSet osmData = new DataSet();
+        final List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final Way way = TestUtils.newWay(HIGHWAY_RESIDENTIAL, new Node(new LatLon(i, 0)),
+                    new Node(new LatLon(i, 0.001)));
+            way.getNodes().forEach(mapWithAIData::addPrimitive);
+            mapWithAIData.addPrimitive(way);
+            ways.add(way);
+        }
+        final MapWithAIAddCommand command = new MapWithAIAddCommand(mapWithAIData, osmData, ways);
+        command.plan();
+        final org.openstreetmap.josm.command.Command planned = command.command;
+        assertNotNull(planned);
+
+        // Remove one of the ways after planning
+        final Way removed = ways.get(1);
+        mapWithAIData.removePrimitive(removed);
+        removed.getNodes().forEach(mapWithAIData::removePrimitive);
+
+        UndoRedoHandler.getInstance().add(command);
+        assertNotSame(planned, command.command, "The command should be planned again");
+        assertNull(osmData.getPrimitiveById(removed), "The removed way should not be added");
+        assertNotNull(osmData.getPrimitiveById(ways.get(0)));
+        assertNotNull(osmData.getPrimitiveById(ways.get(2)));
+        assertTrue(ways.get(0).isDeleted());
+
+        UndoRedoHandler.getInstance().undo();
+        assertTrue(osmData.allNonDeletedPrimitives().isEmpty());
+        assertFalse(ways.get(0).isDeleted());
+    }
+
+    /**
+     * Adding 50k primitives should not keep copies of them on the undo stack
+     */
+    @SlowTest
+    void testRetainedHeap() {
+        final DataSet mapWithAIData = new DataSet();
+        final DataSet osmData = new DataSet();
+        for (int i = 0; i < 10_000; i++) {
+            final double lat = (i / 100) * 0.001;
+            final double lon = (i % 100) * 0.001;
+            final Way building = TestUtils.newWay("building=yes", new Node(new LatLon(lat, lon)),
+                    new Node(new LatLon(lat, lon + 0.0005)), new Node(new LatLon(lat + 0.0005, lon + 0.0005)),
+                    new Node(new LatLon(lat + 0.0005, lon)));
+            building.getNodes().forEach(mapWithAIData::addPrimitive);
+            mapWithAIData.addPrimitive(building);
+            building.addNode(building.firstNode());
+        }
+        // The heap needed for one copy of the primitives, which is what a DeleteCommand keeps
+        final var copies = new AtomicReference<List<PrimitiveData>>(
+                mapWithAIData.allPrimitives().stream().map(OsmPrimitive::save).toList());
+        final long withCopies = usedHeap();
+        copies.set(null);
+        final long copy = withCopies - usedHeap();
+
+        final var command = new AtomicReference<>(
+                new MapWithAIAddCommand(mapWithAIData, osmData, new ArrayList<>(mapWithAIData.getWays())));
+        command.get().executeCommand();
+        assertEquals(50_000, osmData.allPrimitives().size());
+        final long withCommand = usedHeap();
+        command.set(null);
+        final long retained = withCommand - usedHeap();
+        Reference.reachabilityFence(osmData);
+        Reference.reachabilityFence(mapWithAIData);
+
+        Logging.info("Retained heap for adding 50000 primitives: {0} bytes, one copy of them is {1} bytes", retained,
+                copy);
+        assertTrue(retained * 2 < copy, "The command retained " + retained + " bytes, compared to " + copy
+                + " bytes for one copy of the added primitives");
+    }
 }
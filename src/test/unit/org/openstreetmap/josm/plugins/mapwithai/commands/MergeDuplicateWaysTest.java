@@ -10,11 +10,16 @@ import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +34,10 @@ import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.plugins.mapwithai.backend.GetDataRunnable;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
+import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.SlowTest;
 import org.openstreetmap.josm.testutils.annotations.Projection;
+import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Pair;
 
 /**
@@ -279,6 +287,121 @@ class MergeDuplicateWaysTest {
                 "There should only be two duplicate nodes");
     }
 
+    /**
+     * Compare {@link MergeDuplicateWays#getDuplicateNodes(Way, Way)} with a
+     * comparison of every node pair on long parallel ways
+     */
+    @SlowTest
+    void testGetDuplicateNodesBenchmark() {
+        final var nodes1 = new ArrayList<Node>();
+        final var nodes2 = new ArrayList<Node>();
+        for (var i = 0; i < 4000; i++) {
+            nodes1.add(new Node(new LatLon(45, 10 + i * 0.000_01)));
+            nodes2.add(new Node(new LatLon(45.000_003, 10 + (i + 0.5) * 0.000_01)));
+        }
+        nodes2.add(nodes1.get(0));
+        final Way way1 = TestUtils.newWay("highway=residential", nodes1.toArray(new Node[0]));
+        final Way way2 = TestUtils.newWay("highway=residential", nodes2.toArray(new Node[0]));
+
+        final long start = System.nanoTime();
+        final var duplicateNodes = assertTimeout(Duration.ofSeconds(5),
+                () -> MergeDuplicateWays.getDuplicateNodes(way1, way2));
+        final long sweepTime = System.nanoTime() - start;
+
+        final long referenceStart = System.nanoTime();
+        final var expected = new LinkedHashMap<Pair<Integer, Node>, Map<Integer, Node>>();
+        for (var j = 0; j < way1.getNodesCount(); j++) {
+            for (var k = 0; k < way2.getNodesCount(); k++) {
+                if (way1.getNode(j).equals(way2.getNode(k)) || way1.getNode(j)
+                        .greatCircleDistance(way2.getNode(k)) < MapWithAIPreferenceHelper.getMaxNodeDistance()) {
+                    expected.computeIfAbsent(new Pair<>(j, way1.getNode(j)), ignored -> new HashMap<>()).put(k,
+                            way2.getNode(k));
+                }
+            }
+        }
+        final long referenceTime = System.nanoTime() - referenceStart;
+        Logging.info("getDuplicateNodes: {0} ms, {1} ms comparing every pair", sweepTime / 1_000_000,
+                referenceTime / 1_000_000);
+        assertAll(() -> assertEquals(expected, duplicateNodes),
+                () -> assertEquals(List.copyOf(expected.keySet()), List.copyOf(duplicateNodes.keySet())),
+                () -> assertTrue(expected.size() > 3000));
+    }
+
+    /**
+     * Test method for {@link MergeDuplicateWays#filterWays}.
+     */
+    @Test
+    void testFilterWays() {
+        final var ds = new DataSet();
+        final Way way1 = addRoad(ds, 0, 0, 20);
+        final Way way2 = addRoad(ds, 0.000_001, 0.001, 20);
+        final Way way3 = addRoad(ds, 0.000_002, 0.0015, 20);
+        final Way separate = addRoad(ds, 0.01, 0, 20);
+        final var commands = new ArrayList<Command>();
+
+        MergeDuplicateWays.filterWays(List.of(way1, way2, way3, separate), commands);
+        assertAll(() -> assertEquals(2, commands.size()), () -> assertFalse(way1.isDeleted()),
+                () -> assertTrue(way2.isDeleted()), () -> assertTrue(way3.isDeleted()),
+                () -> assertFalse(separate.isDeleted()), () -> assertEquals(35, way1.getNodesCount()));
+    }
+
+    /**
+     * Check that finding duplicates in parallel merges the same ways as finding
+     * them on one thread
+     */
+    @Test
+    void testFilterWaysParallel() {
+        final var results = new ArrayList<List<Integer>>();
+        for (var parallel : new boolean[] { false, true }) {
+            MapWithAIPreferenceHelper.setParallelCleanup(parallel);
+            final var ds = new DataSet();
+            final var ways = new ArrayList<Way>();
+            for (var i = 0; i < 300; i++) {
+                ways.add(addRoad(ds, i * 0.001, 0, 10));
+                ways.add(addRoad(ds, i * 0.001 + 0.000_001, i % 3 == 0 ? 0.000_5 : 0, 10));
+                ways.add(addRoad(ds, i * 0.001 + 0.000_002, 0.000_7, 10));
+            }
+            final var commands = new ArrayList<Command>();
+            MergeDuplicateWays.filterWays(ways, commands);
+            assertFalse(commands.isEmpty());
+            results.add(ways.stream().map(way -> way.isDeleted() ? -1 : way.getNodesCount()).toList());
+        }
+        MapWithAIPreferenceHelper.setParallelCleanup(true);
+        assertEquals(results.get(0), results.get(1));
+    }
+
+    /**
+     * Merge the duplicates in many roads at once
+     */
+    @SlowTest
+    void testFilterWaysBenchmark() {
+        final var ds = new DataSet();
+        for (var i = 0; i < 100; i++) {
+            for (var j = 0; j < 50; j++) {
+                addRoad(ds, i * 0.001, j * 0.01, 50);
+                addRoad(ds, i * 0.001 + 0.000_001, j * 0.01, 50);
+            }
+        }
+        final var commands = new ArrayList<Command>();
+        final long start = System.nanoTime();
+        assertTimeout(Duration.ofSeconds(30), () -> MergeDuplicateWays.filterWays(ds.getWays(), commands));
+        Logging.info("filterWays: {0} ms for {1} ways", (System.nanoTime() - start) / 1_000_000,
+                ds.getWays().size());
+        assertAll(() -> assertEquals(5000, commands.size()),
+                () -> assertEquals(5000, ds.getWays().stream().filter(Way::isDeleted).count()));
+    }
+
+    private static Way addRoad(DataSet ds, double lat, double lon, int nodes) {
+        final var wayNodes = new Node[nodes];
+        for (var i = 0; i < nodes; i++) {
+            wayNodes[i] = new Node(new LatLon(lat, lon + i * 0.000_1));
+            ds.addPrimitive(wayNodes[i]);
+        }
+        final Way way = TestUtils.newWay("highway=residential", wayNodes);
+        ds.addPrimitive(way);
+        return way;
+    }
+
     /**
      * Test method for {@link MergeDuplicateWays#getDescriptionText}
      */
@@ -3,13 +3,17 @@ package org.openstreetmap.josm.plugins.mapwithai.commands.conflation.cleanup;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import javax.swing.JOptionPane;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -19,10 +23,14 @@ import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
+import org.openstreetmap.josm.plugins.mapwithai.commands.ConflationDecisionReport;
 import org.openstreetmap.josm.plugins.mapwithai.commands.cleanup.MissingConnectionTags;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.MissingConnectionTagsMocker;
 import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.NoExceptions;
@@ -43,6 +51,23 @@ import org.openstreetmap.josm.testutils.mockers.WindowMocker;
 @NoExceptions
 @Projection
 class MissingConnectionTagsTest {
+    /**
+     * Expose the validator scans of {@link MissingConnectionTags}
+     */
+    private static final class ValidatorScans extends MissingConnectionTags {
+        ValidatorScans(DataSet data) {
+            super(data);
+        }
+
+        static Collection<TestError> duplicateNodes(Collection<OsmPrimitive> primitives) {
+            return findDuplicateNodes(primitives);
+        }
+
+        Collection<TestError> crossingWays(Collection<OsmPrimitive> primitives) {
+            return findCrossingWaysAtNodes(primitives);
+        }
+    }
+
     private DataSet ds;
     private MissingConnectionTags missing;
 
@@ -106,4 +131,84 @@ class MissingConnectionTagsTest {
         }
     }
 
+    /**
+     * Check that nothing is asked and the decision is reported when conflation is
+     * not interactive. If a dialog is shown, it will throw a headless exception.
+     */
+    @Test
+    void testDupeNodeNotInteractive() {
+        MapWithAIPreferenceHelper.setInteractiveConflation(false);
+        ConflationDecisionReport.getInstance(ds).clear();
+        try {
+            Node node11 = new Node(LatLon.ZERO);
+            Node node21 = new Node(LatLon.ZERO);
+            Way way1 = TestUtils.newWay("highway=residential", node11, new Node(LatLon.NORTH_POLE));
+            Way way2 = TestUtils.newWay("highway=residential", node21, new Node(LatLon.SOUTH_POLE));
+            for (Way way : Arrays.asList(way1, way2)) {
+                way.getNodes().forEach(ds::addPrimitive);
+                ds.addPrimitive(way);
+            }
+            node11.setOsmId(1, 1);
+            assertNull(missing.getCommand(Collections.singleton(way2)));
+            assertFalse(node21.hasKey("dupe"));
+            final List<ConflationDecisionReport.Decision> decisions = ConflationDecisionReport.getInstance(ds)
+                    .getDecisions();
+            assertTrue(decisions.stream().allMatch(d -> MissingConnectionTags.class.equals(d.command())));
+            assertTrue(decisions.stream().anyMatch(d -> d.description().startsWith("Set dupe=")
+                    && d.primitives().contains(node21.getPrimitiveId())));
+            final String[] report = ConflationDecisionReport.getInstance(ds).getReport().split("\n", -1);
+            assertEquals(decisions.size() + 1, report.length);
+            assertTrue(report[1].startsWith("MissingConnectionTags\t"));
+        } finally {
+            MapWithAIPreferenceHelper.setInteractiveConflation(true);
+            ConflationDecisionReport.getInstance(ds).clear();
+        }
+    }
+
+    /**
+     * Check that the errors of one validator run over many ways are given to the
+     * right ways
+     */
+    @Test
+    void testBatchValidatorScans() {
+        final int count = 100;
+        final List<OsmPrimitive> added = new ArrayList<>(count);
+        final List<Way> crossingWays = new ArrayList<>(count);
+        long id = 1;
+        for (int i = 0; i < count; i++) {
+            final double lon = i * 0.01;
+            final Node existingStart = new Node(new LatLon(0, lon));
+            final Node existingEnd = new Node(new LatLon(0, lon - 0.001));
+            final Node crossingStart = new Node(new LatLon(0.0005, lon - 0.0005));
+            final Node crossingEnd = new Node(new LatLon(0.0005, lon + 0.0005));
+            final Way existing = TestUtils.newWay("highway=residential", existingStart, existingEnd);
+            final Way crossing = TestUtils.newWay("highway=residential", crossingStart, crossingEnd);
+            for (OsmPrimitive primitive : Arrays.asList(existingStart, existingEnd, crossingStart, crossingEnd,
+                    existing, crossing)) {
+                primitive.setOsmId(id++, 1);
+            }
+            final Way way = TestUtils.newWay("highway=residential", new Node(new LatLon(0, lon)),
+                    new Node(new LatLon(0.001, lon)));
+            for (Way w : Arrays.asList(existing, crossing, way)) {
+                w.getNodes().forEach(ds::addPrimitive);
+                ds.addPrimitive(w);
+            }
+            added.add(way);
+            crossingWays.add(crossing);
+        }
+
+        final Collection<TestError> duplicates = ValidatorScans.duplicateNodes(added);
+        assertEquals(count, duplicates.size());
+        for (TestError error : duplicates) {
+            assertEquals(2, error.getPrimitives().size());
+            assertTrue(error.getPrimitives().stream().anyMatch(p -> p.getOsmId() > 0));
+            assertTrue(error.getPrimitives().stream().anyMatch(OsmPrimitive::isNew));
+        }
+
+        final Collection<TestError> crossings = new ValidatorScans(ds).crossingWays(added);
+        for (int i = 0; i < count; i++) {
+            final List<OsmPrimitive> expected = Arrays.asList(added.get(i), crossingWays.get(i));
+            assertEquals(1, crossings.stream().filter(error -> error.getPrimitives().containsAll(expected)).count());
+        }
+    }
 }
@@ -0,0 +1,130 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.commands.conflation.cleanup;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.actions.SimplifyWayAction;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.plugins.mapwithai.backend.MapWithAIPreferenceHelper;
+import org.openstreetmap.josm.plugins.mapwithai.commands.ConflationDecisionReport;
+import org.openstreetmap.josm.plugins.mapwithai.commands.cleanup.OverNodedWays;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Main;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+import mockit.Mock;
+import mockit.MockUp;
+
+/**
+ * Test class for {@link OverNodedWays}
+ *
+ * @author Taylor Smock
+ */
+@BasicPreferences
+@org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.Command
+@Main
+@Projection
+class OverNodedWaysTest {
+    /**
+     * Count the simplification prompts
+     */
+    private static final class SimplifyWayActionMocker extends MockUp<SimplifyWayAction> {
+        private final AtomicInteger prompts = new AtomicInteger();
+        private final double threshold;
+
+        SimplifyWayActionMocker(double threshold) {
+            this.threshold = threshold;
+        }
+
+        @Mock
+        public double askSimplifyWays(String text, boolean auto) {
+            prompts.incrementAndGet();
+            return threshold;
+        }
+    }
+
+    private DataSet ds;
+    private List<OsmPrimitive> ways;
+
+    @BeforeEach
+    void setUp() {
+        ds = new DataSet();
+        // Required to avoid an NPE in AutoScaleAction
+        MainApplication.getLayerManager().addLayer(new OsmDataLayer(ds, "Test Layer", null));
+        ways = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final Node[] nodes = new Node[20];
+            for (int j = 0; j < nodes.length; j++) {
+                nodes[j] = new Node(new LatLon(i * 0.001, j * 0.0001));
+            }
+            final Way way = TestUtils.newWay("highway=residential", nodes);
+            way.getNodes().forEach(ds::addPrimitive);
+            ds.addPrimitive(way);
+            ways.add(way);
+        }
+        // This way only has the nodes it needs
+        final Way bent = TestUtils.newWay("highway=residential", new Node(new LatLon(1, 1)),
+                new Node(new LatLon(1.001, 1)), new Node(new LatLon(1.001, 1.001)));
+        bent.getNodes().forEach(ds::addPrimitive);
+        ds.addPrimitive(bent);
+        ways.add(bent);
+    }
+
+    @Test
+    void testBatchSimplification() {
+        final SimplifyWayActionMocker mocker = new SimplifyWayActionMocker(0.5);
+        final Command command = new OverNodedWays(ds).getCommand(ways);
+        command.executeCommand();
+        assertEquals(1, mocker.prompts.get(), "There should only be one prompt for all of the ways");
+        assertAll(ways.stream().limit(500).map(Way.class::cast)
+                .map(way -> () -> assertEquals(2, way.getNodesCount(), way::toString)));
+        assertEquals(3, ((Way) ways.get(500)).getNodesCount());
+        assertEquals(500 * 2 + 3, ds.getNodes().stream().filter(node -> !node.isDeleted()).count());
+
+        command.undoCommand();
+        assertTrue(ways.stream().limit(500).map(Way.class::cast).allMatch(way -> way.getNodesCount() == 20));
+        command.executeCommand();
+        assertTrue(ways.stream().limit(500).map(Way.class::cast).allMatch(way -> way.getNodesCount() == 2));
+        assertEquals(1, mocker.prompts.get(), "Redoing the command should not prompt again");
+    }
+
+    @Test
+    void testBatchSimplificationCancelled() {
+        final SimplifyWayActionMocker mocker = new SimplifyWayActionMocker(-1);
+        new OverNodedWays(ds).getCommand(ways).executeCommand();
+        assertEquals(1, mocker.prompts.get());
+        assertTrue(ways.stream().limit(500).map(Way.class::cast).allMatch(way -> way.getNodesCount() == 20));
+    }
+
+    @Test
+    void testBatchSimplificationNotInteractive() {
+        final SimplifyWayActionMocker mocker = new SimplifyWayActionMocker(0.5);
+        MapWithAIPreferenceHelper.setInteractiveConflation(false);
+        ConflationDecisionReport.getInstance(ds).clear();
+        try {
+            new OverNodedWays(ds).getCommand(ways).executeCommand();
+            assertEquals(0, mocker.prompts.get());
+            assertTrue(ways.stream().limit(500).map(Way.class::cast).allMatch(way -> way.getNodesCount() == 20));
+            assertEquals(500, ConflationDecisionReport.getInstance(ds).getDecisions().size());
+        } finally {
+            MapWithAIPreferenceHelper.setInteractiveConflation(true);
+            ConflationDecisionReport.getInstance(ds).clear();
+        }
+    }
+}
@@ -93,6 +93,19 @@ class PreConflatedDataUtilsTest {
         assertEquals(0, ds.allPrimitives().stream().filter(OsmPrimitive::isDisabled).count());
     }
 
+    @Test
+    void testHideConflatedDataIndexUpdated() {
+        PreConflatedDataUtils.hideConflatedData(ds);
+        assertEquals(1, ds.allPrimitives().stream().filter(OsmPrimitive::isDisabled).count());
+        Node node = new Node(LatLon.SOUTH_POLE);
+        node.put(PreConflatedDataUtils.getConflatedKey(), "true");
+        ds.addPrimitive(node);
+        ds.allPrimitives().stream().filter(p -> !p.hasKeys()).findFirst()
+                .ifPresent(p -> p.put(PreConflatedDataUtils.getConflatedKey(), "true"));
+        PreConflatedDataUtils.hideConflatedData(ds);
+        assertEquals(3, ds.allPrimitives().stream().filter(OsmPrimitive::isDisabled).count());
+    }
+
     @Test
     void testPreferenceChanged() {
         PreConflatedDataUtils util = new PreConflatedDataUtils();
@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -385,6 +386,58 @@ class RoutingIslandsTestTest {
         assertFalse(test.getErrors().isEmpty());
     }
 
+    /**
+     * Long chains of ways should not hit the loop cap, and a oneway way in the
+     * wrong direction should split the chain into ways that cannot be left and ways
+     * that cannot be reached
+     */
+    @Test
+    void testLongOnewayChain() {
+        ValidatorPrefHelper.PREF_OTHER.put(Boolean.TRUE);
+        Config.getPref().putInt("validator.routingislands.maxrecursion", 1);
+        final DataSet ds = new DataSet();
+        // Only the first and last nodes are outside of the downloaded area
+        ds.addDataSource(new DataSource(new Bounds(-1, 0.0005, 1, 5.0005), "Test bounds"));
+        final var ways = new ArrayList<Way>();
+        Node previous = new Node(new LatLon(0, 0));
+        for (int i = 1; i <= 5001; i++) {
+            final Way way = TestUtils.newWay("highway=residential oneway=yes", previous,
+                    new Node(new LatLon(0, i * 0.001)));
+            ways.add(way);
+            previous = way.lastNode();
+        }
+        for (Way way : ways) {
+            way.getNodes().stream().filter(node -> node.getDataSet() == null).forEach(ds::addPrimitive);
+            ds.addPrimitive(way);
+        }
+        // Give everything an id, so that the nodes know if they are outside of the downloaded area
+        addToDataSet(ds, ways.get(0));
+
+        final RoutingIslandsTest test = new RoutingIslandsTest();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        test.visit(ds.allPrimitives());
+        test.endTest();
+        assertTrue(test.getErrors().isEmpty());
+
+        // Reverse a way in the middle
+        final Way reversed = ways.get(2500);
+        reversed.put("oneway", "-1");
+        test.clear();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        test.visit(ds.allPrimitives());
+        test.endTest();
+        final var cannotLeave = test.getErrors().stream()
+                .filter(error -> error.getPrimitives().contains(ways.get(0))).toList();
+        assertFalse(cannotLeave.isEmpty());
+        // Everything before the reversed way can be reached, but cannot be left
+        assertEquals(2500, cannotLeave.get(0).getPrimitives().size());
+        final var cannotReach = test.getErrors().stream()
+                .filter(error -> error.getPrimitives().contains(ways.get(5000))).toList();
+        assertFalse(cannotReach.isEmpty());
+        // The reversed way cannot be reached from the ways before it
+        assertEquals(2501, cannotReach.get(0).getPrimitives().size());
+    }
+
     @ParameterizedTest
     @ValueSource(strings = { "highway=services", "highway=rest_area", "highway=platform", "waterway=services",
             "waterway=rest_area", "waterway=dam" })
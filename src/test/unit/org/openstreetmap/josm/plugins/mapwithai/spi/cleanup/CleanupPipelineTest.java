@@ -0,0 +1,101 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.spi.cleanup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAICategory;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIInfo;
+import org.openstreetmap.josm.plugins.mapwithai.data.mapwithai.MapWithAIType;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Test class for {@link CleanupPipeline}
+ */
+@BasicPreferences
+class CleanupPipelineTest {
+    private record TestStage(String getName, Set<String> getDependencies, Set<OsmPrimitiveType> getInputs,
+            Set<MapWithAIType> getSourceTypes, Set<MapWithAICategory> getCategories, List<String> ran)
+            implements ICleanupStage {
+        TestStage(String name, List<String> ran, String... dependencies) {
+            this(name, Set.of(dependencies), EnumSet.of(OsmPrimitiveType.NODE), Collections.emptySet(),
+                    Collections.emptySet(), ran);
+        }
+
+        @Override
+        public Set<OsmPrimitiveType> getOutputs() {
+            return getInputs;
+        }
+
+        @Override
+        public void run(CleanupContext context) {
+            ran.add(getName);
+        }
+    }
+
+    @Test
+    void testOrder() {
+        final var pipeline = new CleanupPipeline();
+        final var ran = new ArrayList<String>();
+        pipeline.register(new TestStage("c", ran, "b"));
+        pipeline.register(new TestStage("a", ran));
+        pipeline.register(new TestStage("b", ran, "a", "missing"));
+        pipeline.register(new TestStage("d", ran));
+        assertEquals(List.of("a", "b", "c", "d"), pipeline.getStages().stream().map(ICleanupStage::getName).toList());
+
+        final var dataSet = new DataSet(new Node(LatLon.ZERO));
+        pipeline.run(new CleanupContext(dataSet, null, null), (stage, runnable) -> runnable.run());
+        assertEquals(List.of("a", "b", "c", "d"), ran);
+    }
+
+    @Test
+    void testInvalidStages() {
+        final var pipeline = new CleanupPipeline();
+        final var ran = new ArrayList<String>();
+        pipeline.register(new TestStage("a", ran, "b"));
+        final var duplicate = new TestStage("a", ran);
+        assertThrows(IllegalArgumentException.class, () -> pipeline.register(duplicate));
+        pipeline.register(new TestStage("b", ran, "a"));
+        assertThrows(IllegalStateException.class, pipeline::getStages);
+    }
+
+    @Test
+    void testSkipStages() {
+        final var pipeline = new CleanupPipeline();
+        final var ran = new ArrayList<String>();
+        pipeline.register(new TestStage("nodes", ran));
+        pipeline.register(new TestStage("ways", Collections.emptySet(), EnumSet.of(OsmPrimitiveType.WAY),
+                Collections.emptySet(), Collections.emptySet(), ran));
+        pipeline.register(new TestStage("highways", Collections.emptySet(), EnumSet.of(OsmPrimitiveType.NODE),
+                Collections.emptySet(), EnumSet.of(MapWithAICategory.HIGHWAY), ran));
+        pipeline.register(new TestStage("overture", Collections.emptySet(), EnumSet.of(OsmPrimitiveType.NODE),
+                EnumSet.of(MapWithAIType.OVERTURE), Collections.emptySet(), ran));
+
+        final var info = new MapWithAIInfo("Test");
+        info.setCategory(MapWithAICategory.BUILDING);
+        info.setSourceType(MapWithAIType.OVERTURE);
+        final var dataSet = new DataSet(new Node(LatLon.ZERO));
+        pipeline.run(new CleanupContext(dataSet, null, info), (stage, runnable) -> runnable.run());
+        assertEquals(List.of("nodes", "overture"), ran);
+
+        ran.clear();
+        pipeline.run(new CleanupContext(dataSet, null, null), (stage, runnable) -> runnable.run());
+        assertEquals(List.of("nodes", "highways", "overture"), ran);
+
+        assertTrue(CleanupPipeline.isApplicable(pipeline.getStages().get(2), null));
+        assertFalse(CleanupPipeline.isApplicable(pipeline.getStages().get(2), info));
+    }
+}
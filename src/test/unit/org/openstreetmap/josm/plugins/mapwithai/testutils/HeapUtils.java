@@ -0,0 +1,27 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.testutils;
+
+/**
+ * Utilities for measuring the heap in tests
+ *
+ * @author Taylor Smock
+ */
+public final class HeapUtils {
+    private HeapUtils() {
+        // Hide constructor
+    }
+
+    /**
+     * Run the garbage collector and get the used heap. This is only an
+     * approximation, so compare large differences.
+     *
+     * @return The used heap, in bytes
+     */
+    public static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
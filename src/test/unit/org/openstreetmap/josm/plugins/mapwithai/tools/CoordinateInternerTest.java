@@ -0,0 +1,59 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.tools;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Test class for {@link CoordinateInterner}
+ */
+class CoordinateInternerTest {
+    @Test
+    void testIntern() {
+        final var interner = new CoordinateInterner(1e-7);
+        final var node = interner.intern(new LatLon(1, 2));
+        assertAll(() -> assertSame(node, interner.intern(new LatLon(1.000_000_01, 2))),
+                () -> assertNotSame(node, interner.intern(new LatLon(1.000_001, 2))),
+                () -> assertEquals(new LatLon(1, 2), node.getCoor()));
+    }
+
+    @Test
+    void testBadPrecision() {
+        assertAll(() -> assertThrows(IllegalArgumentException.class, () -> new CoordinateInterner(0)),
+                () -> assertThrows(IllegalArgumentException.class, () -> new CoordinateInterner(Double.NaN)));
+    }
+
+    @Test
+    void testDeduplicate() {
+        final var dataSet = new DataSet();
+        final Way way1 = TestUtils.newWay("building=yes", new Node(new LatLon(0, 0)), new Node(new LatLon(0, 1)),
+                new Node(new LatLon(1, 1)));
+        final Way way2 = TestUtils.newWay("building=yes", new Node(new LatLon(0, 1)), new Node(new LatLon(1, 1)),
+                new Node(new LatLon(1, 2)));
+        final var tagged = new Node(new LatLon(1, 2));
+        tagged.put("entrance", "yes");
+        final Way way3 = TestUtils.newWay("highway=service", new Node(new LatLon(2, 2)), tagged);
+        for (var way : new Way[] { way1, way2, way3 }) {
+            way.getNodes().stream().filter(node -> node.getDataSet() == null).forEach(dataSet::addPrimitive);
+            dataSet.addPrimitive(way);
+        }
+        final int nodes = dataSet.getNodes().size();
+
+        assertEquals(2, new CoordinateInterner(1e-7).deduplicate(dataSet));
+        assertAll(() -> assertEquals(nodes - 2, dataSet.getNodes().size()),
+                () -> assertSame(way1.getNode(1), way2.getNode(0)),
+                () -> assertSame(way1.getNode(2), way2.getNode(1)),
+                () -> assertNotSame(way2.getNode(2), way3.getNode(1)),
+                () -> assertSame(tagged, way3.getNode(1)));
+    }
+}
@@ -0,0 +1,93 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.tools;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.plugins.mapwithai.testutils.HeapUtils.usedHeap;
+
+import java.lang.ref.Reference;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Tag;
+import org.openstreetmap.josm.data.osm.TagMap;
+import org.openstreetmap.josm.plugins.mapwithai.testutils.annotations.SlowTest;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Test class for {@link TagInterner}
+ */
+class TagInternerTest {
+    @Test
+    void testInternString() {
+        final var string = TagInterner.intern(new String("testInternString"));
+        final var copy = new String("testInternString");
+        assertAll(() -> assertNotSame(string, copy), () -> assertSame(string, TagInterner.intern(copy)),
+                () -> assertNull(TagInterner.intern((String) null)));
+    }
+
+    @Test
+    void testInternTag() {
+        final var tag = TagInterner.intern(new Tag(new String("testInternTag"), new String("yes")));
+        final var copy = new Tag(new String("testInternTag"), new String("yes"));
+        final var interned = TagInterner.intern(copy);
+        assertAll(() -> assertEquals(copy, interned), () -> assertSame(tag.getKey(), interned.getKey()),
+                () -> assertSame(tag.getValue(), interned.getValue()), () -> assertSame(tag, TagInterner.intern(tag)));
+    }
+
+    @Test
+    void testInternDataSet() {
+        final var dataSet = new DataSet();
+        for (var i = 0; i < 2; i++) {
+            final var node = new Node(new LatLon(0, i));
+            node.put(new String("testInternDataSet"), new String("value"));
+            dataSet.addPrimitive(node);
+        }
+        dataSet.addPrimitive(new Node(new LatLon(1, 1)));
+
+        assertTrue(TagInterner.intern(dataSet) > 0);
+        final var nodes = dataSet.getNodes().stream().filter(Node::hasKeys).toList();
+        final var key1 = nodes.get(0).keySet().iterator().next();
+        final var key2 = nodes.get(1).keySet().iterator().next();
+        assertAll(() -> assertSame(key1, key2),
+                () -> assertSame(nodes.get(0).get(key1), nodes.get(1).get(key2)),
+                () -> assertFalse(TagInterner.intern(nodes.get(0))),
+                () -> assertEquals(0, TagInterner.intern(dataSet)));
+    }
+
+    /**
+     * Interning a dataset should shrink the heap used for its tags by close to
+     * an order of magnitude (only the tag arrays of the primitives are left)
+     */
+    @SlowTest
+    void testRetainedHeap() {
+        final var dataSet = new DataSet();
+        for (var i = 0; i < 100_000; i++) {
+            dataSet.addPrimitive(new Node(new LatLon(i / 1000 * 0.001, i % 1000 * 0.001)));
+        }
+        final long untagged = usedHeap();
+        for (var node : dataSet.getNodes()) {
+            final var tags = new TagMap();
+            tags.put(new String("building"), new String("yes"));
+            tags.put(new String("source"), new String("microsoft/BuildingFootprints"));
+            node.setKeys(tags);
+        }
+        final long tagged = usedHeap();
+        TagInterner.intern(dataSet);
+        final long interned = usedHeap();
+        Reference.reachabilityFence(dataSet);
+        final long before = tagged - untagged;
+        final long after = interned - untagged;
+        Logging.info("Heap used by the tags of 100000 primitives: {0} bytes before and {1} bytes after interning",
+                before, after);
+        assertTrue(after * 4 < before,
+                "Interned tags used " + after + " bytes, compared to " + before + " bytes before interning");
+    }
+}
@@ -0,0 +1,65 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.mapwithai.tools;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.IWaySegment;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Test class for {@link WaySegmentIndex}
+ */
+@Projection
+class WaySegmentIndexTest {
+    @Test
+    void testSearchConnectedSegments() {
+        final Way way1 = TestUtils.newWay("", new Node(new LatLon(0, 0)), new Node(new LatLon(0, 0.001)),
+                new Node(new LatLon(0, 0.002)));
+        final Way way2 = TestUtils.newWay("", way1.getNode(1), new Node(new LatLon(0.001, 0.001)));
+        final Way farWay = TestUtils.newWay("", new Node(new LatLon(1, 1)), new Node(new LatLon(1, 1.001)));
+        final var index = new WaySegmentIndex(Arrays.asList(way1, way2, farWay));
+
+        final var found = index.search(new IWaySegment<>(way2, 0));
+        assertAll(() -> assertTrue(found.contains(new IWaySegment<>(way1, 0))),
+                () -> assertTrue(found.contains(new IWaySegment<>(way1, 1))),
+                () -> assertTrue(found.contains(new IWaySegment<>(way2, 0))),
+                () -> assertFalse(found.contains(new IWaySegment<>(farWay, 0))));
+        assertEquals(2, index.searchWays(way1).size());
+        assertEquals(Collections.singleton(farWay), index.searchWays(farWay));
+    }
+
+    @Test
+    void testUpdate() {
+        final Way way1 = TestUtils.newWay("", new Node(new LatLon(0, 0)), new Node(new LatLon(0, 0.001)));
+        final Way way2 = TestUtils.newWay("", new Node(new LatLon(1, 1)), new Node(new LatLon(1, 1.001)));
+        final var index = new WaySegmentIndex(Arrays.asList(way1, way2), 100);
+        assertFalse(index.searchWays(way2).contains(way1));
+
+        way1.addNode(new Node(new LatLon(1, 1.0005)));
+        index.update(way1);
+        assertTrue(index.searchWays(way2).contains(way1));
+
+        index.remove(way1);
+        assertEquals(Collections.singleton(way2), index.searchWays(way2));
+    }
+
+    @Test
+    void testBadCellSize() {
+        assertAll(() -> assertThrows(IllegalArgumentException.class,
+                () -> new WaySegmentIndex(Collections.emptyList(), 0)),
+                () -> assertThrows(IllegalArgumentException.class,
+                        () -> new WaySegmentIndex(Collections.emptyList(), Double.NaN)));
+    }
+}